@@ -0,0 +1,42 @@
+/** JMH benchmark for starting a game: a new GameState plus GameEngine.generateLevel.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LevelGenerationBenchmark {
+
+    @Param({"10", "100", "10000"})
+    int mapSize;
+
+    @Param({"0", "5", "10"})
+    int difficulty;
+
+    private GameEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = GameEngine.headless(difficulty, 42L, mapSize);
+    }
+
+    @Benchmark
+    public GameState startNewGame() {
+        engine.startNewGame();
+        return engine.getState();
+    }
+}
@@ -0,0 +1,88 @@
+/** JMH benchmark for the per-move hot path: GameState.movePlayer, including the ranged mutant check.
+ * The player steps back and forth between two cells of a map filled to the given entity density,
+ * with its HP and steps topped up so every call is a complete, live move.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MovementBenchmark {
+
+    private static final TileType[] ITEMS = {
+            TileType.GOLD, TileType.TRAP, TileType.MELEE_MUTANT, TileType.RANGED_MUTANT, TileType.HEALTH_POTION
+    };
+
+    @Param({"10", "100", "1000"})
+    int mapSize;
+
+    @Param({"0.05", "0.25", "0.5"})
+    double density;
+
+    private GameState state;
+    private Player player;
+    private boolean up;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        state = fillMap(mapSize, density, 42L);
+        int x = mapSize / 2;
+        int y = mapSize / 2;
+        state.setTile(x, y, TileType.EMPTY);
+        player = new Player(x, y);
+        state.setPlayer(player);
+        state.setPlayerPosition(x, y);
+        up = true;
+    }
+
+    /**
+     * Builds a level-1 state whose cells each hold a random item with probability density.
+     */
+    static GameState fillMap(int mapSize, double density, long seed) {
+        DungeonRandom random = new DungeonRandom(seed);
+        GameState state = new GameState(mapSize, 3, random.split());
+        for (int x = 0; x < mapSize; x++) {
+            for (int y = 0; y < mapSize; y++) {
+                if (random.nextDouble() < density) {
+                    state.setTile(x, y, ITEMS[random.nextInt(ITEMS.length)]);
+                }
+            }
+        }
+        return state;
+    }
+
+    @Benchmark
+    public TurnEvents movePlayer() {
+        step();
+        return state.getTurnEvents();
+    }
+
+    @Benchmark
+    public List<String> movePlayerAndFormatMessages() {
+        step();
+        return state.getAndClearTurnMessages(); // What the GUI and text mode pay per move
+    }
+
+    private void step() {
+        player.setHp(10); // Stay alive so every call is a full move
+        state.setSteps(0);
+        state.movePlayer(up ? Direction.UP : Direction.DOWN);
+        up = !up;
+    }
+}
@@ -0,0 +1,77 @@
+/** JMH benchmark for the work done by saveGameState and loadGameState.
+ * Compares GameStateCodec (the current save format) with the legacy ObjectOutputStream/ObjectInputStream
+ * format, in memory, so running the benchmarks never overwrites the player's minidungeon.save.
+ * The encoded size of each format is printed once per trial.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistenceBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int mapSize;
+
+    @Param({"0.05", "0.5"})
+    double density;
+
+    private GameState state;
+    private byte[] saved;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        state = MovementBenchmark.fillMap(mapSize, density, 42L);
+        state.setPlayer(new Player(mapSize - 1, 0));
+        saved = save();
+        encoded = encode();
+        System.out.printf("%nmapSize=%d density=%s: legacy %d bytes, codec %d bytes%n",
+                mapSize, density, saved.length, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return GameStateCodec.encode(state);
+    }
+
+    @Benchmark
+    public GameState decode() throws IOException {
+        return GameStateCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(state);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public GameState load() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(saved))) {
+            return (GameState) ois.readObject();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/** JMH benchmark for copying a game: GameState.fork() and snapshot(), which share the map copy-on-write,
+ * against the deep copy Java serialization gives, which was the only way to copy a game before.
+ * The "AndWrite" benchmarks change one cell of the copy too, so they include the one chunk it copies.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SnapshotBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int mapSize;
+
+    private GameState state;
+
+    @Setup
+    public void setUp() {
+        state = MovementBenchmark.fillMap(mapSize, 0.5, 42L);
+        state.setPlayer(new Player(mapSize - 1, 0));
+        state.setPlayerPosition(mapSize - 1, 0);
+    }
+
+    @Benchmark
+    public GameSnapshot snapshot() {
+        return state.snapshot();
+    }
+
+    @Benchmark
+    public GameState forkAndWrite() {
+        GameState copy = state.fork();
+        copy.setTile(mapSize / 2, mapSize / 2, TileType.GOLD);
+        return copy;
+    }
+
+    @Benchmark
+    public GameState restoreAndWrite() {
+        GameState copy = state.snapshot().restore();
+        copy.setTile(mapSize / 2, mapSize / 2, TileType.GOLD);
+        return copy;
+    }
+
+    @Benchmark
+    public GameState serializedCopy() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(state);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (GameState) ois.readObject();
+        }
+    }
+}
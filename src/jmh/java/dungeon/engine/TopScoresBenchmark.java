@@ -0,0 +1,75 @@
+/** JMH benchmarks for the top scores leaderboard.
+ * addPlayerScore runs on a full top five board through a headless engine, so the scores stay in memory
+ * and no file is written. The large board benchmarks use an in-memory leaderboard holding a million
+ * scores, to show insertion, rank lookups and paging stay O(log n) and rejecting a score below the
+ * cut-off stays O(1).
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TopScoresBenchmark {
+
+    private static final int LARGE_CAPACITY = 1_000_000;
+
+    private final LocalDate today = LocalDate.of(2025, 5, 30);
+    private GameEngine engine;
+    private TopScores large;
+    private DungeonRandom random;
+
+    @Setup
+    public void setUp() {
+        engine = GameEngine.headless(3, 42L);
+        random = new DungeonRandom(7L);
+        for (int i = 0; i < 5; i++) {
+            engine.addPlayerScore("Seed" + i, 20 + i, today);
+        }
+        large = TopScores.inMemory(LARGE_CAPACITY);
+        for (int i = 0; i < LARGE_CAPACITY; i++) {
+            large.add(3, "Seed", 1000 + random.nextInt(1_000_000), today);
+        }
+    }
+
+    @Benchmark
+    public boolean addPlayerScore() {
+        int score = random.nextInt(60);
+        engine.addPlayerScore("Player", score, today);
+        return engine.isTopScore(score);
+    }
+
+    @Benchmark
+    public boolean addToLargeBoard() {
+        return large.add(3, "Player", 1000 + random.nextInt(1_000_000), today);
+    }
+
+    @Benchmark
+    public boolean rejectBelowLargeBoardCutoff() {
+        return large.isTopScore(3, random.nextInt(1000));
+    }
+
+    @Benchmark
+    public TopScores.Standing standingOnLargeBoard() {
+        return large.standing(3, 1000 + random.nextInt(1_000_000));
+    }
+
+    @Benchmark
+    public List<ScoreEntry> pageOfLargeBoard() {
+        return large.getPage(3, random.nextInt(LARGE_CAPACITY), 10);
+    }
+}
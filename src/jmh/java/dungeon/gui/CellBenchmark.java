@@ -0,0 +1,52 @@
+/** JMH benchmark for Cell.setVisual, which runs for every cell on every GUI redraw.
+ * Starts the JavaFX toolkit once so images can be loaded; needs a display (or a headless
+ * JavaFX platform such as Monocle) to run.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.gui;
+
+import dungeon.engine.Entity;
+import dungeon.engine.TileType;
+
+import javafx.application.Platform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CellBenchmark {
+
+    private static final TileType[] TILES = TileType.values();
+
+    private Cell cell;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        try {
+            Platform.startup(() -> { });
+        } catch (IllegalStateException alreadyStarted) {
+            // Toolkit already running in this JVM
+        }
+        cell = new Cell();
+    }
+
+    @Benchmark
+    public Cell setVisual() {
+        Entity entity = TILES[next].getEntity(); // Cycles through every tile, including empty
+        next = (next + 1) % TILES.length;
+        cell.setVisual(entity, false);
+        return cell;
+    }
+}
@@ -0,0 +1,141 @@
+/** Runs file I/O on a dedicated background thread, so saving never blocks the game or the GUI.
+ * Tasks run one at a time in submission order, so a load submitted after a save reads what was saved,
+ * and two writes to the same file land in order. Files are written atomically: the bytes go to a
+ * temporary file in the same directory, which is forced to disk and then renamed over the target,
+ * so a crash mid-write leaves either the old file or the new one, never a mix.
+ *
+ * The thread is a daemon so it never keeps the game running, and a shutdown hook waits briefly for
+ * queued writes so closing the window straight after a save still saves.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public final class AsyncPersistence {
+
+    private static final long SHUTDOWN_WAIT_MILLIS = 5000;
+    private static final AsyncPersistence SHARED = new AsyncPersistence("dungeon-io");
+
+    static {
+        Thread hook = new Thread(() -> SHARED.awaitIdle(SHUTDOWN_WAIT_MILLIS), "dungeon-io-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+    }
+
+    private final ExecutorService executor;
+
+    private AsyncPersistence(String threadName) {
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the I/O executor shared by the whole game (saves, loads and the top scores file).
+     * @return The shared instance.
+     */
+    public static AsyncPersistence shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs a task on the I/O thread.
+     * @param task The task; an exception it throws completes the future exceptionally, unwrapped.
+     * @param <T> The task's result type.
+     * @return A future completed on the I/O thread with the task's result.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Writes a file atomically on the I/O thread, see {@link #writeAtomically(Path, byte[])}.
+     * @param file The file to replace.
+     * @param bytes The new contents; the caller must not change the array afterwards.
+     * @return A future completed once the file is on disk.
+     */
+    public CompletableFuture<Void> write(Path file, byte[] bytes) {
+        return submit(() -> {
+            writeAtomically(file, bytes);
+            return null;
+        });
+    }
+
+    /**
+     * Reads a whole file on the I/O thread.
+     * @param file The file to read.
+     * @return A future completed with the file's contents.
+     */
+    public CompletableFuture<byte[]> read(Path file) {
+        return submit(() -> Files.readAllBytes(file));
+    }
+
+    /**
+     * Waits until every task submitted so far has finished.
+     * @param timeoutMillis How long to wait at most.
+     * @return true if the queue drained in time.
+     */
+    public boolean awaitIdle(long timeoutMillis) {
+        try {
+            submit(() -> null).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            Diagnostics.event(Category.PERSISTENCE, Level.WARN, "Pending file writes did not finish: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Replaces a file's contents atomically, on the calling thread: writes a temporary file beside it,
+     * forces it to disk, then renames it over the target. Missing parent directories are created.
+     * @param file The file to replace.
+     * @param bytes The new contents.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) out.write(buffer);
+                out.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/** Bitboard view of a small map: one bit per cell for each kind of tile.
+ * A map of up to 128 cells (11x11 and below, so every standard 10x10 level) fits in two longs per
+ * tile type. Cell x * size + y is bit cell of the low word if it is below 64, otherwise bit cell - 64
+ * of the high word, so the bits run in row-major order. TileMap keeps the view in step with every
+ * write, and questions that would otherwise scan the map take a handful of bit operations: which
+ * ranged mutants can hit a cell (their board ANDed with that cell's precomputed attack mask), how
+ * much gold is left (a bit count), and which cells are one step from a set of cells (a few shifts).
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.Arrays;
+
+public final class Bitboard {
+
+    /** Largest map size the view is kept for, as size * size cells must fit in 128 bits. */
+    public static final int MAX_SIZE = 11;
+
+    private static final int TYPES = TileType.values().length;
+    // Per map size: every cell of the map, the cells not in the first or last column, and per cell
+    // the cells a ranged mutant there can hit (which are also the cells it can be hit from)
+    private static final Cells[] ALL = new Cells[MAX_SIZE + 1];
+    private static final Cells[] NOT_FIRST_COLUMN = new Cells[MAX_SIZE + 1];
+    private static final Cells[] NOT_LAST_COLUMN = new Cells[MAX_SIZE + 1];
+    private static final Cells[][] ATTACK_MASKS = new Cells[MAX_SIZE + 1][];
+
+    static {
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            Cells all = Cells.NONE, notFirst = Cells.NONE, notLast = Cells.NONE;
+            ATTACK_MASKS[size] = new Cells[size * size];
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    Cells cell = Cells.of(x * size + y);
+                    all = all.or(cell);
+                    if (y > 0) notFirst = notFirst.or(cell);
+                    if (y < size - 1) notLast = notLast.or(cell);
+                    Cells mask = Cells.NONE;
+                    for (int d = -RangedMutant.ATTACK_RANGE; d <= RangedMutant.ATTACK_RANGE; d++) {
+                        if (d == 0) continue;
+                        if (x + d >= 0 && x + d < size) mask = mask.or(Cells.of((x + d) * size + y));
+                        if (y + d >= 0 && y + d < size) mask = mask.or(Cells.of(x * size + y + d));
+                    }
+                    ATTACK_MASKS[size][x * size + y] = mask;
+                }
+            }
+            ALL[size] = all;
+            NOT_FIRST_COLUMN[size] = notFirst;
+            NOT_LAST_COLUMN[size] = notLast;
+        }
+    }
+
+    private final int size;
+    private final long allLow, allHigh, notFirstLow, notFirstHigh, notLastLow, notLastHigh; // This size's masks, for neighbours()
+    private final long[] boards; // Low and high word per tile type, indexed by code * 2; EMPTY's pair is unused
+
+    Bitboard(int size) {
+        this(size, new long[TYPES * 2]);
+    }
+
+    private Bitboard(int size, long[] boards) {
+        if (size <= 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Bitboards only cover maps of 1 to " + MAX_SIZE + " cells a side.");
+        }
+        this.size = size;
+        this.allLow = ALL[size].low();
+        this.allHigh = ALL[size].high();
+        this.notFirstLow = NOT_FIRST_COLUMN[size].low();
+        this.notFirstHigh = NOT_FIRST_COLUMN[size].high();
+        this.notLastLow = NOT_LAST_COLUMN[size].low();
+        this.notLastHigh = NOT_LAST_COLUMN[size].high();
+        this.boards = boards;
+    }
+
+    /**
+     * A set of cells of a map of up to 128 cells, as two 64-bit words.
+     * @param low Bits for cells 0 to 63.
+     * @param high Bits for cells 64 to 127.
+     */
+    public record Cells(long low, long high) {
+
+        public static final Cells NONE = new Cells(0, 0);
+
+        /**
+         * Gets the set holding just one cell.
+         * @param cell The cell, x * size + y.
+         * @return The set.
+         */
+        public static Cells of(int cell) {
+            return cell < Long.SIZE ? new Cells(1L << cell, 0) : new Cells(0, 1L << (cell - Long.SIZE));
+        }
+
+        public boolean isEmpty() { return (low | high) == 0; }
+        public int count() { return Long.bitCount(low) + Long.bitCount(high); }
+        public Cells and(Cells other) { return new Cells(low & other.low, high & other.high); }
+        public Cells or(Cells other) { return new Cells(low | other.low, high | other.high); }
+        public Cells andNot(Cells other) { return new Cells(low & ~other.low, high & ~other.high); }
+
+        public boolean contains(int cell) {
+            return cell < Long.SIZE ? (low >>> cell & 1) != 0 : (high >>> (cell - Long.SIZE) & 1) != 0;
+        }
+
+        /**
+         * Gets the lowest cell in the set, which is the first in row-major order.
+         * @return The cell, or -1 if the set is empty.
+         */
+        public int first() {
+            if (low != 0) return Long.numberOfTrailingZeros(low);
+            return high != 0 ? Long.SIZE + Long.numberOfTrailingZeros(high) : -1;
+        }
+
+        /**
+         * Gets the set without its lowest cell, for visiting the cells in order.
+         * @return The smaller set.
+         */
+        public Cells withoutFirst() {
+            return low != 0 ? new Cells(low & (low - 1), high) : new Cells(0, high & (high - 1));
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the cells holding a type of tile.
+     * @param type The tile type; EMPTY gives the cells holding nothing.
+     * @return The cells.
+     */
+    public Cells cells(TileType type) {
+        if (type == TileType.EMPTY) {
+            long low = 0, high = 0;
+            for (int code = 2; code < boards.length; code += 2) {
+                low |= boards[code];
+                high |= boards[code + 1];
+            }
+            return ALL[size].andNot(new Cells(low, high));
+        }
+        int index = type.getCode() * 2;
+        return new Cells(boards[index], boards[index + 1]);
+    }
+
+    /**
+     * Counts the cells holding a type of tile.
+     * @param type The tile type.
+     * @return The count.
+     */
+    public int count(TileType type) {
+        return cells(type).count();
+    }
+
+    /**
+     * Counts the gold left on the map.
+     * @return The number of gold tiles.
+     */
+    public int goldRemaining() {
+        return count(TileType.GOLD);
+    }
+
+    /**
+     * Gets the cells a ranged mutant at a cell could hit, which are also the cells a mutant could hit that cell from.
+     * @param x The row.
+     * @param y The column.
+     * @return The cells within attack range in a straight row or column, not including the cell itself.
+     */
+    public Cells attackMask(int x, int y) {
+        return ATTACK_MASKS[size][x * size + y];
+    }
+
+    /**
+     * Gets the ranged mutants that can attack a cell.
+     * @param x The row.
+     * @param y The column.
+     * @return The mutants' cells, lowest (first in row-major order) first.
+     */
+    public Cells threatsTo(int x, int y) {
+        int index = TileType.RANGED_MUTANT.getCode() * 2;
+        Cells mask = attackMask(x, y);
+        return new Cells(boards[index] & mask.low(), boards[index + 1] & mask.high());
+    }
+
+    /**
+     * Gets the cells one step up, down, left or right of any cell in a set.
+     * @param from The cells to step from.
+     * @return The cells one step away; a cell of from is included only if it is next to another one.
+     */
+    public Cells neighbours(Cells from) {
+        return new Cells(neighboursLow(from.low(), from.high()), neighboursHigh(from.low(), from.high()));
+    }
+
+    // The two words of neighbours(), for searches that keep their sets as plain longs. A row up or
+    // down is a shift by size across both words; a column left or right is a shift by one, first
+    // dropping the cells that would wrap onto the next row.
+    long neighboursLow(long low, long high) {
+        long rows = low >>> size | high << (Long.SIZE - size) | low << size;
+        long left = (low & notFirstLow) >>> 1 | (high & notFirstHigh) << (Long.SIZE - 1);
+        long right = (low & notLastLow) << 1;
+        return (rows | left | right) & allLow;
+    }
+
+    long neighboursHigh(long low, long high) {
+        long rows = high >>> size | high << size | low >>> (Long.SIZE - size);
+        long left = (high & notFirstHigh) >>> 1;
+        long right = (high & notLastHigh) << 1 | (low & notLastLow) >>> (Long.SIZE - 1);
+        return (rows | left | right) & allHigh;
+    }
+
+    // Records that a cell changed from one tile type to another
+    void update(int cell, TileType from, TileType to) {
+        int word = cell < Long.SIZE ? 0 : 1;
+        long bit = 1L << (cell & (Long.SIZE - 1));
+        if (from != TileType.EMPTY) boards[from.getCode() * 2 + word] &= ~bit;
+        if (to != TileType.EMPTY) boards[to.getCode() * 2 + word] |= bit;
+    }
+
+    void clear() {
+        Arrays.fill(boards, 0);
+    }
+
+    Bitboard copy() {
+        return new Bitboard(size, boards.clone());
+    }
+}
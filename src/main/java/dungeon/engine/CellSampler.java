@@ -0,0 +1,57 @@
+/** Draws distinct map cells uniformly at random, without replacement.
+ * Works as a partial Fisher-Yates shuffle over the virtual list of all cell indices
+ * (index = x * size + y). Small maps keep that list in an int array; huge maps only record the
+ * entries that have been swapped, so each draw costs O(1) time and memory whatever the map size.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class CellSampler {
+
+    private static final int DENSE_LIMIT = 4096; // Cells up to which a plain array is used
+
+    private final DungeonRandom random;
+    private final long cellCount;
+    private final int[] dense;             // Shuffled prefix + untouched suffix, for small maps
+    private final Map<Long, Long> swapped; // Only the displaced entries, for huge maps
+    private long drawn;
+
+    CellSampler(DungeonRandom random, int mapSize) {
+        this.random = random;
+        this.cellCount = (long) mapSize * mapSize;
+        if (cellCount <= DENSE_LIMIT) {
+            dense = new int[(int) cellCount];
+            for (int i = 0; i < dense.length; i++) dense[i] = i;
+            swapped = null;
+        } else {
+            dense = null;
+            swapped = new HashMap<>();
+        }
+    }
+
+    /**
+     * Draws the next cell. Every cell is returned at most once.
+     * @return The cell index, or -1 once every cell has been drawn.
+     */
+    long next() {
+        if (drawn == cellCount) return -1;
+        long pick = drawn + random.nextLong(cellCount - drawn);
+        long cell;
+        if (dense != null) {
+            int i = (int) drawn, j = (int) pick;
+            cell = dense[j];
+            dense[j] = dense[i];
+            dense[i] = (int) cell;
+        } else {
+            cell = swapped.getOrDefault(pick, pick);
+            swapped.put(pick, swapped.getOrDefault(drawn, drawn));
+        }
+        drawn++;
+        return cell;
+    }
+}
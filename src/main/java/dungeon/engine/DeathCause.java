@@ -0,0 +1,25 @@
+/** Records what dealt the fatal blow when the player's HP reaches 0.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+public enum DeathCause {
+    TRAP,
+    MELEE_MUTANT,
+    RANGED_MUTANT;
+
+    /**
+     * Maps the entity the player just stepped onto to the cause of death it represents.
+     *
+     * @param entity The entity that damaged the player.
+     * @return The matching DeathCause, or null if the entity cannot deal damage.
+     */
+    public static DeathCause fromEntity(Entity entity) {
+        if (entity instanceof Trap) return TRAP;
+        if (entity instanceof MeleeMutant) return MELEE_MUTANT;
+        if (entity instanceof RangedMutant) return RANGED_MUTANT;
+        return null;
+    }
+}
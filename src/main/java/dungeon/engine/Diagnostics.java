@@ -0,0 +1,246 @@
+/** Structured diagnostic events for the engine and GUI, replacing ad-hoc console debug output.
+ * Every event has a category and a level, and each category has its own minimum level.
+ * Messages are templates with "{}" placeholders and fixed-arity arguments, so a disabled event
+ * costs one array read and a compare: no string building, no boxing and no varargs array.
+ * Enabled events are queued and formatted and written by a background daemon thread, so the
+ * game thread never formats text or blocks on the console.
+ * Levels are configured with the system property dungeon.diag, e.g. -Ddungeon.diag=DEBUG or
+ * -Ddungeon.diag=WARN,ENGINE=DEBUG,GUI=TRACE. By default only warnings and errors are shown.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class Diagnostics {
+
+    public enum Category { ENGINE, LEVEL, PERSISTENCE, SCORES, GUI }
+
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    /** System property holding the level configuration. */
+    public static final String CONFIG_PROPERTY = "dungeon.diag";
+
+    private static final Level DEFAULT_LEVEL = Level.WARN;
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final long SHUTDOWN_FLUSH_MILLIS = 500;
+
+    // Lowest enabled level per category; replaced as a whole so readers never need a lock
+    private static volatile int[] thresholds = parseConfig(System.getProperty(CONFIG_PROPERTY));
+    private static volatile PrintStream output = // Buffered stderr, flushed once per batch
+            new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err)), false);
+
+    private static final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile Thread writer; // Started on the first enabled event
+
+    private Diagnostics() {
+    }
+
+    /**
+     * Checks whether events of a category and level would be recorded. Use this to guard any
+     * extra work done only to build an event's arguments.
+     * @param category The event category.
+     * @param level The event level.
+     * @return true if the event is enabled.
+     */
+    public static boolean isEnabled(Category category, Level level) {
+        return level.ordinal() >= thresholds[category.ordinal()];
+    }
+
+    public static void event(Category category, Level level, String message) {
+        if (isEnabled(category, level)) publish(category, level, message, null);
+    }
+
+    public static void event(Category category, Level level, String template, int a) {
+        if (isEnabled(category, level)) publish(category, level, template, new Object[]{a});
+    }
+
+    public static void event(Category category, Level level, String template, int a, int b) {
+        if (isEnabled(category, level)) publish(category, level, template, new Object[]{a, b});
+    }
+
+    public static void event(Category category, Level level, String template, int a, int b, int c) {
+        if (isEnabled(category, level)) publish(category, level, template, new Object[]{a, b, c});
+    }
+
+    public static void event(Category category, Level level, String template, int a, int b, int c, int d) {
+        if (isEnabled(category, level)) publish(category, level, template, new Object[]{a, b, c, d});
+    }
+
+    /**
+     * Records an event with one object argument. If the argument is a Throwable, its message fills
+     * the placeholder and its stack trace is written after the event.
+     */
+    public static void event(Category category, Level level, String template, Object a) {
+        if (isEnabled(category, level)) publish(category, level, template, new Object[]{a});
+    }
+
+    public static void event(Category category, Level level, String template, Object a, Object b) {
+        if (isEnabled(category, level)) publish(category, level, template, new Object[]{a, b});
+    }
+
+    public static void event(Category category, Level level, String template, Object a, int b) {
+        if (isEnabled(category, level)) publish(category, level, template, new Object[]{a, b});
+    }
+
+    /**
+     * Changes the minimum level of one category at runtime.
+     * @param category The category to change.
+     * @param level The lowest level to record; OFF disables the category.
+     */
+    public static synchronized void setLevel(Category category, Level level) {
+        int[] updated = thresholds.clone();
+        updated[category.ordinal()] = level.ordinal();
+        thresholds = updated;
+    }
+
+    /**
+     * Redirects the written events, e.g. to a log file. Defaults to System.err.
+     * @param stream The stream to write to.
+     */
+    public static void setOutput(PrintStream stream) {
+        output = stream;
+    }
+
+    /**
+     * Waits until every event published so far has been written.
+     * @param timeoutMillis The longest time to wait.
+     * @return true if everything was written in time.
+     */
+    public static boolean flush(long timeoutMillis) {
+        if (writer == null) return true; // Nothing has ever been published
+        CountDownLatch written = new CountDownLatch(1);
+        try {
+            if (!queue.offer(new Event(written), timeoutMillis, TimeUnit.MILLISECONDS)) return false;
+            return written.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void publish(Category category, Level level, String template, Object[] args) {
+        if (writer == null) startWriter();
+        // Never block the game thread; count what doesn't fit and report it later
+        if (!queue.offer(new Event(category, level, template, args))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null) return;
+        writer = new Thread(Diagnostics::drain, "dungeon-diagnostics");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(SHUTDOWN_FLUSH_MILLIS)));
+    }
+
+    private static void drain() {
+        List<Event> batch = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            PrintStream out = output;
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                out.println("[WARN ENGINE] Diagnostics queue full, " + lost + " events dropped");
+            }
+            for (Event event : batch) {
+                if (event.flushed != null) {
+                    out.flush();
+                    event.flushed.countDown();
+                    continue;
+                }
+                line.setLength(0);
+                event.format(line);
+                out.println(line);
+                if (event.thrown != null) event.thrown.printStackTrace(out);
+            }
+            out.flush(); // One flush per batch rather than per line
+            batch.clear();
+        }
+    }
+
+    /**
+     * Parses a level configuration such as "INFO" or "WARN,ENGINE=DEBUG,GUI=TRACE".
+     * A bare level applies to every category; unknown names are reported and ignored.
+     */
+    static int[] parseConfig(String config) {
+        int[] parsed = new int[Category.values().length];
+        Arrays.fill(parsed, DEFAULT_LEVEL.ordinal());
+        if (config == null || config.isBlank()) return parsed;
+        for (String part : config.split(",")) {
+            String[] setting = part.trim().split("=", 2);
+            try {
+                if (setting.length == 1) {
+                    Arrays.fill(parsed, Level.valueOf(setting[0].trim().toUpperCase(Locale.ROOT)).ordinal());
+                } else {
+                    Category category = Category.valueOf(setting[0].trim().toUpperCase(Locale.ROOT));
+                    parsed[category.ordinal()] = Level.valueOf(setting[1].trim().toUpperCase(Locale.ROOT)).ordinal();
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring unknown " + CONFIG_PROPERTY + " setting: " + part);
+            }
+        }
+        return parsed;
+    }
+
+    private static final class Event {
+        final Category category;
+        final Level level;
+        final String template;
+        final Object[] args;
+        final Throwable thrown;
+        final CountDownLatch flushed; // Non-null for flush markers only
+
+        Event(Category category, Level level, String template, Object[] args) {
+            this(category, level, template, args, null);
+        }
+
+        Event(CountDownLatch flushed) {
+            this(null, null, null, null, flushed);
+        }
+
+        private Event(Category category, Level level, String template, Object[] args, CountDownLatch flushed) {
+            this.category = category;
+            this.level = level;
+            this.template = template;
+            this.args = args;
+            this.thrown = args != null && args[args.length - 1] instanceof Throwable t ? t : null;
+            this.flushed = flushed;
+        }
+
+        void format(StringBuilder out) {
+            out.append('[').append(level).append(' ').append(category).append("] ");
+            int argIndex = 0;
+            int from = 0;
+            int at;
+            while (args != null && argIndex < args.length && (at = template.indexOf("{}", from)) >= 0) {
+                Object arg = args[argIndex++];
+                out.append(template, from, at).append(arg instanceof Throwable t ? t.getMessage() : arg);
+                from = at + 2;
+            }
+            out.append(template, from, template.length());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/** Seedable, splittable random source shared by everything random in one game.
+ * Uses the SplitMix64 algorithm (the same one as java.util.SplittableRandom) but, unlike
+ * SplittableRandom, is Serializable so the random stream survives save/load.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class DungeonRandom implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 20240530L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long seed;
+    private final long gamma; // Always odd
+
+    /**
+     * Creates a random source from a seed. Equal seeds give equal sequences.
+     * @param seed The initial seed.
+     */
+    public DungeonRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private DungeonRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Creates a random source with an unpredictable seed, for normal (non-reproducible) play.
+     * @return A new random source.
+     */
+    public static DungeonRandom fromEntropy() {
+        return new DungeonRandom(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Splits off a new, statistically independent random source, e.g. one per worker thread.
+     * This source's own sequence advances, so splitting is itself deterministic.
+     * @return The new random source.
+     */
+    public DungeonRandom split() {
+        return new DungeonRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    /**
+     * Creates a copy that will produce exactly the same future values as this source.
+     * @return The copy.
+     */
+    public DungeonRandom copy() {
+        return new DungeonRandom(seed, gamma);
+    }
+
+    // Raw generator state, for the binary save format (GameStateCodec)
+    long getState() { return seed; }
+    long getGamma() { return gamma; }
+
+    static DungeonRandom restore(long state, long gamma) {
+        if ((gamma & 1L) == 0) {
+            throw new IllegalArgumentException("Gamma must be odd.");
+        }
+        return new DungeonRandom(state, gamma);
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    /**
+     * Returns a uniformly distributed int in [0, bound).
+     * @param bound The exclusive upper bound.
+     * @return The random value.
+     * @throws IllegalArgumentException if bound is not positive.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive.");
+        }
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) { // Power of two
+            return r & m;
+        }
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) {
+            // Reject values from the incomplete last range to stay unbiased
+        }
+        return r;
+    }
+
+    /**
+     * Returns a uniformly distributed long in [0, bound).
+     * @param bound The exclusive upper bound.
+     * @return The random value.
+     * @throws IllegalArgumentException if bound is not positive.
+     */
+    public long nextLong(long bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive.");
+        }
+        long r = nextLong();
+        long m = bound - 1;
+        if ((bound & m) == 0L) {
+            return r & m;
+        }
+        for (long u = r >>> 1; u + m - (r = u % bound) < 0L; u = nextLong() >>> 1) {
+            // Reject values from the incomplete last range to stay unbiased
+        }
+        return r;
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    public boolean nextBoolean() {
+        return mix32(nextSeed()) < 0;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
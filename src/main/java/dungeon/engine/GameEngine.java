@@ -5,91 +5,199 @@
  */
 package dungeon.engine;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 public class GameEngine {
 
     // --- Constants ---
-    private static final int MAP_SIZE = 10;
+    private static final int DEFAULT_MAP_SIZE = 10;
     private static final int MAX_STEPS_ALLOWED = 100;
+    private static final int MAX_GENERATION_ATTEMPTS = 8; // Levels drawn before an unwinnable one is repaired instead
     private static final String SAVE_FILENAME = "minidungeon.save";
-    private static final String TOP_SCORES_FILENAME = "topscores.dat";
-    private static final int MAX_TOP_SCORES = 5;
 
     // --- Instance Fields ---
     private GameState state;
     private final int initialDifficulty;
-    private int playerStartX = MAP_SIZE - 1; // Default for Level 1 start
+    private final int mapSize;
+    private int playerStartX; // Level 1 start is the bottom-left corner
     private int playerStartY = 0;            // Default for Level 1 start
-    private List<ScoreEntry> topScores;
+    private final Path saveFile;
+    private final TopScores topScores;
+    private final DungeonRandom gameSeeds; // Hands out one seed per new game
+    private long gameSeed;
+    private boolean journaling;
+    private MoveJournal journal; // Open while journaling a game that is still in progress
+    private Replay.Recorder recorder; // Records games started from a seed; null for loaded games
+    private MctsMovePolicy autoPlayer; // Text mode's 'a' command; created on first use
 
     // --- Constructor ---
     public GameEngine(int difficulty) {
+        this(difficulty, DungeonRandom.fromEntropy(), DEFAULT_MAP_SIZE, Path.of(SAVE_FILENAME), defaultTopScores());
+    }
+
+    /**
+     * Creates an engine whose games are fully reproducible: two engines built with the same
+     * difficulty and seed generate the same levels and combat rolls for the same sequence of moves.
+     * @param difficulty The initial difficulty level.
+     * @param seed The seed for this engine's games.
+     */
+    public GameEngine(int difficulty, long seed) {
+        this(difficulty, new DungeonRandom(seed), DEFAULT_MAP_SIZE, Path.of(SAVE_FILENAME), defaultTopScores());
+    }
+
+    /**
+     * Creates a reproducible engine whose levels are mapSize x mapSize instead of the standard 10x10.
+     * Maps are stored sparsely, so very large dungeons only use memory for the areas that hold items.
+     * @param difficulty The initial difficulty level.
+     * @param seed The seed for this engine's games.
+     * @param mapSize The width and height of each level.
+     * @throws IllegalArgumentException if mapSize is less than 2.
+     */
+    public GameEngine(int difficulty, long seed, int mapSize) {
+        this(difficulty, new DungeonRandom(seed), mapSize, Path.of(SAVE_FILENAME), defaultTopScores());
+    }
+
+    /**
+     * Creates an engine with its own save file and a leaderboard that may be shared with other
+     * engines, so several games can run in one process (e.g. one per GameServer session).
+     * @param difficulty The initial difficulty level.
+     * @param saveFile Where saveGameState writes and loadGameState reads; parent directories are created on save.
+     * @param topScores The leaderboard to check and add scores to.
+     */
+    public GameEngine(int difficulty, Path saveFile, TopScores topScores) {
+        this(difficulty, DungeonRandom.fromEntropy(), DEFAULT_MAP_SIZE, saveFile, topScores);
+    }
+
+    private GameEngine(int difficulty, DungeonRandom gameSeeds, int mapSize, Path saveFile, TopScores topScores) {
+        if (mapSize < 2) {
+            throw new IllegalArgumentException("Map size must be at least 2.");
+        }
         this.initialDifficulty = difficulty;
-        this.topScores = new ArrayList<>();
-        loadTopScores(); // Load existing scores when the engine is created
+        this.mapSize = mapSize;
+        this.playerStartX = mapSize - 1;
+        this.gameSeeds = gameSeeds;
+        this.saveFile = Objects.requireNonNull(saveFile, "Save file cannot be null.");
+        this.topScores = Objects.requireNonNull(topScores, "Top scores cannot be null.");
+    }
+
+    // Each standalone engine loads the scores file from the working directory, as before
+    private static TopScores defaultTopScores() {
+        return new TopScores(Path.of(TopScores.DEFAULT_FILENAME));
+    }
+
+    /**
+     * Creates an engine for automated play (e.g. the GameSimulator).
+     * A headless engine keeps its top scores in memory and never reads or writes the scores file,
+     * so many of them can run side by side on worker threads.
+     * @param difficulty The initial difficulty level.
+     * @return A new headless GameEngine.
+     */
+    public static GameEngine headless(int difficulty) {
+        return new GameEngine(difficulty, DungeonRandom.fromEntropy(), DEFAULT_MAP_SIZE, Path.of(SAVE_FILENAME),
+                TopScores.inMemory());
+    }
+
+    /**
+     * Creates a headless engine with reproducible games (see {@link #GameEngine(int, long)}).
+     * @param difficulty The initial difficulty level.
+     * @param seed The seed for this engine's games.
+     * @return A new headless GameEngine.
+     */
+    public static GameEngine headless(int difficulty, long seed) {
+        return new GameEngine(difficulty, new DungeonRandom(seed), DEFAULT_MAP_SIZE, Path.of(SAVE_FILENAME),
+                TopScores.inMemory());
+    }
+
+    /**
+     * Creates a headless engine with reproducible games on mapSize x mapSize levels
+     * (see {@link #GameEngine(int, long, int)}).
+     * @param difficulty The initial difficulty level.
+     * @param seed The seed for this engine's games.
+     * @param mapSize The width and height of each level.
+     * @return A new headless GameEngine.
+     */
+    public static GameEngine headless(int difficulty, long seed, int mapSize) {
+        return new GameEngine(difficulty, new DungeonRandom(seed), mapSize, Path.of(SAVE_FILENAME),
+                TopScores.inMemory());
     }
 
     // --- Game Lifecycle Methods ---
+    /**
+     * Starts a new game using the next seed from this engine's seed sequence.
+     */
     public void startNewGame() {
-        this.playerStartX = MAP_SIZE - 1; // Reset to Level 1 start position
+        startNewGame(gameSeeds.nextLong());
+    }
+
+    /**
+     * Starts a new game from an explicit seed, e.g. to reproduce a game reported with {@link #getGameSeed()}.
+     * @param seed The seed for the game's random source.
+     */
+    public void startNewGame(long seed) {
+        this.gameSeed = seed;
+        this.playerStartX = mapSize - 1; // Reset to Level 1 start position
         this.playerStartY = 0;
-        this.state = new GameState(MAP_SIZE, this.initialDifficulty);
+        this.state = new GameState(mapSize, this.initialDifficulty, new DungeonRandom(seed));
         this.state.setLevel(1);
         Player player = new Player(playerStartX, playerStartY);
         this.state.setPlayer(player);
         generateLevel(playerStartX, playerStartY);
-        System.out.println("Game started. Level 1. Difficulty: " + this.state.getDifficulty());
+        Diagnostics.event(Category.ENGINE, Level.INFO, "Game started. Level 1. Difficulty: {}", this.state.getDifficulty());
+        this.recorder = new Replay.Recorder(mapSize, initialDifficulty, seed);
+        restartJournal();
     }
 
     // Inside GameEngine.java (your provided code)
 
     public boolean advanceToNextLevel() {
-        // === Add Detailed Debugging Here ===
-        System.out.println("DEBUG GameEngine.advanceToNextLevel: Method called.");
         if (state == null) {
-            System.out.println("DEBUG GameEngine.advanceToNextLevel: Current state is NULL. Cannot advance.");
+            Diagnostics.event(Category.ENGINE, Level.DEBUG, "advanceToNextLevel: Current state is NULL. Cannot advance.");
             return false;
         }
-        System.out.println("DEBUG GameEngine.advanceToNextLevel: Current level reported by state: " + state.getLevel());
-        // === End Debugging ===
+        Diagnostics.event(Category.ENGINE, Level.DEBUG, "advanceToNextLevel: Current level reported by state: {}", state.getLevel());
 
         if (state.getLevel() == 1) {
             int ladderX = state.getPlayerX(); // Player is on the ladder when this decision is made
             int ladderY = state.getPlayerY();
-            System.out.println("DEBUG GameEngine.advanceToNextLevel: L1 Ladder was at (" + ladderX + "," + ladderY + ")");
+            Diagnostics.event(Category.ENGINE, Level.DEBUG, "advanceToNextLevel: L1 Ladder was at ({},{})", ladderX, ladderY);
 
             // Ensure player object exists before trying to get score/HP
             Player L1Player = state.getPlayer();
             if (L1Player == null) {
-                System.err.println("CRITICAL ERROR in advanceToNextLevel: Player object in Level 1 state is null!");
+                Diagnostics.event(Category.ENGINE, Level.ERROR, "advanceToNextLevel: Player object in Level 1 state is null!");
                 return false; // Cannot proceed without player data
             }
             int currentScore = L1Player.getScore();
             int currentHp = L1Player.getHp();
-            System.out.println("DEBUG GameEngine.advanceToNextLevel: Carrying over HP: " + currentHp + ", Score: " + currentScore);
+            Diagnostics.event(Category.ENGINE, Level.DEBUG, "advanceToNextLevel: Carrying over HP: {}, Score: {}", currentHp, currentScore);
 
 
             int currentDifficulty = state.getDifficulty();
             int nextLevelDifficulty = Math.min(currentDifficulty + 2, 10);
-            System.out.println("DEBUG GameEngine.advanceToNextLevel: Calculated L2 difficulty: " + nextLevelDifficulty);
+            Diagnostics.event(Category.ENGINE, Level.DEBUG, "advanceToNextLevel: Calculated L2 difficulty: {}", nextLevelDifficulty);
 
             this.playerStartX = ladderX; // L2 player starts where L1 ladder was
             this.playerStartY = ladderY;
 
             // Create and assign the NEW GameState for Level 2
-            GameState newStateForL2 = new GameState(MAP_SIZE, nextLevelDifficulty);
+            // Level 2 keeps drawing from the same random stream as Level 1
+            GameState newStateForL2 = new GameState(mapSize, nextLevelDifficulty, state.getRandom());
             newStateForL2.setLevel(2);
 
             Player playerForL2 = new Player(this.playerStartX, this.playerStartY);
@@ -99,7 +207,6 @@ public class GameEngine {
 
             this.state = newStateForL2; // CRUCIAL: GameEngine now uses the new state for L2
 
-            System.out.println("DEBUG GameEngine.advanceToNextLevel: New GameState for L2 assigned. Player HP: " + this.state.getPlayer().getHp());
 
             generateLevel(this.playerStartX, this.playerStartY); // Generate the map for Level 2 using the new state
 
@@ -107,94 +214,112 @@ public class GameEngine {
             this.state.getAndClearTurnMessages();
             String advanceMessage = "Advanced to Level 2! New Difficulty: " + this.state.getDifficulty();
             this.state.addTurnMessage(advanceMessage);
-            System.out.println("CONSOLE MSG (GameEngine): " + advanceMessage); // For text mode & console trace
+            Diagnostics.event(Category.ENGINE, Level.INFO, "{}", advanceMessage);
+            if (recorder != null) recorder.levelChange();
+            journalNextLevel();
             return true;
         }
-        System.out.println("DEBUG GameEngine.advanceToNextLevel: Not advancing (current level is not 1).");
+        Diagnostics.event(Category.ENGINE, Level.DEBUG, "advanceToNextLevel: Not advancing (current level is not 1).");
         return false;
     }
 
     private void generateLevel(int pStartX, int pStartY) {
         // Ensure state is not null before proceeding
         if (this.state == null) {
-            System.err.println("CRITICAL ERROR in generateLevel: GameState is null!");
+            Diagnostics.event(Category.LEVEL, Level.ERROR, "generateLevel: GameState is null!");
             return;
         }
-        System.out.println("DEBUG GameEngine.generateLevel: Called for Level " + this.state.getLevel() +
-                " with playerStart (" + pStartX + "," + pStartY +
-                "), difficulty=" + this.state.getDifficulty());
+        Diagnostics.event(Category.LEVEL, Level.DEBUG, "generateLevel: Level {} with playerStart ({},{}), difficulty={}",
+                this.state.getLevel(), pStartX, pStartY, this.state.getDifficulty());
 
         // ... (rest of your generateLevel logic: clearing map, placing Entry for L1, placing items) ...
         // This method MUST operate on `this.state` (which should be the L2 state when called from advanceToNextLevel)
-        Entity[][] map = this.state.getMap(); // Ensure using current engine's state map
         Player player = this.state.getPlayer();
         this.state.setSteps(0);
 
-        for (int i = 0; i < MAP_SIZE; i++) {
-            for (int j = 0; j < MAP_SIZE; j++) {
-                map[i][j] = null;
-            }
-        }
         this.state.setPlayerPosition(pStartX, pStartY);
         if (player != null) {
             player.setPosition(pStartX, pStartY);
         }
 
-        if (this.state.getLevel() == 1) {
-            map[pStartX][pStartY] = new Entry();
-            // System.out.println("DEBUG: Entry object placed at (" + pStartX + "," + pStartY + ") for Level 1.");
-        }
+        // Draws again until the ladder can be reached alive in time (see LevelValidator), repairing the
+        // last draw if none can. The ladder must be reached before the last step ends the game.
+        int moveBudget = MAX_STEPS_ALLOWED - 1;
+        for (int attempt = 1; ; attempt++) {
+            this.state.clearMap();
+            if (this.state.getLevel() == 1) {
+                this.state.setTile(pStartX, pStartY, TileType.ENTRY);
+            }
 
-        placeRandomItems(map, new Gold(), 5, pStartX, pStartY);
-        placeRandomItems(map, new Trap(), 5, pStartX, pStartY);
-        placeRandomItems(map, new MeleeMutant(), 3, pStartX, pStartY);
-        int rangedMutantCount = this.state.getDifficulty(); // Use current state's difficulty
-        placeRandomItems(map, new RangedMutant(), rangedMutantCount, pStartX, pStartY);
-        placeRandomItems(map, new HealthPotion(), 2, pStartX, pStartY);
-        placeRandomItems(map, new Ladder(), 1, pStartX, pStartY); // Ensure new ladder is placed for L2
-        System.out.println("DEBUG GameEngine.generateLevel: Map generation for Level " + this.state.getLevel() + " complete.");
+            // One sampler for the whole level: cells are drawn without replacement, so every draw is a
+            // new cell. Ladder first, so it is never the item that misses out on a crowded map.
+            CellSampler cells = new CellSampler(this.state.getRandom(), mapSize);
+            long ladder = placeRandomItems(cells, TileType.LADDER, 1, pStartX, pStartY);
+            placeRandomItems(cells, TileType.GOLD, 5, pStartX, pStartY);
+            placeRandomItems(cells, TileType.TRAP, 5, pStartX, pStartY);
+            placeRandomItems(cells, TileType.MELEE_MUTANT, 3, pStartX, pStartY);
+            int rangedMutantCount = this.state.getDifficulty(); // Use current state's difficulty
+            placeRandomItems(cells, TileType.RANGED_MUTANT, rangedMutantCount, pStartX, pStartY);
+            placeRandomItems(cells, TileType.HEALTH_POTION, 2, pStartX, pStartY);
+
+            // On a large map the ladder usually lands out of reach, and drawing again would rarely help
+            boolean ladderInReach = ladder >= 0
+                    && Math.abs(ladder / mapSize - pStartX) + Math.abs(ladder % mapSize - pStartY) <= moveBudget;
+            if (ladderInReach && LevelValidator.isWinnable(this.state, moveBudget)) break;
+            if (attempt == MAX_GENERATION_ATTEMPTS || !ladderInReach) {
+                if (LevelValidator.repair(this.state, moveBudget, ladder, this.state.getRandom())) {
+                    Diagnostics.event(Category.LEVEL, Level.DEBUG, "generateLevel: Repaired draw {} to make the ladder reachable.", attempt);
+                } else {
+                    Diagnostics.event(Category.LEVEL, Level.WARN, "generateLevel: Map too small for a reachable ladder.");
+                }
+                break;
+            }
+            Diagnostics.event(Category.LEVEL, Level.DEBUG, "generateLevel: Draw {} cannot be won, drawing again.", attempt);
+        }
+        Diagnostics.event(Category.LEVEL, Level.DEBUG, "generateLevel: Map generation for Level {} complete.", this.state.getLevel());
     }
 
 // No other changes are made to the rest of your GameEngine code for this specific issue.
 // The save/load, top scores, text game, and other methods remain as you provided.
 
-    private void placeRandomItems(Entity[][] map, Entity itemType, int count, int playerAvoidX, int playerAvoidY) {
-        Random rand = new Random();
+    /**
+     * Places count items on free cells. Runs in O(count) plus the few occupied cells it skips,
+     * however big the map is, and only gives up once every cell has been drawn.
+     * Returns the last cell filled as x * size + y, or -1 if none was.
+     */
+    private long placeRandomItems(CellSampler cells, TileType itemType, int count, int playerAvoidX, int playerAvoidY) {
         int itemsPlaced = 0;
-        int attempts = 0; // To prevent infinite loop on very full maps or impossible conditions
-        while (itemsPlaced < count && attempts < MAP_SIZE * MAP_SIZE * 2) {
-            int x = rand.nextInt(MAP_SIZE);
-            int y = rand.nextInt(MAP_SIZE);
+        long lastPlaced = -1;
+        TileMap tiles = state.getTileMap();
+        while (itemsPlaced < count) {
+            long cell = cells.next();
+            if (cell < 0) break; // Every cell has been drawn; the map is full
+            int x = (int) (cell / mapSize);
+            int y = (int) (cell % mapSize);
+            // The player's start cell is also the fixed L1 entry, so the ladder never lands there
             boolean isPlayerStartCell = (x == playerAvoidX && y == playerAvoidY);
-            // Prevent placing ladder on fixed L1 entry if itemType is Ladder and current level is 1
-            boolean isL1EntryAndLadder = (state.getLevel() == 1 && itemType instanceof Ladder && x == MAP_SIZE -1 && y == 0);
-
-            if (map[x][y] == null && !isPlayerStartCell && !isL1EntryAndLadder) {
-                // Create new instances for each item
-                if (itemType instanceof Gold) map[x][y] = new Gold();
-                else if (itemType instanceof Trap) map[x][y] = new Trap();
-                else if (itemType instanceof MeleeMutant) map[x][y] = new MeleeMutant();
-                else if (itemType instanceof RangedMutant) map[x][y] = new RangedMutant();
-                else if (itemType instanceof HealthPotion) map[x][y] = new HealthPotion();
-                else if (itemType instanceof Ladder) map[x][y] = new Ladder();
-                // Add other entity types here if necessary
+            if (!isPlayerStartCell && tiles.get(x, y) == TileType.EMPTY) {
+                state.setTile(x, y, itemType);
                 itemsPlaced++;
+                lastPlaced = cell;
             }
-            attempts++;
         }
         if (itemsPlaced < count) {
-            System.err.println("Warning: Could not place all " + count + " instances of " + itemType.getClass().getSimpleName());
+            Diagnostics.event(Category.LEVEL, Level.WARN, "Could not place all {} instances of {}", count, itemType);
         }
+        return lastPlaced;
     }
 
     // --- Game State Accessors & Mutators ---
-    public Entity[][] getMapEntities() { return state.getMap(); }
+    public Entity[][] getMapEntities() { return state.getMap(); } // Compatibility view, see GameState.getMap()
+    public int getMapSize() { return state.getMapSize(); }
     public int getPlayerX() { return state.getPlayerX(); }
     public int getPlayerY() { return state.getPlayerY(); }
     public Player getPlayer() { return state.getPlayer(); }
     public GameState getState() { return state; }
     public int getSteps() { return state.getSteps(); }
     public int getMaxSteps() { return MAX_STEPS_ALLOWED; }
+    public long getGameSeed() { return gameSeed; }
 
     // --- Game Logic Methods ---
     public List<String> handlePlayerMove(Direction direction) {
@@ -205,9 +330,85 @@ public class GameEngine {
             return endMessages;
         }
         state.movePlayer(direction); // GameState updates its internal messages
+        recordMove(direction);
+        journalMove(direction);
         return state.getAndClearTurnMessages(); // Retrieve and clear them
     }
 
+    /**
+     * Plays a move without formatting any messages, for automated play. The turn's events stay in
+     * {@link GameState#getTurnEvents()} until the next move, so nothing is allocated per move.
+     * @param direction The direction to move.
+     * @return false if the game was already over and the move was ignored.
+     */
+    public boolean applyMove(Direction direction) {
+        if (isGameOver() || hasWonGame()) return false;
+        state.movePlayer(direction);
+        recordMove(direction);
+        journalMove(direction);
+        return true;
+    }
+
+    // Records the move for getReplay(), fixing the replay's final hash once the move ends the game
+    private void recordMove(Direction direction) {
+        if (recorder == null) return;
+        recorder.move(direction);
+        if (isGameOver() || hasWonGame()) recorder.finish(state);
+    }
+
+    /**
+     * Gets the recording of the game in progress or just finished, e.g. to attach to a bug report.
+     * Games that were loaded or recovered rather than started from a seed are not recorded.
+     * @return The replay, or null if this game is not recorded.
+     */
+    public Replay getReplay() {
+        return recorder == null ? null : recorder.toReplay(state);
+    }
+
+    // --- Undo ---
+    /**
+     * A point in the current game that {@link #restoreUndoPoint(UndoPoint)} can return to.
+     * It holds a {@link GameSnapshot}, so keeping one per move is cheap.
+     */
+    public static final class UndoPoint {
+        private final GameSnapshot snapshot;
+        private final int recordedMoves;     // Where the game's replay recording was, so undo keeps it in step
+        private final int levelChangeAfter;
+
+        private UndoPoint(GameSnapshot snapshot, int recordedMoves, int levelChangeAfter) {
+            this.snapshot = snapshot;
+            this.recordedMoves = recordedMoves;
+            this.levelChangeAfter = levelChangeAfter;
+        }
+
+        public GameSnapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    /**
+     * Marks the current point in the game, in constant time, for undo or redo.
+     * @return The undo point.
+     */
+    public UndoPoint createUndoPoint() {
+        return recorder == null ? new UndoPoint(state.snapshot(), 0, Replay.NO_LEVEL_CHANGE)
+                : new UndoPoint(state.snapshot(), recorder.getMoveCount(), recorder.getLevelChangeAfter());
+    }
+
+    /**
+     * Returns the game to an undo point of the same game, earlier (undo) or later (redo). The game's
+     * replay recording and journal follow it, so a replay reproduces the line of play that was kept.
+     * @param point A point from {@link #createUndoPoint()} during the game in progress.
+     */
+    public void restoreUndoPoint(UndoPoint point) {
+        this.state = point.snapshot.restore();
+        if (recorder != null) {
+            recorder.rewind(point.recordedMoves, point.levelChangeAfter);
+            if (isGameOver() || hasWonGame()) recorder.finish(state);
+        }
+        restartJournal();
+    }
+
     public boolean isGameOver() {
         if (state == null || state.getPlayer() == null) return true; // Not yet initialized
         if (!state.getPlayer().isAlive()) return true; // Player HP <= 0
@@ -219,117 +420,448 @@ public class GameEngine {
     }
 
     // --- Save/Load Game State ---
-    public void saveGameState() {
+    /**
+     * Saves the current game to this engine's save file.
+     * @return true if the game was saved.
+     */
+    public boolean saveGameState() {
         if (this.state == null) {
-            System.err.println("GameEngine: Cannot save, game state is null.");
-            return;
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Cannot save, game state is null.");
+            return false;
         }
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(SAVE_FILENAME))) {
-            oos.writeObject(this.state);
-            System.out.println("Game state saved to " + SAVE_FILENAME);
+        try {
+            AsyncPersistence.writeAtomically(saveFile, GameStateCodec.encode(this.state)); // Creates e.g. a server player's directory
+            Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Game state saved to {}", saveFile);
             state.addTurnMessage("Game saved successfully.");
+            return true;
         } catch (IOException e) {
-            System.err.println("Error saving game state: " + e.getMessage());
-            e.printStackTrace();
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error saving game state: {}", e);
             state.addTurnMessage("Error: Could not save game. " + e.getMessage());
+            return false;
         }
     }
 
+    /**
+     * Saves the current game without blocking: the game is encoded into an immutable snapshot right away,
+     * so moves can carry on while the snapshot is written (atomically) on the I/O thread.
+     * @param engineThread Runs the completion, e.g. Platform::runLater; the outcome is added to the
+     * turn messages there, as {@link #saveGameState()} does.
+     * @return A future completed on engineThread with true if the game was saved.
+     */
+    public CompletableFuture<Boolean> saveGameStateAsync(Executor engineThread) {
+        if (this.state == null) {
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Cannot save, game state is null.");
+            return CompletableFuture.completedFuture(false);
+        }
+        byte[] snapshot = GameStateCodec.encode(this.state);
+        return AsyncPersistence.shared().write(saveFile, snapshot).handleAsync((ignored, error) -> {
+            if (error != null) {
+                Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error saving game state: {}", error);
+                state.addTurnMessage("Error: Could not save game. " + error.getMessage());
+                return false;
+            }
+            Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Game state saved to {}", saveFile);
+            state.addTurnMessage("Game saved successfully.");
+            return true;
+        }, engineThread);
+    }
+
+    /**
+     * Loads the saved game without blocking: the file is read and decoded on the I/O thread, after any
+     * save already in flight, and the loaded game replaces the current one on engineThread.
+     * @param engineThread Runs the completion, e.g. Platform::runLater.
+     * @return A future completed on engineThread with true if the game was loaded.
+     */
+    public CompletableFuture<Boolean> loadGameStateAsync(Executor engineThread) {
+        return AsyncPersistence.shared()
+                .submit(() -> Files.exists(saveFile) ? readSaveFile(Files.readAllBytes(saveFile)) : null)
+                .handleAsync((loadedState, error) -> {
+                    if (error == null && loadedState != null) {
+                        return installLoadedState(loadedState, saveFile);
+                    }
+                    if (error == null) {
+                        Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Load game: Save file not found - {}", saveFile);
+                        return false;
+                    }
+                    Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error loading game state: {}", error);
+                    reportLoadFailure();
+                    return false;
+                }, engineThread);
+    }
+
+    /**
+     * Checks whether this engine's save file exists.
+     * @return true if there is a saved game to load.
+     */
+    public boolean hasSavedGame() {
+        return Files.exists(saveFile);
+    }
+
     public boolean loadGameState() {
-        File saveFile = new File(SAVE_FILENAME);
-        if (!saveFile.exists()) {
-            System.err.println("Load game: Save file not found - " + SAVE_FILENAME);
+        if (!Files.exists(saveFile)) {
+            Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Load game: Save file not found - {}", saveFile);
             // Controller will need to inform user, or this method can add a message to a temporary state
             return false;
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(SAVE_FILENAME))) {
-            GameState loadedState = (GameState) ois.readObject();
+        try {
+            GameState loadedState = readSaveFile(Files.readAllBytes(saveFile));
             if (loadedState != null) {
-                this.state = loadedState; // Replace current state
-                System.out.println("Game state loaded from " + SAVE_FILENAME);
-                this.state.addTurnMessage("Game loaded successfully.");
-                return true;
+                return installLoadedState(loadedState, saveFile);
             }
         } catch (IOException | ClassNotFoundException | ClassCastException e) {
-            System.err.println("Error loading game state: " + e.getMessage());
-            e.printStackTrace();
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error loading game state: {}", e);
+        }
+        reportLoadFailure();
+        return false;
+    }
+
+    /**
+     * Saves the current game into a named slot of the slot file next to this engine's save file.
+     * Only that slot is written; the other slots in the file are left untouched.
+     * @param slotName The slot name (see {@link SaveSlotStore#MAX_NAME_BYTES}).
+     * @return true if the game was saved.
+     */
+    public boolean saveGameState(String slotName) {
+        if (this.state == null) {
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Cannot save, game state is null.");
+            return false;
+        }
+        try {
+            Files.createDirectories(slotFile().toAbsolutePath().getParent());
+            try (SaveSlotStore slots = SaveSlotStore.open(slotFile())) {
+                slots.write(slotName, GameStateCodec.encode(this.state));
+            }
+            Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Game state saved to slot {} of {}", slotName, slotFile());
+            state.addTurnMessage("Game saved to slot '" + slotName + "'.");
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error saving game state: {}", e);
+            state.addTurnMessage("Error: Could not save game. " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Loads the game saved in a named slot, reading only that slot's payload.
+     * @param slotName The slot name.
+     * @return true if the game was loaded.
+     */
+    public boolean loadGameState(String slotName) {
+        if (!Files.exists(slotFile())) {
+            Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Load game: Slot file not found - {}", slotFile());
+            return false;
+        }
+        try (SaveSlotStore slots = SaveSlotStore.open(slotFile())) {
+            byte[] payload = slots.read(slotName);
+            if (payload == null) {
+                Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Load game: No save slot named {}", slotName);
+                return false;
+            }
+            return installLoadedState(GameStateCodec.decode(payload), slotFile());
+        } catch (IOException | IllegalArgumentException e) {
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error loading game state: {}", e);
+        }
+        reportLoadFailure();
+        return false;
+    }
+
+    /**
+     * Lists the named save slots, reading only the slot file's index.
+     * @return The used slots, or an empty list if nothing has been saved to a slot yet.
+     */
+    public List<SaveSlotStore.Slot> listSaveSlots() {
+        if (!Files.exists(slotFile())) return List.of();
+        try (SaveSlotStore slots = SaveSlotStore.open(slotFile())) {
+            return slots.list();
+        } catch (IOException e) {
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error listing save slots: {}", e);
+            return List.of();
         }
+    }
+
+    // The slot file lives next to the single save file (so each server player has their own)
+    private Path slotFile() {
+        return saveFile.resolveSibling(SaveSlotStore.DEFAULT_FILENAME);
+    }
+
+    private boolean installLoadedState(GameState loadedState, Path source) {
+        this.state = loadedState; // Replace current state
+        this.recorder = null; // Its moves before the save are unknown
+        Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Game state loaded from {}", source);
+        this.state.addTurnMessage("Game loaded successfully.");
+        restartJournal();
+        return true;
+    }
+
+    private void reportLoadFailure() {
         // If loading failed, add a message to current state if it exists
         if (this.state != null) { // this.state might be null if called before startNewGame
             this.state.addTurnMessage("Error: Could not load game. Save file might be corrupt or incompatible.");
         } else { // If state is null, create a temporary one to hold the message for the GUI
-            GameState tempState = new GameState(MAP_SIZE, initialDifficulty); // Or a default size/diff
+            GameState tempState = new GameState(mapSize, initialDifficulty); // Or a default size/diff
             tempState.addTurnMessage("Error: Could not load game. Save file might be corrupt or incompatible.");
             this.state = tempState; // So GUI can fetch this message
         }
-        return false;
     }
 
-    // Top Score Management
-    @SuppressWarnings("unchecked")
-    private void loadTopScores() {
-        File scoresFile = new File(TOP_SCORES_FILENAME);
-        if (scoresFile.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(scoresFile))) {
-                Object loadedObject = ois.readObject();
-                if (loadedObject instanceof List) {
-                    this.topScores = (List<ScoreEntry>) loadedObject;
-                    this.topScores.removeIf(java.util.Objects::isNull); // Sanitize
-                    Collections.sort(this.topScores);
-                    System.out.println("Top scores loaded from " + TOP_SCORES_FILENAME + ". Count: " + this.topScores.size());
-                } else {
-                    this.topScores = new ArrayList<>(); // Initialize if file format is wrong
-                    System.err.println("Error loading top scores: File content is not a List.");
-                }
-            } catch (IOException | ClassNotFoundException | ClassCastException e) {
-                System.err.println("Error loading top scores: " + e.getMessage());
-                this.topScores = new ArrayList<>();
-            }
+    // Saves are written with GameStateCodec; files from before it are Java-serialized and still load
+    private static GameState readSaveFile(byte[] data) throws IOException, ClassNotFoundException {
+        if (GameStateCodec.isCodecFormat(data)) {
+            return GameStateCodec.decode(data);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (GameState) ois.readObject();
+        }
+    }
+
+    // --- Move Journal (crash-safe autosave) ---
+    /**
+     * Turns journaling on or off. While it is on, every move and level change of the game in progress
+     * is appended to a journal file next to the save file, so {@link #recoverFromJournal()} can rebuild
+     * the game if the process dies. The journal is deleted once the game is over. The file itself is
+     * only ever touched on the {@link AsyncPersistence} I/O thread, so a slow disk never holds up a move.
+     * @param enabled true to journal this and later games; false to stop and delete the journal.
+     */
+    public void setJournaling(boolean enabled) {
+        this.journaling = enabled;
+        if (enabled) {
+            if (journal == null) restartJournal();
         } else {
-            System.out.println("No top scores file found (" + TOP_SCORES_FILENAME + "). Starting with an empty list.");
-            this.topScores = new ArrayList<>();
+            endJournal();
         }
     }
 
-    private void saveTopScores() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(TOP_SCORES_FILENAME))) {
-            oos.writeObject(this.topScores);
-            System.out.println("Top scores saved to " + TOP_SCORES_FILENAME);
+    public boolean isJournaling() {
+        return journaling;
+    }
+
+    /**
+     * Checks whether a journal was left behind by a game that did not finish. Waits for journal
+     * writes already queued on the I/O thread, so it is meant for startup rather than during play.
+     * @return true if there is a journal to recover.
+     */
+    public boolean hasJournal() {
+        Path file = journalFile();
+        return journal == null && AsyncPersistence.shared().submit(() -> Files.exists(file)).join();
+    }
+
+    /**
+     * Rebuilds the unfinished game from the journal file: decodes its last checkpoint and replays the
+     * moves and level changes recorded since. Journaling then carries on from the recovered game.
+     * Like {@link #hasJournal()}, the file is read after any journal writes already queued.
+     * @return true if the game was recovered.
+     */
+    public boolean recoverFromJournal() {
+        try {
+            Path file = journalFile();
+            MoveJournal.Contents contents;
+            try {
+                contents = AsyncPersistence.shared().submit(() -> MoveJournal.read(file)).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                throw e;
+            }
+            closeJournal(); // Don't journal the replay itself
+            this.recorder = null;
+            this.state = contents.checkpoint();
+            for (byte event : contents.events()) {
+                if (MoveJournal.isMove(event)) {
+                    state.movePlayer(MoveJournal.direction(event));
+                } else {
+                    advanceToNextLevel();
+                }
+            }
+            state.getTurnEvents().clear();
+            Diagnostics.event(Category.PERSISTENCE, Level.INFO, "Recovered game from {} ({} events replayed)",
+                    journalFile(), contents.events().length);
+            state.addTurnMessage("Recovered your unfinished game.");
+            restartJournal();
+            return true;
         } catch (IOException e) {
-            System.err.println("Error saving top scores: " + e.getMessage());
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error recovering game from journal: {}", e);
+            reportLoadFailure();
+            return false;
         }
     }
 
-    // Inside GameEngine.java
+    private Path journalFile() {
+        return saveFile.resolveSibling(MoveJournal.DEFAULT_FILENAME);
+    }
 
-    public boolean isTopScore(int currentScore) {
-        if (currentScore == -1) { // Explicitly exclude -1 scores
-            return false;
+    // Starts a fresh journal (a checkpoint of the current game) if journaling is on
+    private void restartJournal() {
+        closeJournal();
+        if (!journaling || state == null || state.getPlayer() == null) return;
+        journal = MoveJournal.start(journalFile(), state); // Only encodes the checkpoint here; the I/O thread writes it
+    }
+
+    private void journalMove(Direction direction) {
+        if (journal == null) return;
+        if (isGameOver() || hasWonGame()) {
+            endJournal(); // Nothing left to recover
+            return;
         }
-        if (topScores.size() < MAX_TOP_SCORES) {
-            return true; // Always a top score if the list isn't full
+        try {
+            journal.recordMove(direction);
+            if (journal.needsCheckpoint()) journal.checkpoint(state);
+        } catch (IOException e) {
+            journalFailed(e);
         }
-        // List is full, check if current score is higher than the lowest score in the top 5
-        // Assuming topScores is sorted descending, the last element is the lowest among the top.
-        return currentScore > topScores.get(MAX_TOP_SCORES - 1).getScore(); // Use .getScore() here
     }
 
-    public void addPlayerScore(String playerName, int score, LocalDate date) {
-        if (score == -1) {
-            System.out.println("Attempted to add a score of -1 to top scores. Aborted.");
-            return;
+    private void journalNextLevel() {
+        if (journal == null) return;
+        try {
+            journal.recordNextLevel();
+        } catch (IOException e) {
+            journalFailed(e);
         }
-        topScores.add(new ScoreEntry(playerName, score, date));
-        Collections.sort(topScores); // Sorts descending due to ScoreEntry.compareTo
-        while (topScores.size() > MAX_TOP_SCORES) {
-            topScores.removeLast();
+    }
+
+    private void journalFailed(IOException e) {
+        Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error writing move journal: {}", e);
+        closeJournal();
+        if (state != null) state.addTurnMessage("Warning: autosave stopped. " + e.getMessage());
+    }
+
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            Diagnostics.event(Category.PERSISTENCE, Level.WARN, "Error closing move journal: {}", e.getMessage());
         }
-        saveTopScores();
+        journal = null;
+    }
+
+    private void endJournal() {
+        closeJournal();
+        Path file = journalFile();
+        AsyncPersistence.shared().submit(() -> Files.deleteIfExists(file)) // After the close queued above
+                .exceptionally(e -> {
+                    Diagnostics.event(Category.PERSISTENCE, Level.WARN, "Error deleting move journal: {}", e.getMessage());
+                    return false;
+                });
+    }
+
+    // Top Score Management (the leaderboard may be shared with other engines; scores go on the
+    // board for the difficulty this engine was started at)
+    public boolean isTopScore(int currentScore) {
+        return topScores.isTopScore(initialDifficulty, currentScore) // O(1) rejection below the board's cut-off
+                && topScores.placeFor(initialDifficulty, currentScore) <= TopScores.MAX_TOP_SCORES;
+    }
+
+    public boolean addPlayerScore(String playerName, int score, LocalDate date) {
+        return topScores.add(initialDifficulty, playerName, score, date);
+    }
+
+    /**
+     * Submits a score from any thread without contending with other engines sharing the leaderboard;
+     * it is batched with their submissions, see {@link TopScores#submit(int, String, int, LocalDate)}.
+     * @param playerName The player's name.
+     * @param score The final score.
+     * @param date The date the score was achieved.
+     * @return A future completed with whether the score made it onto the leaderboard, once it is logged.
+     */
+    public CompletableFuture<Boolean> submitPlayerScore(String playerName, int score, LocalDate date) {
+        return topScores.submit(initialDifficulty, playerName, score, date);
+    }
+
+    /**
+     * Records a finished game's score that is not added with a name, so it still counts in ranks.
+     * @param score The final score; -1 (a lost game) is not recorded.
+     */
+    public void recordScore(int score) {
+        topScores.recordGame(initialDifficulty, score);
+    }
+
+    /**
+     * Finds where a score stands among every game recorded at this engine's difficulty.
+     * @param score The score, usually one just recorded.
+     * @return Its rank and percentile.
+     */
+    public TopScores.Standing getStanding(int score) {
+        return topScores.standing(initialDifficulty, score);
     }
 
     public List<ScoreEntry> getTopScores() {
-        return new ArrayList<>(this.topScores); // Return a defensive copy
+        return topScores.getTop(initialDifficulty, TopScores.MAX_TOP_SCORES); // Already a defensive copy
+    }
+
+    /**
+     * Gets a page of the leaderboard for this engine's difficulty.
+     * @param from The 0-based place of the first entry.
+     * @param limit The most entries to return.
+     * @return The entries, best first.
+     */
+    public List<ScoreEntry> getTopScores(int from, int limit) {
+        return topScores.getPage(initialDifficulty, from, limit);
+    }
+
+    public int getTopScoreCount() {
+        return topScores.size(initialDifficulty);
+    }
+
+    /**
+     * Gets a page of the scores kept from before the leaderboard was split by difficulty, which
+     * were imported from the old top scores file and belong to no difficulty's board.
+     * @param from The 0-based place of the first entry.
+     * @param limit The most entries to return.
+     * @return The entries, best first.
+     */
+    public List<ScoreEntry> getEarlierTopScores(int from, int limit) {
+        return topScores.getPage(TopScores.UNKNOWN_DIFFICULTY, from, limit);
+    }
+
+    public int getEarlierTopScoreCount() {
+        return topScores.size(TopScores.UNKNOWN_DIFFICULTY);
+    }
+
+    public int getInitialDifficulty() {
+        return initialDifficulty;
+    }
+
+    // --- Game History ---
+    /**
+     * Describes the finished game for a {@link GameHistory}. Call it once the game is over, before
+     * anything else changes the state.
+     * @param seconds How long the game took to play, as timed by the frontend.
+     * @return The history entry, or null if the game is not over.
+     */
+    public GameHistory.Entry describeFinishedGame(int seconds) {
+        if (!isGameOver() && !hasWonGame() || state.getPlayer() == null) return null;
+        Player player = state.getPlayer();
+        GameHistory.Outcome outcome = hasWonGame() ? GameHistory.Outcome.WON
+                : !player.isAlive() ? GameHistory.Outcome.DIED : GameHistory.Outcome.OUT_OF_STEPS;
+        return new GameHistory.Entry(initialDifficulty, outcome,
+                outcome == GameHistory.Outcome.DIED ? state.getDeathCause() : null, state.getLevel(), player.getHp(),
+                state.getSteps(), outcome == GameHistory.Outcome.WON ? player.getScore() : -1, seconds,
+                Instant.now().getEpochSecond(), recorder != null ? gameSeed : 0L);
+    }
+
+    // Writes the finished game's recording next to the save file, for ReplayPlayer
+    private void saveReplay() {
+        Replay replay = getReplay();
+        if (replay == null) return;
+        Path file = saveFile.resolveSibling(Replay.DEFAULT_FILENAME);
+        try {
+            AsyncPersistence.writeAtomically(file, replay.encode());
+            System.out.println("Replay of this game saved to " + file + ".");
+        } catch (IOException e) {
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error saving replay: {}", e);
+        }
+    }
+
+    // Appends the finished text game to the history next to the save file
+    private void recordHistory(int seconds) {
+        GameHistory.Entry entry = describeFinishedGame(seconds);
+        if (entry == null) return;
+        try (GameHistory history = new GameHistory(saveFile.resolveSibling(GameHistory.DEFAULT_FILENAME))) {
+            history.append(List.of(entry));
+        } catch (IOException e) {
+            Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error recording game history: {}", e);
+        }
     }
 
     // --- Text Mode Game ---
@@ -337,6 +869,7 @@ public class GameEngine {
         System.out.println("\n--- MiniDungeon Help ---");
         System.out.println("Goal: Achieve the highest score and escape the dungeon.");
         System.out.println("Controls: Type 'u' (up), 'd' (down), 'l' (left), 'r' (right) to move.");
+        System.out.println("  Type 'a' to let the auto-player choose your next move.");
         System.out.println("  Each move costs 1 step. Max steps: 100.");
         System.out.println("Player Stats: Starts with 10 HP. If HP reaches 0, game over (score -1).");
         System.out.println("Items & Interactions:");
@@ -354,10 +887,21 @@ public class GameEngine {
         System.out.println("------------------------\n");
     }
 
+    // Lets the auto-player choose the next move, saying how it got there
+    private Direction autoPlayerMove() {
+        if (autoPlayer == null) autoPlayer = new MctsMovePolicy(gameSeed);
+        Direction move = autoPlayer.chooseMove(state, MAX_STEPS_ALLOWED - state.getSteps());
+        MctsMovePolicy.Search search = autoPlayer.getLastSearch();
+        System.out.printf("Auto-player moves %s (%d playouts in %d ms, %.0f playouts/s).%n", move, search.playouts(),
+                search.nanos() / 1_000_000, search.playoutsPerSecond());
+        return move;
+    }
+
     public void playTextGame() {
         Scanner scanner = new Scanner(System.in);
         System.out.println("\nWelcome to MiniDungeon (Text Mode)!");
         printTextHelp(); // Show help at the start
+        long started = System.nanoTime();
 
         while (true) {
             state.printMap();
@@ -382,10 +926,15 @@ public class GameEngine {
                 System.out.println("Congratulations! You escaped the dungeon from Level 2!");
                 System.out.println("Final Score: " + state.getPlayer().getScore());
                 // Text mode doesn't currently prompt for name for top scores
-                if (isTopScore(state.getPlayer().getScore())) {
+                int finalScore = state.getPlayer().getScore();
+                if (isTopScore(finalScore)) {
                     System.out.println("You made it into the Top 5!");
                     // For simplicity, text mode doesn't take name input here, but engine methods support it
                 }
+                recordScore(finalScore);
+                TopScores.Standing standing = getStanding(finalScore);
+                System.out.printf("Rank %d of %d games at difficulty %d (better than %.1f%%).%n",
+                        standing.rank(), standing.games(), initialDifficulty, standing.percentile());
                 break;
             }
 
@@ -394,7 +943,7 @@ public class GameEngine {
                 continue;
             }
 
-            System.out.print("Move (u/d/l/r), 'help', or 'q' to quit: ");
+            System.out.print("Move (u/d/l/r), 'a' for auto, 'help', or 'q' to quit: ");
             String moveInput = scanner.nextLine().trim().toLowerCase();
             Direction dir;
 
@@ -403,6 +952,7 @@ public class GameEngine {
                 case "d": dir = Direction.DOWN; break;
                 case "l": dir = Direction.LEFT; break;
                 case "r": dir = Direction.RIGHT; break;
+                case "a": dir = autoPlayerMove(); break;
                 case "help": printTextHelp(); continue;
                 case "q":
                     System.out.println("Quitting game. Final Score: " + state.getPlayer().getScore());
@@ -411,8 +961,10 @@ public class GameEngine {
                 default: System.out.println("Invalid input."); continue;
             }
 
-            state.movePlayer(dir);
+            applyMove(dir); // Messages are read at the top of the loop
         }
+        saveReplay();
+        recordHistory((int) ((System.nanoTime() - started) / 1_000_000_000L));
         scanner.close();
     }
 
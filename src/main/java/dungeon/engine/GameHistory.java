@@ -0,0 +1,361 @@
+/** Append-only record of every finished game, stored by column for fast aggregate queries.
+ * Each game is a row of fixed-width fields (difficulty, outcome, death cause, level, HP, steps, score,
+ * play time, end time and seed). Rows are grouped into blocks, and within a block each field is
+ * stored as its own contiguous column, so a query that needs three fields reads just those three
+ * arrays. Reading maps the file into memory and scans the columns in place: nothing is parsed or
+ * allocated per game, so tens of millions of games are summarised in about a second.
+ *
+ * Blocks start small (64 rows) so a player's file stays small, and double up to 65536 rows so huge
+ * histories have few blocks. A block is allocated whole when it is started; each batch of games is
+ * written into the free rows of every column and forced to disk before the block's row count is
+ * updated and forced, so rows past the count, e.g. from a crash mid-append, are never read and are
+ * overwritten by the next append.
+ *
+ * Layout: "MDGH" magic, 1 version byte, 3 zero bytes, then blocks of: 4-byte capacity, 4-byte row
+ * count, then each column in {@link Column} order, capacity values wide.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class GameHistory implements Closeable {
+
+    public static final String DEFAULT_FILENAME = "minidungeon.history";
+
+    private static final byte[] MAGIC = {'M', 'D', 'G', 'H'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int BLOCK_HEADER_SIZE = 8;
+    private static final int FIRST_BLOCK_ROWS = 64;
+    private static final int MAX_BLOCK_ROWS = 65536;
+    private static final DeathCause[] DEATH_CAUSES = DeathCause.values();
+
+    /** How a game ended. */
+    public enum Outcome {
+        WON,
+        DIED,
+        OUT_OF_STEPS
+    }
+
+    /** The fields of a row, in the order their columns are stored; widest first, so every column is aligned. */
+    enum Column {
+        ENDED_AT(8),
+        SEED(8),
+        SCORE(4),
+        SECONDS(4),
+        STEPS(2),
+        DIFFICULTY(1),
+        OUTCOME(1),
+        DEATH_CAUSE(1), // 0 for none, otherwise DeathCause ordinal + 1
+        LEVEL(1),
+        HP(1);
+
+        final int width;
+
+        Column(int width) {
+            this.width = width;
+        }
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+    private static final int ROW_WIDTH = Arrays.stream(COLUMNS).mapToInt(column -> column.width).sum();
+
+    /**
+     * One finished game.
+     * @param difficulty The difficulty the game was started at.
+     * @param outcome How it ended.
+     * @param deathCause What killed the player, or null unless the outcome is DIED.
+     * @param level The level it ended on.
+     * @param hp The player's HP at the end.
+     * @param steps The steps taken on the level it ended on.
+     * @param score The final score (-1 for a lost game).
+     * @param seconds How long it took to play.
+     * @param endedAt When it ended, in seconds since the epoch.
+     * @param seed The game's seed, to replay it; 0 if unknown (e.g. a loaded game).
+     */
+    public record Entry(int difficulty, Outcome outcome, DeathCause deathCause, int level, int hp, int steps,
+                        int score, int seconds, long endedAt, long seed) {
+        public Entry {
+            Objects.requireNonNull(outcome, "Outcome cannot be null.");
+            if (difficulty < 0 || difficulty > TopScores.MAX_DIFFICULTY) {
+                throw new IllegalArgumentException("Difficulty must be 0-" + TopScores.MAX_DIFFICULTY + ".");
+            }
+        }
+    }
+
+    private final Path file;
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    // The writer; only touched under this object's lock
+    private FileChannel channel;
+    private long blockStart;    // Position of the block being filled, or 0 if there is none yet
+    private int blockCapacity;
+    private int blockRows;
+
+    /**
+     * Creates a history backed by a file. Nothing is read or written until the first append.
+     * @param file The history file; created on the first append if it does not exist.
+     */
+    public GameHistory(Path file) {
+        this.file = Objects.requireNonNull(file, "History file cannot be null.");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Queues a finished game to be appended on the background I/O thread. Games submitted from many
+     * threads at once (e.g. server sessions) are appended together with one sync.
+     * @param entry The game.
+     */
+    public void submit(Entry entry) {
+        pending.add(Objects.requireNonNull(entry, "Entry cannot be null."));
+        if (drainScheduled.compareAndSet(false, true)) {
+            AsyncPersistence.shared().submit(() -> {
+                drainScheduled.set(false); // A game queued from here on schedules the next drain
+                List<Entry> batch = new ArrayList<>();
+                for (Entry next; (next = pending.poll()) != null; ) batch.add(next);
+                try {
+                    append(batch);
+                } catch (IOException e) {
+                    Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error appending to game history: {}", e);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Waits for every game submitted so far to be appended.
+     * @return A future completed once they are on disk.
+     */
+    public CompletableFuture<Void> flush() {
+        AsyncPersistence io = AsyncPersistence.shared();
+        return io.submit(() -> null).thenCompose(ignored -> io.submit(() -> null)); // Past any drain queued meanwhile
+    }
+
+    /**
+     * Appends games and forces them to disk together.
+     * @param entries The games, in the order they finished.
+     * @throws IOException if the file cannot be written or is not a history file.
+     */
+    public synchronized void append(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) return;
+        if (channel == null) {
+            try {
+                openForAppend();
+            } catch (IOException e) {
+                if (channel != null) channel.close();
+                channel = null; // Not appended to, so a bad file is never made worse
+                throw e;
+            }
+        }
+        int done = 0;
+        while (done < entries.size()) {
+            if (blockStart == 0 || blockRows == blockCapacity) startBlock();
+            int rows = Math.min(entries.size() - done, blockCapacity - blockRows);
+            List<Entry> batch = entries.subList(done, done + rows);
+            long columnStart = blockStart + BLOCK_HEADER_SIZE;
+            for (Column column : COLUMNS) {
+                ByteBuffer values = ByteBuffer.allocate(rows * column.width);
+                for (Entry entry : batch) put(values, column, entry);
+                writeFully(values.flip(), columnStart + (long) blockRows * column.width);
+                columnStart += (long) blockCapacity * column.width;
+            }
+            channel.force(false);
+            blockRows += rows;
+            writeFully(ByteBuffer.allocate(4).putInt(blockRows).flip(), blockStart + 4); // Commits the rows
+            channel.force(false);
+            done += rows;
+        }
+    }
+
+    /**
+     * Closes the file if it is open for appending; a later append reopens it.
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) return;
+        channel.close();
+        channel = null;
+        blockStart = 0;
+        blockCapacity = 0;
+        blockRows = 0;
+    }
+
+    // Finds the last block of an existing file, dropping a block whose header was torn by a crash
+    private void openForAppend() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size == 0) {
+            writeFully(ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put((byte) VERSION).flip(), 0);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        checkHeader(header.array(), file);
+        for (long position = HEADER_SIZE; position < size; ) {
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            int capacity = position + BLOCK_HEADER_SIZE <= size ? readFully(blockHeader, position).getInt(0) : -1;
+            if (capacity != nextCapacity(blockCapacity) || position + blockBytes(capacity) > size) {
+                channel.truncate(position); // A block that was being started when the game stopped
+                break;
+            }
+            blockStart = position;
+            blockCapacity = capacity;
+            blockRows = Math.clamp(blockHeader.getInt(4), 0, capacity);
+            position += blockBytes(capacity);
+        }
+    }
+
+    private void startBlock() throws IOException {
+        int capacity = nextCapacity(blockCapacity);
+        long start = Math.max(channel.size(), HEADER_SIZE);
+        writeFully(ByteBuffer.allocate(BLOCK_HEADER_SIZE).putInt(capacity).putInt(0).flip(), start);
+        writeFully(ByteBuffer.allocate(1), start + blockBytes(capacity) - 1); // Allocates the whole block
+        blockStart = start;
+        blockCapacity = capacity;
+        blockRows = 0;
+    }
+
+    private static int nextCapacity(int capacity) {
+        return capacity == 0 ? FIRST_BLOCK_ROWS : Math.min(capacity * 2, MAX_BLOCK_ROWS);
+    }
+
+    private static long blockBytes(int capacity) {
+        return BLOCK_HEADER_SIZE + (long) capacity * ROW_WIDTH;
+    }
+
+    private static void put(ByteBuffer values, Column column, Entry entry) {
+        switch (column) {
+            case ENDED_AT -> values.putLong(entry.endedAt());
+            case SEED -> values.putLong(entry.seed());
+            case SCORE -> values.putInt(entry.score());
+            case SECONDS -> values.putInt(entry.seconds());
+            case STEPS -> values.putShort((short) Math.min(entry.steps(), Short.MAX_VALUE));
+            case DIFFICULTY -> values.put((byte) entry.difficulty());
+            case OUTCOME -> values.put((byte) entry.outcome().ordinal());
+            case DEATH_CAUSE -> values.put((byte) (entry.deathCause() == null ? 0 : entry.deathCause().ordinal() + 1));
+            case LEVEL -> values.put((byte) entry.level());
+            case HP -> values.put((byte) entry.hp());
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    private ByteBuffer readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Game history is truncated.");
+            position += read;
+        }
+        return buffer;
+    }
+
+    private static void checkHeader(byte[] header, Path file) throws IOException {
+        if (!Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a MiniDungeon game history: " + file);
+        }
+        int version = header[MAGIC.length] & 0xFF;
+        if (version > VERSION) {
+            throw new IOException("Game history version " + version + " is newer than this game supports (" + VERSION + ").");
+        }
+    }
+
+    /**
+     * Summarises every game in a history file per starting difficulty: win rate, mean scores,
+     * death causes, how many reached Level 2 and mean play time. Only the columns those need are read.
+     * Safe to run while another thread or process is appending; games still being appended are left out.
+     * @param file The history file.
+     * @return One SimulationStats per difficulty that has games, in difficulty order, and the time the scan took.
+     * @throws IOException if the file cannot be read or is not a history file.
+     */
+    public static SimulationReport analyze(Path file) throws IOException {
+        long started = System.nanoTime();
+        SimulationStats[] stats = new SimulationStats[TopScores.MAX_DIFFICULTY + 1];
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (size < HEADER_SIZE || in.read(header, 0) < HEADER_SIZE) {
+                throw new IOException("Not a MiniDungeon game history: " + file);
+            }
+            checkHeader(header.array(), file);
+            int capacity = 0;
+            for (long position = HEADER_SIZE; position + BLOCK_HEADER_SIZE <= size; position += blockBytes(capacity)) {
+                capacity = nextCapacity(capacity);
+                if (position + blockBytes(capacity) > size) break; // Being started
+                MappedByteBuffer block = in.map(FileChannel.MapMode.READ_ONLY, position, blockBytes(capacity));
+                if (block.getInt(0) != capacity) throw new IOException("Game history is corrupt: bad block at " + position);
+                scan(block, capacity, Math.clamp(block.getInt(4), 0, capacity), stats);
+            }
+        }
+        List<SimulationStats> present = new ArrayList<>();
+        for (SimulationStats s : stats) {
+            if (s != null) present.add(s);
+        }
+        return new SimulationReport(present, System.nanoTime() - started);
+    }
+
+    // Reads one block's columns side by side: each get is a plain load from the mapped file
+    private static void scan(MappedByteBuffer block, int capacity, int rows, SimulationStats[] stats) {
+        int score = columnOffset(Column.SCORE, capacity);
+        int seconds = columnOffset(Column.SECONDS, capacity);
+        int difficulty = columnOffset(Column.DIFFICULTY, capacity);
+        int outcome = columnOffset(Column.OUTCOME, capacity);
+        int deathCause = columnOffset(Column.DEATH_CAUSE, capacity);
+        int level = columnOffset(Column.LEVEL, capacity);
+        for (int i = 0; i < rows; i++) {
+            int d = block.get(difficulty + i);
+            if (d < 0 || d >= stats.length) continue; // Not written by this version
+            SimulationStats s = stats[d];
+            if (s == null) s = stats[d] = new SimulationStats(d);
+            int cause = block.get(deathCause + i);
+            s.record(block.get(level + i), block.get(outcome + i) == Outcome.WON.ordinal(),
+                    cause > 0 && cause <= DEATH_CAUSES.length ? DEATH_CAUSES[cause - 1] : null,
+                    block.getInt(score + 4 * i), block.getInt(seconds + 4 * i));
+        }
+    }
+
+    private static int columnOffset(Column target, int capacity) {
+        int offset = BLOCK_HEADER_SIZE;
+        for (Column column : COLUMNS) {
+            if (column == target) return offset;
+            offset += capacity * column.width;
+        }
+        throw new AssertionError(target);
+    }
+
+    /**
+     * Prints the per-difficulty summary of a history file.
+     * Usage: GameHistory [file], defaulting to the history the GUI keeps.
+     * @param args Optional history file path.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : DEFAULT_FILENAME);
+        System.out.println(analyze(file));
+    }
+}
@@ -0,0 +1,152 @@
+/** Headless game simulator for balance testing.
+ * Plays complete games on worker threads using a pluggable MovePolicy and aggregates
+ * win rate, score and death-cause statistics for each starting difficulty.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+public class GameSimulator {
+
+    // A policy that keeps walking into walls never uses up its steps, so cap the attempts per level.
+    private static final int MOVE_ATTEMPTS_PER_STEP = 4;
+
+    private final int threads;
+
+    /**
+     * Creates a simulator that uses one worker per available processor.
+     */
+    public GameSimulator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a simulator with a fixed number of worker threads.
+     * @param threads The number of worker threads.
+     * @throws IllegalArgumentException if threads is not positive.
+     */
+    public GameSimulator(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Plays gamesPerDifficulty complete games at each of the given starting difficulties.
+     * @param difficulties The starting difficulties to simulate.
+     * @param gamesPerDifficulty The number of games to play at each difficulty.
+     * @param policyFactory Creates one policy per worker task from a seed; policies are never shared between threads.
+     * @param seed Master seed; each worker task gets its own split of it, so a run is reproducible
+     *             for a given thread count and no random state is shared between threads.
+     * @return The aggregated report.
+     */
+    public SimulationReport run(int[] difficulties, int gamesPerDifficulty, LongFunction<MovePolicy> policyFactory,
+                                long seed) {
+        DungeonRandom seeds = new DungeonRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long startNanos = System.nanoTime();
+        try {
+            List<List<Future<SimulationStats>>> pending = new ArrayList<>();
+            for (int difficulty : difficulties) {
+                List<Future<SimulationStats>> tasks = new ArrayList<>();
+                for (int worker = 0; worker < threads; worker++) {
+                    // Spread the remainder over the first workers
+                    int games = gamesPerDifficulty / threads + (worker < gamesPerDifficulty % threads ? 1 : 0);
+                    if (games == 0) continue;
+                    DungeonRandom workerRandom = seeds.split();
+                    MovePolicy policy = policyFactory.apply(workerRandom.nextLong());
+                    long engineSeed = workerRandom.nextLong();
+                    tasks.add(pool.submit(() -> playGames(difficulty, games, policy, engineSeed)));
+                }
+                pending.add(tasks);
+            }
+
+            List<SimulationStats> results = new ArrayList<>();
+            for (int i = 0; i < difficulties.length; i++) {
+                SimulationStats total = new SimulationStats(difficulties[i]);
+                for (Future<SimulationStats> task : pending.get(i)) {
+                    total.merge(task.get());
+                }
+                results.add(total);
+            }
+            return new SimulationReport(results, System.nanoTime() - startNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation worker failed: " + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static SimulationStats playGames(int difficulty, int games, MovePolicy policy, long engineSeed) {
+        SimulationStats stats = new SimulationStats(difficulty);
+        GameEngine engine = GameEngine.headless(difficulty, engineSeed);
+        for (int i = 0; i < games; i++) {
+            playGame(engine, policy);
+            stats.record(engine);
+        }
+        return stats;
+    }
+
+    /**
+     * Plays one complete game, advancing to Level 2 when the Level 1 ladder is reached,
+     * exactly as the GUI and text mode do.
+     * @param engine The engine to play on; a new game is started on it.
+     * @param policy The policy choosing every move.
+     */
+    public static void playGame(GameEngine engine, MovePolicy policy) {
+        engine.startNewGame();
+        int attemptsLeft = engine.getMaxSteps() * MOVE_ATTEMPTS_PER_STEP;
+        while (!engine.isGameOver() && !engine.hasWonGame()) {
+            GameState state = engine.getState();
+            if (state.hasReachedLadderThisTurn() && state.getLevel() == 1) {
+                engine.advanceToNextLevel();
+                attemptsLeft = engine.getMaxSteps() * MOVE_ATTEMPTS_PER_STEP;
+                continue;
+            }
+            if (attemptsLeft-- == 0) {
+                return; // Policy stalled; recorded as running out of steps
+            }
+            engine.applyMove(policy.chooseMove(state, engine.getMaxSteps() - state.getSteps()));
+        }
+    }
+
+    /**
+     * Runs a simulation from the command line and prints the report.
+     * Usage: GameSimulator [gamesPerDifficulty] [random|greedy|mcts] [threads] [seed]
+     * @param args Optional games per difficulty (default 10000), policy (default greedy), thread count and seed.
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        String policyName = args.length > 1 ? args[1] : "greedy";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        LongFunction<MovePolicy> policyFactory = switch (policyName) {
+            case "random" -> RandomMovePolicy::new;
+            case "greedy" -> policySeed -> new GreedyMovePolicy();
+            case "mcts" -> MctsMovePolicy::new; // Slow: thousands of playouts per move
+            default -> throw new IllegalArgumentException("Unknown policy: " + policyName);
+        };
+
+        int[] difficulties = new int[11];
+        for (int d = 0; d <= 10; d++) difficulties[d] = d;
+
+        System.out.println("Simulating " + games + " games per difficulty with the " + policyName +
+                " policy on " + threads + " threads (seed " + seed + ")...");
+        SimulationReport report = new GameSimulator(threads).run(difficulties, games, policyFactory, seed);
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,41 @@
+/** An immutable point-in-time view of a game, taken with {@link GameState#snapshot()}.
+ * A snapshot shares its map with the game it was taken from and with any games restored from it;
+ * whichever of them changes a part of the map copies that part first, so keeping a snapshot per move
+ * costs only the cells the moves changed. A snapshot never changes, so it can be kept indefinitely
+ * (e.g. on an undo stack) and read from any thread.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+public final class GameSnapshot {
+
+    private final GameState state; // Never handed out: its map is frozen and nothing else in it is changed
+
+    GameSnapshot(GameState state) {
+        this.state = state;
+    }
+
+    /**
+     * Creates a playable game from this snapshot. The game shares the snapshot's map copy-on-write,
+     * so restoring takes constant time and the snapshot can be restored again later.
+     * @return A new game, exactly as it was when the snapshot was taken, with an empty turn event buffer.
+     */
+    public GameState restore() {
+        return state.fork();
+    }
+
+    public int getMapSize() { return state.getMapSize(); }
+    public TileType getTile(int x, int y) { return state.getTile(x, y); }
+    public int getPlayerX() { return state.getPlayerX(); }
+    public int getPlayerY() { return state.getPlayerY(); }
+    public boolean hasPlayer() { return state.getPlayer() != null; }
+    public int getHp() { return state.getPlayer() == null ? 0 : state.getPlayer().getHp(); }
+    public int getScore() { return state.getPlayer() == null ? 0 : state.getPlayer().getScore(); }
+    public int getSteps() { return state.getSteps(); }
+    public int getLevel() { return state.getLevel(); }
+    public int getDifficulty() { return state.getDifficulty(); }
+    public boolean hasReachedLadderThisTurn() { return state.hasReachedLadderThisTurn(); }
+    public DeathCause getDeathCause() { return state.getDeathCause(); }
+}
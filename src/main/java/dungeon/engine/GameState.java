@@ -1,15 +1,17 @@
 /**
  * Holds all current state information for a game session in MiniDungeon.
- * This includes the map, player, current level, steps, difficulty, and messages.
+ * This includes the map, player, current level, steps, difficulty, and the current turn's events.
  * Author: Zane Davis
  * Student ID: 1174117
  * Due Date: 30th May 2025
  */
 package dungeon.engine;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects; // For Objects.requireNonNull
 
@@ -18,34 +20,245 @@ public class GameState implements Serializable {
     @Serial
     private static final long serialVersionUID = 20240530L; // Consistent serialVersionUID
 
-    private final Entity[][] map;
+    private TileMap tiles;
+    private transient Entity[][] mapView; // Created on demand by getMap() for Entity[][] callers
     private Player player;
     private int playerX, playerY;
     private int steps;
     private int level;
     private int difficulty;
     private boolean ladderReachedThisTurn = false;
+    private DeathCause deathCause;
+    private DungeonRandom random; // Shared by level generation and combat
 
-    private final List<String> turnMessages;
+    private transient TurnEvents turnEvents; // Per-turn UI state; not saved
 
     /**
-     * Constructs a new GameState.
+     * Constructs a new GameState with an unpredictable random source.
      * @param size The size of the square map (e.g., 10 for a 10x10 map).
      * @param initialDifficulty The starting difficulty for the game.
      * @throws IllegalArgumentException if size is not positive.
      */
     public GameState(int size, int initialDifficulty) {
+        this(size, initialDifficulty, DungeonRandom.fromEntropy());
+    }
+
+    /**
+     * Constructs a new GameState that draws all of its randomness from the given source.
+     * @param size The size of the square map (e.g., 10 for a 10x10 map).
+     * @param initialDifficulty The starting difficulty for the game.
+     * @param random The game's random source.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    public GameState(int size, int initialDifficulty, DungeonRandom random) {
         if (size <= 0) {
             throw new IllegalArgumentException("Map size must be positive.");
         }
-        this.map = new Entity[size][size];
+        this.random = Objects.requireNonNull(random, "Random source cannot be null in GameState.");
+        this.tiles = new TileMap(size);
         this.level = 1;
         this.difficulty = initialDifficulty;
-        this.turnMessages = new ArrayList<>();
+        this.turnEvents = new TurnEvents();
+    }
+
+    // A copy of source sharing its map storage copy-on-write, see fork() and snapshot()
+    private GameState(GameState source, boolean frozenMap) {
+        source.syncFromMapView();
+        this.tiles = source.tiles.share(frozenMap);
+        if (source.player != null) {
+            this.player = new Player(source.player.getX(), source.player.getY());
+            this.player.setHp(source.player.getHp());
+            this.player.setScore(source.player.getScore());
+        }
+        this.playerX = source.playerX;
+        this.playerY = source.playerY;
+        this.steps = source.steps;
+        this.level = source.level;
+        this.difficulty = source.difficulty;
+        this.ladderReachedThisTurn = source.ladderReachedThisTurn;
+        this.deathCause = source.deathCause;
+        this.random = source.random.copy();
+        this.turnEvents = new TurnEvents();
+    }
+
+    /**
+     * Creates an independent copy of this game, e.g. for a search to try moves on. The map is shared
+     * copy-on-write rather than copied, so forking takes constant time and each side later pays only
+     * for the map chunks it changes. The copy has its own random source in the same position, so it
+     * plays out exactly as this game would for the same moves.
+     * @return The copy, with an empty turn event buffer.
+     */
+    public GameState fork() {
+        return new GameState(this, false);
+    }
+
+    // A fork whose dice come from another source, so a search can sample other outcomes of the same moves
+    GameState fork(DungeonRandom random) {
+        GameState copy = new GameState(this, false);
+        copy.random = random;
+        return copy;
+    }
+
+    /**
+     * Takes an immutable point-in-time view of this game, e.g. for undo or to hand to another thread.
+     * Like {@link #fork()} it takes constant time, sharing the map until either side changes it.
+     * @return The snapshot.
+     */
+    public GameSnapshot snapshot() {
+        return new GameSnapshot(new GameState(this, true));
+    }
+
+    /**
+     * Reads both the current layout and saves written before the map was packed,
+     * which stored an Entity[][] field named "map", had no random source and saved the turn's
+     * messages as a list of strings (now ignored: they belonged to the turn before the save).
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        if (!fields.defaulted("tiles")) {
+            tiles = (TileMap) fields.get("tiles", null);
+        } else {
+            tiles = TileMap.fromEntities((Entity[][]) fields.get("map", null));
+        }
+        player = (Player) fields.get("player", null);
+        playerX = fields.get("playerX", 0);
+        playerY = fields.get("playerY", 0);
+        steps = fields.get("steps", 0);
+        level = fields.get("level", 1);
+        difficulty = fields.get("difficulty", 0);
+        ladderReachedThisTurn = fields.get("ladderReachedThisTurn", false);
+        deathCause = (DeathCause) fields.get("deathCause", null);
+        random = (DungeonRandom) fields.get("random", null);
+        if (random == null) {
+            random = DungeonRandom.fromEntropy(); // Saved before games were seeded
+        }
+        turnEvents = new TurnEvents();
+    }
+
+    // --- Map Access ---
+    /** Largest map the Entity[][] compatibility view will be built for. */
+    public static final int MAX_MAP_VIEW_SIZE = 1024;
+    /** Maps wider than this are printed in text mode as a window around the player. */
+    private static final int MAX_PRINTED_MAP_SIZE = 40;
+    private static final int PRINT_WINDOW_RADIUS = 10;
+
+    public int getMapSize() { return tiles.getSize(); }
+
+    /**
+     * Gets the packed tile storage behind this state's map.
+     * @return The TileMap.
+     */
+    public TileMap getTileMap() {
+        syncFromMapView();
+        return tiles;
+    }
+
+    /**
+     * Gets the bitboard view of the map, which is only kept for maps of up to {@link Bitboard#MAX_SIZE}.
+     * @return The live view, or null on a larger map.
+     */
+    public Bitboard getBitboard() {
+        syncFromMapView();
+        return tiles.getBitboard();
+    }
+
+    /**
+     * Counts the gold left on the map: a bit count on small maps, otherwise a pass over the
+     * non-empty cells.
+     * @return The number of gold tiles.
+     */
+    public int getGoldRemaining() {
+        Bitboard bits = getBitboard();
+        if (bits != null) return bits.goldRemaining();
+        int[] gold = {0};
+        tiles.forEachNonEmpty((cell, code) -> {
+            if (code == TileType.GOLD.getCode()) gold[0]++;
+        });
+        return gold[0];
+    }
+
+    /**
+     * Gets the type of tile at a cell.
+     * @param x The row.
+     * @param y The column.
+     * @return The tile type (EMPTY if nothing is there).
+     */
+    public TileType getTile(int x, int y) {
+        syncFromMapView();
+        return tiles.get(x, y);
+    }
+
+    /**
+     * Places a tile type at a cell, replacing whatever was there.
+     * @param x The row.
+     * @param y The column.
+     * @param type The tile type to place (EMPTY to clear the cell).
+     */
+    public void setTile(int x, int y, TileType type) {
+        syncFromMapView();
+        writeTile(x, y, type);
+    }
+
+    /**
+     * Empties every cell of the map.
+     */
+    public void clearMap() {
+        tiles.clear();
+        if (mapView != null) {
+            for (Entity[] row : mapView) Arrays.fill(row, null);
+        }
+    }
+
+    /**
+     * Compatibility view of the map as an Entity[][] indexed [x][y], with null for empty cells.
+     * The view is built on first use and kept in step with the packed map: changes made by the game
+     * appear in it, and entities written into it are picked up by the next GameState operation, which
+     * reads the whole view back while one exists. New code, and anything that visits many cells, should
+     * use {@link #getTileMap()} or {@link #getTile(int, int)} and {@link #setTile(int, int, TileType)}
+     * instead, which do not allocate.
+     * @return The live Entity[][] view.
+     * @throws IllegalStateException if the map is larger than {@link #MAX_MAP_VIEW_SIZE}, since a dense
+     * view of a huge sparse map would not fit in memory.
+     */
+    public Entity[][] getMap() {
+        if (mapView == null) {
+            int size = tiles.getSize();
+            if (size > MAX_MAP_VIEW_SIZE) {
+                throw new IllegalStateException("Map is too large for an Entity[][] view (" + size + "x" + size
+                        + "); use getTile() instead.");
+            }
+            mapView = new Entity[size][size];
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    mapView[x][y] = tiles.get(x, y).getEntity();
+                }
+            }
+        }
+        return mapView;
+    }
+
+    private void writeTile(int x, int y, TileType type) {
+        tiles.set(x, y, type);
+        if (mapView != null) {
+            mapView[x][y] = type.getEntity();
+        }
+    }
+
+    // Copies any entities a caller wrote into the compatibility view back into the packed map.
+    private void syncFromMapView() {
+        if (mapView == null) return;
+        for (int x = 0; x < mapView.length; x++) {
+            for (int y = 0; y < mapView.length; y++) {
+                TileType type = TileType.of(mapView[x][y]);
+                if (tiles.get(x, y) != type) {
+                    tiles.set(x, y, type);
+                }
+            }
+        }
     }
 
     // --- Accessors ---
-    public Entity[][] getMap() { return map; }
     public Player getPlayer() { return player; }
     public int getPlayerX() { return playerX; }
     public int getPlayerY() { return playerY; }
@@ -54,6 +267,19 @@ public class GameState implements Serializable {
     public int getDifficulty() { return difficulty; }
     public boolean hasReachedLadderThisTurn() { return ladderReachedThisTurn; }
 
+    /**
+     * Gets what killed the player, if the player has died on this level.
+     * @return The cause of death, or null while the player is alive.
+     */
+    public DeathCause getDeathCause() { return deathCause; }
+
+    /**
+     * Gets the random source for this game. Level generation and ranged attacks both draw from it,
+     * so a game started from a known seed plays out identically for the same moves.
+     * @return The game's random source.
+     */
+    public DungeonRandom getRandom() { return random; }
+
     // --- Mutators ---
     public void setPlayer(Player player) {
         this.player = Objects.requireNonNull(player, "Player cannot be null in GameState.");
@@ -93,22 +319,40 @@ public class GameState implements Serializable {
         this.steps = 0;
         this.difficulty = newDifficulty;
         this.ladderReachedThisTurn = false;
-        this.turnMessages.clear();
+        this.turnEvents.clear();
+    }
+
+    // Restores the per-turn flags that have no public setter (used by GameStateCodec)
+    void restoreTurnOutcome(boolean ladderReachedThisTurn, DeathCause deathCause) {
+        this.ladderReachedThisTurn = ladderReachedThisTurn;
+        this.deathCause = deathCause;
     }
 
     // --- Message Handling ---
     public void addTurnMessage(String message) {
         if (message != null && !message.trim().isEmpty()) {
-            this.turnMessages.add(message);
+            this.turnEvents.add(TurnEvent.MESSAGE, message);
         }
     }
 
+    /**
+     * Gets the events recorded since the last clear, without formatting them.
+     * @return The live event buffer; it is reused, so read it before the next move.
+     */
+    public TurnEvents getTurnEvents() {
+        return turnEvents;
+    }
+
+    /**
+     * Formats the events recorded since the last clear into messages, then clears them.
+     * @return The messages, in the order they happened.
+     */
     public List<String> getAndClearTurnMessages() {
-        if (turnMessages.isEmpty()) {
+        if (turnEvents.isEmpty()) {
             return List.of();
         }
-        List<String> currentMessages = new ArrayList<>(turnMessages);
-        turnMessages.clear();
+        List<String> currentMessages = turnEvents.formatAll();
+        turnEvents.clear();
         return currentMessages;
     }
 
@@ -116,32 +360,35 @@ public class GameState implements Serializable {
     public void movePlayer(Direction dir) {
         Objects.requireNonNull(dir, "Direction cannot be null for movePlayer.");
         if (player == null || !player.isAlive()) {
-            addTurnMessage("Cannot move, player is not active or null.");
+            turnEvents.add(TurnEvent.CANNOT_MOVE);
             return;
         }
 
         ladderReachedThisTurn = false;
-        turnMessages.clear(); // Clear messages for this new move action
+        turnEvents.clear(); // Clear messages for this new move action
 
         int newX = playerX + dir.dx;
         int newY = playerY + dir.dy;
 
-        if (newX >= 0 && newX < map.length && newY >= 0 && newY < map.length) { // Check bounds
-            Entity entityOnNewCell = map[newX][newY];
+        syncFromMapView();
+        if (tiles.inBounds(newX, newY)) { // Check bounds
+            Entity entityOnNewCell = tiles.get(newX, newY).getEntity();
             setPlayerPosition(newX, newY);
             steps++;
-            addTurnMessage("You moved " + dir.name().toLowerCase() + ".");
+            turnEvents.add(TurnEvent.MOVED, dir.ordinal(), 0);
 
             if (entityOnNewCell != null) {
-                String interactionMessage = entityOnNewCell.interact(player);
-                addTurnMessage(interactionMessage);
+                turnEvents.add(TurnEvent.INTERACTION, entityOnNewCell.interact(player)); // A constant message
 
                 if (entityOnNewCell instanceof Ladder) {
                     ladderReachedThisTurn = true;
                 } else if (entityOnNewCell instanceof Trap) {
-                    if (!player.isAlive()) addTurnMessage("The trap was fatal!");
+                    if (!player.isAlive()) turnEvents.add(TurnEvent.TRAP_FATAL);
                 } else {
-                    map[newX][newY] = null; // Remove other consumables/defeated items
+                    writeTile(newX, newY, TileType.EMPTY); // Remove other consumables/defeated items
+                }
+                if (!player.isAlive()) {
+                    deathCause = DeathCause.fromEntity(entityOnNewCell);
                 }
             }
 
@@ -149,41 +396,74 @@ public class GameState implements Serializable {
                 checkForRangedMutantAttacks();
             }
         } else {
-            addTurnMessage("Invalid move: you tried to move out of bounds.");
+            turnEvents.add(TurnEvent.OUT_OF_BOUNDS);
         }
     }
 
     private void checkForRangedMutantAttacks() {
         if (player == null) return;
-        for (int r = 0; r < map.length; r++) {
-            for (int c = 0; c < map[r].length; c++) {
-                if (map[r][c] instanceof RangedMutant mutant) {
-                    if (mutant.canAttack(playerX, playerY, r, c)) {
-                        if (mutant.tryAttack()) {
-                            player.adjustHp(-2);
-                            addTurnMessage("A ranged mutant at (" + r + "," + c + ") hit you! -2 HP.");
-                            if (!player.isAlive()) {
-                                addTurnMessage("The ranged attack was fatal!");
-                                return;
-                            }
-                        } else {
-                            addTurnMessage("A ranged mutant at (" + r + "," + c + ") attacked but missed.");
-                        }
-                    }
+        Bitboard bits = tiles.getBitboard();
+        if (bits != null) {
+            // Bits run in row-major order, the order attacks have always been resolved in
+            int size = bits.getSize();
+            for (Bitboard.Cells threats = bits.threatsTo(playerX, playerY); !threats.isEmpty(); threats = threats.withoutFirst()) {
+                int cell = threats.first();
+                if (resolveRangedAttack(cell / size, cell % size)) return;
+            }
+            return;
+        }
+        // Only a mutant inside the attack cross around the player can hit, so probe just those cells
+        // (in row-major order, the order attacks have always been resolved in).
+        int range = RangedMutant.ATTACK_RANGE;
+        for (int dx = -range; dx <= range; dx++) {
+            if (dx != 0) {
+                if (resolveRangedAttack(playerX + dx, playerY)) return;
+            } else {
+                for (int dy = -range; dy <= range; dy++) {
+                    if (dy != 0 && resolveRangedAttack(playerX, playerY + dy)) return;
                 }
             }
         }
     }
 
+    /**
+     * Lets the ranged mutant at (r, c), if there is one, attack the player.
+     * @return true if the attack was fatal.
+     */
+    private boolean resolveRangedAttack(int r, int c) {
+        if (!tiles.inBounds(r, c) || tiles.get(r, c) != TileType.RANGED_MUTANT) return false;
+        RangedMutant mutant = (RangedMutant) TileType.RANGED_MUTANT.getEntity();
+        if (mutant.tryAttack(random)) {
+            player.adjustHp(-2);
+            turnEvents.add(TurnEvent.RANGED_HIT, r, c);
+            if (!player.isAlive()) {
+                deathCause = DeathCause.RANGED_MUTANT;
+                turnEvents.add(TurnEvent.RANGED_FATAL);
+                return true;
+            }
+        } else {
+            turnEvents.add(TurnEvent.RANGED_MISS, r, c);
+        }
+        return false;
+    }
+
     // --- Text-Mode Display Utility ---
     public void printMap() {
-        for (int r = 0; r < map.length; r++) {
-            for (int c = 0; c < map[r].length; c++) {
-                if (r == playerX && c == playerY) System.out.print("P ");
-                else if (map[r][c] != null) System.out.print(map[r][c].getSymbol() + " ");
-                else System.out.print(". ");
-            }
-            System.out.println();
+        syncFromMapView();
+        int size = tiles.getSize();
+        int fromX = 0, toX = size, fromY = 0, toY = size;
+        if (size > MAX_PRINTED_MAP_SIZE) { // Show only the area around the player on huge maps
+            fromX = Math.max(0, playerX - PRINT_WINDOW_RADIUS);
+            toX = Math.min(size, playerX + PRINT_WINDOW_RADIUS + 1);
+            fromY = Math.max(0, playerY - PRINT_WINDOW_RADIUS);
+            toY = Math.min(size, playerY + PRINT_WINDOW_RADIUS + 1);
+            System.out.printf("Rows %d-%d, columns %d-%d of %dx%d:%n", fromX, toX - 1, fromY, toY - 1, size, size);
+        }
+        StringBuilder out = new StringBuilder((toX - fromX) * (2 * (toY - fromY) + 1));
+        for (int r = fromX; r < toX; r++) {
+            tiles.appendRow(r, fromY, toY, r == playerX ? playerY : -1, out);
+            out.append(System.lineSeparator());
         }
+        System.out.print(out);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,276 @@
+/** Compact, versioned binary format for saved games.
+ * Replaces Java serialization of the whole GameState graph: only the values needed to rebuild a
+ * game are written, small numbers take one byte, and the map is stored as its non-empty tiles.
+ * Tiles are listed in "block order": the map is cut into B x B blocks (the TileMap chunks), blocks are
+ * taken row by row and cells row by row within a block. That is the order TileMap can visit its
+ * allocated chunks in, and on a crowded map most tiles fit in a single byte.
+ *
+ * Layout (version 1):
+ *   "MDSV" magic, 1 version byte
+ *   varints: map size, level, difficulty, steps, player x, player y
+ *   1 flags byte (bit 0 ladder reached this turn, bit 1 has player), 1 death cause byte (0 = none, else ordinal + 1)
+ *   if has player: varint HP, zigzag varint score
+ *   random source: 8-byte state, 8-byte gamma
+ *   tiles: varint block size B, then one varlong per non-empty tile, (gap << 4) | tile code, where gap
+ *          counts the empty cells skipped since the previous tile in block order, then a 0 byte (code EMPTY) to end
+ *   CRC32 of everything above, 4 bytes big-endian
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public final class GameStateCodec {
+
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'M', 'D', 'S', 'V'};
+    private static final int HEADER_SIZE = MAGIC.length + 1;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int FLAG_LADDER_REACHED = 1;
+    private static final int FLAG_HAS_PLAYER = 2;
+    private static final int CODE_BITS = 4; // Room for 16 tile types
+    private static final int CODE_MASK = (1 << CODE_BITS) - 1;
+    private static final int END_OF_TILES = 0; // TileType.EMPTY's code, which is never listed
+    private static final DeathCause[] DEATH_CAUSES = DeathCause.values();
+    private static final TileType[] TILE_TYPES = TileType.values();
+
+    private GameStateCodec() {
+    }
+
+    /**
+     * Checks whether some bytes start like a save written by this codec (of any version).
+     * @param data The file contents.
+     * @return true if the data starts with the codec's magic number.
+     */
+    public static boolean isCodecFormat(byte[] data) {
+        return data.length >= MAGIC.length && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Encodes a game state.
+     * @param state The state to encode.
+     * @return The encoded bytes, including header and checksum.
+     */
+    public static byte[] encode(GameState state) {
+        TileMap tiles = state.getTileMap();
+        Output out = new Output(256);
+        out.bytes(MAGIC);
+        out.raw(VERSION);
+
+        out.varint(tiles.getSize());
+        out.varint(state.getLevel());
+        out.varint(state.getDifficulty());
+        out.varint(state.getSteps());
+        out.varint(state.getPlayerX());
+        out.varint(state.getPlayerY());
+        Player player = state.getPlayer();
+        out.raw((state.hasReachedLadderThisTurn() ? FLAG_LADDER_REACHED : 0) | (player != null ? FLAG_HAS_PLAYER : 0));
+        out.raw(state.getDeathCause() == null ? 0 : state.getDeathCause().ordinal() + 1);
+        if (player != null) {
+            out.varint(player.getHp());
+            out.varlong(zigzag(player.getScore()));
+        }
+        out.fixed64(state.getRandom().getState());
+        out.fixed64(state.getRandom().getGamma());
+
+        out.varint(tiles.getChunkSize()); // The map's chunk order is the format's block order
+        long[] previous = {-1};
+        tiles.forEachNonEmpty((cell, code) -> {
+            out.varlong((cell - previous[0] - 1) << CODE_BITS | code);
+            previous[0] = cell;
+        });
+        out.raw(END_OF_TILES);
+
+        CRC32 crc = new CRC32();
+        crc.update(out.buffer, 0, out.length);
+        out.fixed32((int) crc.getValue());
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a game state written by {@link #encode(GameState)}.
+     * @param data The encoded bytes.
+     * @return The rebuilt state, with an empty turn event buffer.
+     * @throws IOException if the data is not a codec save, is from a newer version, is corrupt or is truncated.
+     */
+    public static GameState decode(byte[] data) throws IOException {
+        if (!isCodecFormat(data) || data.length < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new IOException("Not a MiniDungeon save file.");
+        }
+        int version = data[MAGIC.length] & 0xFF;
+        if (version > VERSION) {
+            throw new IOException("Save file version " + version + " is newer than this game supports (" + VERSION + ").");
+        }
+        int bodyEnd = data.length - CHECKSUM_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, bodyEnd);
+        if ((int) crc.getValue() != new Input(data, bodyEnd, data.length).fixed32()) {
+            throw new IOException("Save file is corrupt (checksum mismatch).");
+        }
+        try {
+            return decodeBody(new Input(data, HEADER_SIZE, bodyEnd));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Save file is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    private static GameState decodeBody(Input in) throws IOException {
+        int size = in.varint();
+        int level = in.varint();
+        int difficulty = in.varint();
+        int steps = in.varint();
+        int playerX = in.varint();
+        int playerY = in.varint();
+        int flags = in.raw();
+        int deathCode = in.raw();
+        Player player = null;
+        if ((flags & FLAG_HAS_PLAYER) != 0) {
+            player = new Player(playerX, playerY);
+            player.setHp(in.varint());
+            player.setScore((int) unzigzag(in.varlong()));
+        }
+        DungeonRandom random = DungeonRandom.restore(in.fixed64(), in.fixed64());
+
+        GameState state = new GameState(size, difficulty, random);
+        if (!state.getTileMap().inBounds(playerX, playerY)) {
+            throw new IOException("Save file is corrupt: player is off the map.");
+        }
+        state.setLevel(level);
+        state.setSteps(steps);
+        if (player != null) state.setPlayer(player);
+        state.setPlayerPosition(playerX, playerY);
+        if (deathCode > DEATH_CAUSES.length) {
+            throw new IOException("Save file is corrupt: unknown death cause.");
+        }
+        DeathCause deathCause = deathCode == 0 ? null : DEATH_CAUSES[deathCode - 1];
+        state.restoreTurnOutcome((flags & FLAG_LADDER_REACHED) != 0, deathCause);
+
+        int blockSize = in.varint();
+        if (blockSize < 1 || blockSize > size) {
+            throw new IOException("Save file is corrupt: bad block size.");
+        }
+        int blocksPerSide = (size + blockSize - 1) / blockSize;
+        long blockCells = (long) blockSize * blockSize;
+        long index = -1;
+        for (long entry = in.varlong(); entry != END_OF_TILES; entry = in.varlong()) {
+            index += (entry >>> CODE_BITS) + 1;
+            int code = (int) (entry & CODE_MASK);
+            long block = index / blockCells;
+            int within = (int) (index % blockCells);
+            if (index < 0 || block >= (long) blocksPerSide * blocksPerSide || code == END_OF_TILES || code >= TILE_TYPES.length) {
+                throw new IOException("Save file is corrupt: bad tile entry.");
+            }
+            int x = (int) (block / blocksPerSide) * blockSize + within / blockSize;
+            int y = (int) (block % blocksPerSide) * blockSize + within % blockSize;
+            if (x >= size || y >= size) {
+                throw new IOException("Save file is corrupt: tile outside the map.");
+            }
+            state.setTile(x, y, TILE_TYPES[code]);
+        }
+        if (in.position != in.limit) {
+            throw new IOException("Save file is corrupt: unexpected trailing data.");
+        }
+        return state;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Growable byte buffer with varint writers. */
+    private static final class Output {
+        byte[] buffer;
+        int length;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void raw(int b) {
+            if (length == buffer.length) buffer = Arrays.copyOf(buffer, length * 2);
+            buffer[length++] = (byte) b;
+        }
+
+        void bytes(byte[] bytes) {
+            for (byte b : bytes) raw(b);
+        }
+
+        void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        void varlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                raw((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            raw((int) value);
+        }
+
+        void fixed32(int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) raw(value >>> shift);
+        }
+
+        void fixed64(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) raw((int) (value >>> shift));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+
+    /** Bounds-checked reader over part of a byte array. */
+    private static final class Input {
+        final byte[] data;
+        final int limit;
+        int position;
+
+        Input(byte[] data, int position, int limit) {
+            this.data = data;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        int raw() throws IOException {
+            if (position >= limit) throw new IOException("Save file is truncated.");
+            return data[position++] & 0xFF;
+        }
+
+        int varint() throws IOException {
+            long value = varlong();
+            if (value > Integer.MAX_VALUE) throw new IOException("Save file is corrupt: value out of range.");
+            return (int) value;
+        }
+
+        long varlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = raw();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Save file is corrupt: varint too long.");
+        }
+
+        int fixed32() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) value = (value << 8) | raw();
+            return value;
+        }
+
+        long fixed64() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) value = (value << 8) | raw();
+            return value;
+        }
+    }
+}
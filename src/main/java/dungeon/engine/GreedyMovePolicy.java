@@ -0,0 +1,112 @@
+/** Move policy that walks to the nearest worthwhile item, then heads for the ladder
+ * before it runs out of steps. Paths are found by breadth-first search and avoid traps
+ * (and melee mutants when HP is low) whenever another route exists.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.Arrays;
+
+public class GreedyMovePolicy implements MovePolicy {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int LOW_HP = 4;
+    private static final int DRINK_POTION_HP = 6;
+
+    // BFS buffers, reused between moves. Instances are not thread-safe; use one per worker.
+    private int[] dist = new int[0];
+    private byte[] firstMove = new byte[0];
+    private int[] queue = new int[0];
+
+    @Override
+    public Direction chooseMove(GameState state, int stepsRemaining) {
+        boolean lowHp = state.getPlayer().getHp() <= LOW_HP;
+        Direction move = search(state, stepsRemaining, true, lowHp);
+        if (move == null) {
+            move = search(state, stepsRemaining, false, false); // Nothing safe is reachable, accept hazards
+        }
+        return move != null ? move : firstInBounds(state);
+    }
+
+    private Direction search(GameState state, int stepsRemaining, boolean avoidHazards, boolean lowHp) {
+        int size = state.getMapSize();
+        int cells = size * size;
+        if (dist.length < cells) {
+            dist = new int[cells];
+            firstMove = new byte[cells];
+            queue = new int[cells];
+        }
+        Arrays.fill(dist, 0, cells, -1);
+
+        int start = state.getPlayerX() * size + state.getPlayerY();
+        int hp = state.getPlayer().getHp();
+        dist[start] = 0;
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        int ladder = -1;
+        int target = -1;
+        TileMap tiles = state.getTileMap();
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell / size, y = cell % size;
+            TileType tile = tiles.get(x, y);
+            if (cell != start) {
+                if (tile == TileType.LADDER) {
+                    if (ladder < 0) ladder = cell;
+                } else if (target < 0 && isWorthVisiting(tile, hp, lowHp)) {
+                    target = cell;
+                }
+            }
+            for (Direction dir : DIRECTIONS) {
+                int nx = x + dir.dx, ny = y + dir.dy;
+                if (nx < 0 || nx >= size || ny < 0 || ny >= size) continue;
+                int next = nx * size + ny;
+                if (dist[next] >= 0) continue;
+                if (avoidHazards && isHazard(tiles.get(nx, ny), lowHp)) continue;
+                dist[next] = dist[cell] + 1;
+                firstMove[next] = (byte) (cell == start ? dir.ordinal() : firstMove[cell]);
+                queue[tail++] = next;
+            }
+        }
+
+        if (ladder >= 0 && (target < 0 || stepsRemaining - dist[ladder] <= 1)) {
+            return DIRECTIONS[firstMove[ladder]];
+        }
+        if (target >= 0) {
+            boolean canStillEscape = ladder < 0
+                    || dist[target] + manhattan(target, ladder, size) < stepsRemaining;
+            return DIRECTIONS[firstMove[canStillEscape ? target : ladder]];
+        }
+        return null;
+    }
+
+    private static boolean isWorthVisiting(TileType tile, int hp, boolean lowHp) {
+        return switch (tile) {
+            case GOLD, RANGED_MUTANT -> true;
+            case MELEE_MUTANT -> !lowHp;
+            case HEALTH_POTION -> hp <= DRINK_POTION_HP;
+            default -> false;
+        };
+    }
+
+    private static boolean isHazard(TileType tile, boolean lowHp) {
+        return tile == TileType.TRAP || (lowHp && tile == TileType.MELEE_MUTANT);
+    }
+
+    private static int manhattan(int a, int b, int size) {
+        return Math.abs(a / size - b / size) + Math.abs(a % size - b % size);
+    }
+
+    private static Direction firstInBounds(GameState state) {
+        int size = state.getMapSize();
+        for (Direction dir : DIRECTIONS) {
+            int x = state.getPlayerX() + dir.dx;
+            int y = state.getPlayerY() + dir.dy;
+            if (x >= 0 && x < size && y >= 0 && y < size) return dir;
+        }
+        return Direction.UP; // Unreachable on any map larger than 1x1
+    }
+}
@@ -0,0 +1,139 @@
+/** Works out the best next move for the player in the background, so the game never waits for it.
+ * Each analysis deepens: it solves the level exactly (see {@link LevelSolver}) looking only as far
+ * ahead as the shortest way to the ladder, then 2, 4, 8 and so on moves further, up to every step
+ * left. Short horizons are solved almost at once, so a first hint appears straight away, and each
+ * longer one that finds a better route replaces it. A route only counts if the player survives it
+ * even when every ranged mutant hits; when there is none, the hint is the auto-player's best guess
+ * (see {@link MctsMovePolicy}) instead.
+ *
+ * A new analysis replaces the one before: the solver checks every few thousand states whether it
+ * is still wanted and gives up if not, and a hint from a replaced analysis that is already on its
+ * way to the listener is dropped there rather than delivered.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
+
+public final class HintService implements Closeable {
+
+    private final Executor publisher;
+    private final Consumer<Hint> listener;
+    private final ExecutorService worker;
+    private final AtomicLong generation = new AtomicLong(); // Bumped by every new analysis and by cancel()
+    private Future<?> running;
+
+    /**
+     * A suggested move.
+     * @param move The move to make.
+     * @param safe Whether the move starts a route that reaches the ladder alive even if every ranged
+     *             mutant hits. If not, the move is only the auto-player's best guess and score and hp are -1.
+     * @param score The score on reaching the ladder by that route.
+     * @param hp The HP left on reaching the ladder, at worst.
+     * @param horizon How many moves ahead the route was looked for.
+     * @param complete Whether the analysis has finished, so no better hint will follow.
+     */
+    public record Hint(Direction move, boolean safe, int score, int hp, int horizon, boolean complete) {
+    }
+
+    /**
+     * Creates a hint service with its own worker thread.
+     * @param publisher Runs the listener, e.g. Platform::runLater for a JavaFX frontend.
+     * @param listener Receives each hint, on the publisher.
+     */
+    public HintService(Executor publisher, Consumer<Hint> listener) {
+        this.publisher = Objects.requireNonNull(publisher, "Publisher cannot be null.");
+        this.listener = Objects.requireNonNull(listener, "Listener cannot be null.");
+        this.worker = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "dungeon-hints");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts analysing a position, abandoning any analysis still running. Returns at once; the
+     * analysis works on its own copy of the game. Call from one thread at a time, such as the FX thread.
+     * @param state The game to find a move in.
+     * @param stepsRemaining How many steps the player has left on this level.
+     */
+    public void analyse(GameState state, int stepsRemaining) {
+        long analysis = generation.incrementAndGet();
+        GameState position = state.fork();
+        if (running != null) running.cancel(false); // In case it has not started yet
+        running = worker.submit(() -> run(position, stepsRemaining, analysis));
+    }
+
+    /**
+     * Abandons the analysis in progress, if any; none of its hints will be delivered after this.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        if (running != null) running.cancel(false);
+    }
+
+    /**
+     * Abandons any analysis and stops the worker thread.
+     */
+    @Override
+    public void close() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private void run(GameState position, int stepsRemaining, long analysis) {
+        BooleanSupplier cancelled = () -> generation.get() != analysis;
+        int maxBudget = stepsRemaining - 1; // The ladder has to be reached before the last step ends the game
+        try {
+            int shortest = LevelValidator.safeRouteLength(position, maxBudget); // Leaves out ranged mutants, so never too far
+            LevelSolver.Solution best = null;
+            if (shortest > 0) {
+                for (int extra = 0, horizon = shortest; ; extra = Math.max(2, extra * 2), horizon = Math.min(maxBudget, shortest + extra)) {
+                    LevelSolver.Solution solution = LevelSolver.solve(position, horizon, cancelled);
+                    boolean complete = horizon == maxBudget;
+                    if (solution != null && (best == null || solution.score() > best.score())) {
+                        best = solution;
+                        publish(analysis, new Hint(best.moves().get(0), true, best.score(), best.hp(), horizon, complete));
+                    } else if (complete && best != null) {
+                        publish(analysis, new Hint(best.moves().get(0), true, best.score(), best.hp(), horizon, true));
+                    }
+                    if (complete) break;
+                }
+            }
+            if (best == null && !cancelled.getAsBoolean()) {
+                publish(analysis, guess(position, stepsRemaining));
+            }
+        } catch (CancellationException e) {
+            // Replaced by a newer analysis
+        } catch (IllegalArgumentException e) {
+            // Too many items within reach to solve exactly, as on a crowded huge map
+            Diagnostics.event(Category.ENGINE, Level.DEBUG, "HintService: {}", e.getMessage());
+            if (!cancelled.getAsBoolean()) publish(analysis, guess(position, stepsRemaining));
+        }
+    }
+
+    private static Hint guess(GameState position, int stepsRemaining) {
+        Direction move = new MctsMovePolicy(position.getRandom().copy().nextLong()).chooseMove(position, stepsRemaining);
+        return new Hint(move, false, -1, -1, stepsRemaining - 1, true);
+    }
+
+    private void publish(long analysis, Hint hint) {
+        publisher.execute(() -> {
+            if (generation.get() == analysis) listener.accept(hint);
+        });
+    }
+}
@@ -0,0 +1,794 @@
+/** Finds the best score a level allows: the highest-scoring way to reach the ladder alive in time.
+ * A search state is (position, HP, collected items), the items being a bitmask over the gold, mutants
+ * and potions within reach; traps stay, so they are part of the map rather than the mask. Ranged
+ * mutants hit at random, so every attack is assumed to land: a solution is one the player survives
+ * whatever the dice do, and the HP it reports is the least the player can end with.
+ *
+ * The search is one best-first branch and bound. Each state carries an upper bound on the items it
+ * can still end with, and states are expanded highest bound first, then by moves made plus a lower
+ * bound on the moves still needed, as in A*. So the first arrival at the ladder that meets its bound
+ * is the best score by the shortest route to it; an arrival that falls short is kept as the best so
+ * far, and states that cannot beat it are dropped. One table of seen states (open addressing over
+ * packed keys) serves the whole search: a state is dropped if the same position was reached with
+ * the same items, or those and one more, in no more moves with at least as much HP.
+ *
+ * The bound on items is mostly a bound on HP. A melee mutant costs a hit, a ranged mutant costs the
+ * hit it lands as the player walks up to it, and every item costs a hit per ranged mutant that can
+ * hit its tile and is never killed. Two ranged mutants two tiles apart cost a hit more between them,
+ * as whichever is killed first is shot from the other's tile. Ranged mutants with no tile in common
+ * are independent, so the least HP for each number of items is worked out for each group by trying
+ * every choice of which of its ranged mutants to kill, and the groups are then combined. That
+ * depends only on the items left, so it is worked out once per set of items; so is how many potions
+ * a route short of HP must drink. The moves still needed are bounded by the walk to each item from
+ * the nearest place it could be reached from, and by a minimum spanning tree over the items and ladder.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+public final class LevelSolver {
+
+    /** Most collectable items a search can track; generated levels have at most 20 within reach. */
+    public static final int MAX_ITEMS = 32;
+    /** Longest route a search can take. */
+    public static final int MAX_MOVES = 10_000;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int DAMAGE = 2;      // Trap, melee mutant and ranged mutant hits alike
+    private static final int POTION_HP = 4;
+    private static final int ITEM_SCORE = 2;  // Gold and both kinds of mutant
+    private static final int CANCEL_CHECK_MASK = 4095; // A cancellable solve checks once per 4096 states
+    private static final int UNAFFORDABLE = Integer.MAX_VALUE / 4; // Leaves room to add two without overflow
+
+    /**
+     * The best route through a level.
+     * @param score The player's score on reaching the ladder.
+     * @param hp The player's HP on reaching the ladder if every ranged attack hits.
+     * @param moves The moves to make, in order.
+     * @param statesExplored How many search states were expanded.
+     */
+    public record Solution(int score, int hp, List<Direction> moves, long statesExplored) {
+    }
+
+    // The level within reach, in window coordinates: cell = (x - x0) * width + (y - y0)
+    private final int x0, y0, width, height;
+    private final TileType[] tiles;
+    private final int[] itemIndex;       // Bit of the item on each cell, or -1
+    private final long[] rangedThreats;  // Bits of the ranged mutants that can hit each cell
+    private final int[] fixedThreats;    // Ranged mutants out of reach that can hit each cell
+    private final int[] ladderDistance;  // Moves from each cell to the nearest ladder
+    private final int[] itemX, itemY, itemToLadder; // Per item bit: window position and moves on to the ladder
+    private final TileType[] itemTiles;
+    private final int[] itemThreats;     // Per item bit: bits of the other ranged mutants that can hit its tile
+    private final int[] farRanged;       // Per ranged mutant bit: bits of the ranged mutants two tiles away in line
+    private final int[][] nearestItems;  // Per item bit: the other items, nearest first, as distance << 8 | bit
+    private final int allItems;
+    private final int scoringItems;      // Bits of the items worth points
+    private final int maxHp;
+    // What survey() found around a state, for estimate(): the items that can be reached in time
+    private int surveyX, surveyY, free, costly, potions, reachable, drinkable, walkedSets;
+    private final int[] nearest = new int[MAX_ITEMS];    // Moves to each scoring item and on to the ladder, sorted
+    private final int[][] walkSums = new int[2][MAX_ITEMS]; // Per set walked, without and with potions: walks summed shortest first
+    private final int[] potionSums = new int[MAX_ITEMS];
+    private final int[] firstWalk = new int[2], onwardWalk = new int[2];
+    private final int[] walkScratch = new int[MAX_ITEMS];
+    private final int[] potionScratch = new int[MAX_ITEMS];
+    private final int[] edgeScratch = new int[MAX_ITEMS];
+    private final int[] treeScratch = new int[MAX_ITEMS];
+    private final int[] nodeScratch = new int[MAX_ITEMS];
+    private final int[] costScratch = new int[MAX_ITEMS];
+    private final int[] groupScratch = new int[MAX_ITEMS];
+    private final Map<Integer, int[][]> hpCosts = new HashMap<>(); // Per mask: the least costs with potions drunk, then without
+    private int lastCostMask = -1;
+    private int[][] lastCosts;
+    private final Map<Integer, int[]> treeWalks = new HashMap<>();
+    private int lastTreeItems = -1;
+    private int[] lastTreeWalks;
+    private int boundMoves; // The moves still needed, as bound() last estimated them
+    private BooleanSupplier cancelled = () -> false;
+
+    private LevelSolver(GameState state, int moveBudget) {
+        int size = state.getMapSize();
+        int px = state.getPlayerX(), py = state.getPlayerY();
+        // Nothing further than moveBudget away matters, however large the map; ranged mutants count up to ATTACK_RANGE beyond that
+        int reach = moveBudget + RangedMutant.ATTACK_RANGE;
+        x0 = Math.max(0, px - reach);
+        y0 = Math.max(0, py - reach);
+        height = Math.min(size, px + reach + 1) - x0;
+        width = Math.min(size, py + reach + 1) - y0;
+        int cells = height * width;
+        tiles = new TileType[cells];
+        itemIndex = new int[cells];
+        rangedThreats = new long[cells];
+        fixedThreats = new int[cells];
+        Arrays.fill(itemIndex, -1);
+
+        List<Integer> items = new ArrayList<>();
+        int scoring = 0;
+        TileMap map = state.getTileMap();
+        for (int cell = 0; cell < cells; cell++) {
+            int x = x0 + cell / width, y = y0 + cell % width;
+            TileType tile = map.get(x, y);
+            tiles[cell] = tile;
+            boolean collectable = tile == TileType.GOLD || tile == TileType.MELEE_MUTANT
+                    || tile == TileType.RANGED_MUTANT || tile == TileType.HEALTH_POTION;
+            if (!collectable || Math.abs(x - px) + Math.abs(y - py) > moveBudget) continue;
+            if (items.size() == MAX_ITEMS) {
+                throw new IllegalArgumentException("More than " + MAX_ITEMS + " items within reach; too many to solve exactly.");
+            }
+            itemIndex[cell] = items.size();
+            if (tile != TileType.HEALTH_POTION) scoring |= 1 << items.size();
+            items.add(cell);
+        }
+        itemX = new int[items.size()];
+        itemY = new int[items.size()];
+        itemToLadder = new int[items.size()];
+        itemTiles = new TileType[items.size()];
+        itemThreats = new int[items.size()];
+        farRanged = new int[items.size()];
+        nearestItems = new int[items.size()][];
+        allItems = (int) ((1L << items.size()) - 1);
+        scoringItems = scoring;
+        maxHp = state.getPlayer().getMaxHp();
+
+        for (int cell = 0; cell < cells; cell++) {
+            if (tiles[cell] != TileType.RANGED_MUTANT) continue;
+            int mx = cell / width, my = cell % width;
+            for (int d = -RangedMutant.ATTACK_RANGE; d <= RangedMutant.ATTACK_RANGE; d++) {
+                if (d == 0) continue;
+                addThreat(cell, mx + d, my);
+                addThreat(cell, mx, my + d);
+            }
+        }
+        ladderDistance = ladderDistances();
+        for (int bit = 0; bit < items.size(); bit++) {
+            int cell = items.get(bit);
+            itemX[bit] = cell / width;
+            itemY[bit] = cell % width;
+            itemToLadder[bit] = ladderDistance[cell];
+            itemTiles[bit] = tiles[cell];
+            itemThreats[bit] = (int) rangedThreats[cell] & ~(1 << bit);
+        }
+        for (int bit = 0; bit < items.size(); bit++) {
+            for (int other = 0; other < items.size(); other++) {
+                if (itemTiles[bit] == TileType.RANGED_MUTANT && itemTiles[other] == TileType.RANGED_MUTANT
+                        && distance(bit, other) == 2 && (itemX[bit] == itemX[other] || itemY[bit] == itemY[other])) {
+                    farRanged[bit] |= 1 << other;
+                }
+            }
+            int from = bit;
+            nearestItems[bit] = IntStream.range(0, items.size())
+                    .filter(other -> other != from)
+                    .map(other -> distance(from, other) << 8 | other)
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    private int distance(int bit, int other) {
+        return Math.abs(itemX[bit] - itemX[other]) + Math.abs(itemY[bit] - itemY[other]);
+    }
+
+    private void addThreat(int mutantCell, int x, int y) {
+        if (x < 0 || x >= height || y < 0 || y >= width) return;
+        int cell = x * width + y;
+        int bit = itemIndex[mutantCell];
+        if (bit >= 0) rangedThreats[cell] |= 1L << bit;
+        else fixedThreats[cell]++;
+    }
+
+    // Every tile can be walked on, so BFS from all ladders at once gives plain grid distances
+    private int[] ladderDistances() {
+        int[] dist = new int[tiles.length];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        int[] queue = new int[tiles.length];
+        int head = 0, tail = 0;
+        for (int cell = 0; cell < tiles.length; cell++) {
+            if (tiles[cell] == TileType.LADDER) {
+                dist[cell] = 0;
+                queue[tail++] = cell;
+            }
+        }
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell / width, y = cell % width;
+            for (Direction dir : DIRECTIONS) {
+                int nx = x + dir.dx, ny = y + dir.dy;
+                if (nx < 0 || nx >= height || ny < 0 || ny >= width) continue;
+                int next = nx * width + ny;
+                if (dist[next] != Integer.MAX_VALUE) continue;
+                dist[next] = dist[cell] + 1;
+                queue[tail++] = next;
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Solves the level an engine's game is on, with the steps the game has left. The ladder has to
+     * be reached before the last step runs out, as a game that reaches its step limit is over.
+     * @param engine The engine, with a game in progress.
+     * @return The best route, or null if no route reaches the ladder alive in time.
+     */
+    public static Solution solve(GameEngine engine) {
+        GameState state = engine.getState();
+        return solve(state, engine.getMaxSteps() - state.getSteps() - 1);
+    }
+
+    /**
+     * Solves a level from the player's current position, HP and score.
+     * @param state The level; only read.
+     * @param moveBudget The most moves the route may take.
+     * @return The best route, or null if no route reaches the ladder alive within the budget.
+     * @throws IllegalArgumentException if moveBudget is over {@link #MAX_MOVES}, or more than
+     *         {@link #MAX_ITEMS} items are within reach.
+     */
+    public static Solution solve(GameState state, int moveBudget) {
+        return solve(state, moveBudget, () -> false);
+    }
+
+    /**
+     * Solves a level like {@link #solve(GameState, int)}, giving up as soon as it is no longer wanted.
+     * @param cancelled Checked every few thousand states.
+     * @throws CancellationException once cancelled reports true.
+     */
+    static Solution solve(GameState state, int moveBudget, BooleanSupplier cancelled) {
+        Objects.requireNonNull(state, "State cannot be null.");
+        if (moveBudget > MAX_MOVES) throw new IllegalArgumentException("Move budget must be at most " + MAX_MOVES + ".");
+        Player player = state.getPlayer();
+        if (player == null || !player.isAlive() || moveBudget <= 0) return null;
+        LevelSolver solver = new LevelSolver(state, moveBudget);
+        solver.cancelled = cancelled;
+        return solver.search(state, moveBudget);
+    }
+
+    // Best-first on the bound, then on moves made plus moves still needed: while the state taken has
+    // the highest bound left, an arrival that meets it cannot be beaten, nor reached in fewer moves
+    private Solution search(GameState state, int moveBudget) {
+        Player player = state.getPlayer();
+        int start = (state.getPlayerX() - x0) * width + (state.getPlayerY() - y0);
+        int most = bound(start, 0, player.getHp(), moveBudget, MAX_ITEMS);
+        Nodes nodes = new Nodes();
+        StateTable seen = new StateTable(maxHp);
+        Buckets[] open = new Buckets[most + 1]; // One per bound, made when first needed
+        open[most] = new Buckets(moveBudget + 1);
+        nodes.add(key(0, start), player.getHp(), 0, -1, 0, most);
+        seen.offer(key(0, start), player.getHp(), 0);
+        open[most].push(boundMoves, 0);
+
+        int bestItems = -1, best = -1;
+        long explored = 0;
+        for (int top = most, popped = 1; ; popped++) {
+            while (top >= 0 && (open[top] == null || open[top].isEmpty())) top--;
+            // Nothing left, or nothing that can beat the best arrival or reach its score in fewer moves
+            if (top < 0 || top < bestItems || top == bestItems && nodes.depth[best] <= open[top].shortest()) break;
+            if ((popped & CANCEL_CHECK_MASK) == 0 && cancelled.getAsBoolean()) throw new CancellationException();
+            int node = open[top].pop();
+            long key = nodes.keys[node];
+            int hp = nodes.hp[node];
+            int moves = nodes.depth[node];
+            int mask = (int) (key >>> 32);
+            int cell = (int) key;
+            if (seen.dominated(key, hp, moves) || takenFurther(seen, mask, cell, hp, moves)) continue;
+            explored++;
+            int movesLeft = moveBudget - moves - 1;
+            int x = cell / width, y = cell % width;
+            for (Direction dir : DIRECTIONS) {
+                int nx = x + dir.dx, ny = y + dir.dy;
+                if (nx < 0 || nx >= height || ny < 0 || ny >= width) continue;
+                int next = nx * width + ny;
+                if (ladderDistance[next] > movesLeft) continue; // Could not get back to the ladder in time
+
+                int nextMask = mask;
+                int nextHp = hp;
+                int bit = itemIndex[next];
+                boolean taken = bit >= 0 && (mask & 1 << bit) != 0;
+                switch (taken ? TileType.EMPTY : tiles[next]) {
+                    case TRAP, MELEE_MUTANT -> nextHp -= DAMAGE;
+                    case HEALTH_POTION -> nextHp = Math.min(nextHp + POTION_HP, maxHp);
+                    default -> {
+                    }
+                }
+                if (bit >= 0) nextMask |= 1 << bit;
+                if (nextHp <= 0) continue;
+                nextHp -= DAMAGE * (Long.bitCount(rangedThreats[next] & ~(nextMask & 0xFFFFFFFFL)) + fixedThreats[next]);
+                if (nextHp <= 0) continue;
+
+                if (tiles[next] == TileType.LADDER) { // Reaching the ladder ends the level
+                    int items = Integer.bitCount(nextMask & scoringItems);
+                    if (items < bestItems || items == bestItems && moves + 1 >= nodes.depth[best]) continue;
+                    nodes.add(key(nextMask, next), nextHp, moves + 1, node, dir.ordinal(), items);
+                    bestItems = items;
+                    best = nodes.size - 1;
+                    if (items == top) return solution(state, nodes, best, explored);
+                    continue;
+                }
+                long nextKey = key(nextMask, next);
+                if (!seen.offer(nextKey, nextHp, moves + 1)) continue;
+                int nextBound = bound(next, nextMask, nextHp, movesLeft, top);
+                if (nextBound < bestItems || nextBound == bestItems && moves + 1 + boundMoves >= nodes.depth[best]) continue;
+                nodes.add(nextKey, nextHp, moves + 1, node, dir.ordinal(), nextBound);
+                if (open[nextBound] == null) open[nextBound] = new Buckets(moveBudget + 1);
+                open[nextBound].push(moves + 1 + boundMoves, nodes.size - 1);
+            }
+        }
+        return best < 0 ? null : solution(state, nodes, best, explored);
+    }
+
+    private Solution solution(GameState state, Nodes nodes, int last, long explored) {
+        int items = nodes.bound[last];
+        return new Solution(state.getPlayer().getScore() + ITEM_SCORE * items, nodes.hp[last],
+                route(nodes, last, nodes.depth[last]), explored);
+    }
+
+    // Whether the same tile was reached with one more item, other than a potion, in no more moves and
+    // with at least as much HP: that state can follow any route from this one and end no worse
+    private boolean takenFurther(StateTable seen, int mask, int cell, int hp, int moves) {
+        for (int left = ~mask & scoringItems; left != 0; left &= left - 1) {
+            if (seen.reached(key(mask | Integer.lowestOneBit(left), cell), hp, moves)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The most scoring items a route from a state can end with, at most most, setting boundMoves to
+     * a lower bound on the moves such a route takes. A route collecting more than the HP allows, or
+     * than can be collected in the moves left, is not counted.
+     */
+    private int bound(int cell, int mask, int hp, int movesLeft, int most) {
+        int x = cell / width, y = cell % width;
+        int collected = Integer.bitCount(mask & scoringItems);
+        int[][] costs = hpCosts(mask);
+        int[] drinking = costs[0], dry = costs[1];
+        int budget = hp - 1 + DAMAGE * adjacentRanged(x, y, mask);
+        int items = Math.min(most - collected, drinking.length - 1);
+        while (items > 0 && drinking[items] > budget) items--;
+        if (items > 0) survey(x, y, mask, movesLeft);
+        for (; items > 0; items--) {
+            // A potion gives back at most POTION_HP, so a route short of HP without them has to drink enough
+            int potions = Math.max(0, (dry[items] - budget + POTION_HP - 1) / POTION_HP);
+            boundMoves = estimate(hp, movesLeft, items, potions);
+            if (boundMoves <= movesLeft) return collected + items;
+        }
+        boundMoves = ladderDistance[cell];
+        return collected;
+    }
+
+    // Ranged mutants left next to (x, y): the player is already where they are walked up to from
+    private int adjacentRanged(int x, int y, int mask) {
+        int count = 0;
+        for (Direction dir : DIRECTIONS) {
+            int nx = x + dir.dx, ny = y + dir.dy;
+            if (nx < 0 || nx >= height || ny < 0 || ny >= width) continue;
+            int bit = itemIndex[nx * width + ny];
+            if (bit >= 0 && (mask & 1 << bit) == 0 && itemTiles[bit] == TileType.RANGED_MUTANT) count++;
+        }
+        return count;
+    }
+
+    // Finds the items left that can be reached from (x, y) with time to get on to the ladder
+    private void survey(int x, int y, int mask, int movesLeft) {
+        surveyX = x;
+        surveyY = y;
+        free = costly = potions = reachable = drinkable = walkedSets = 0;
+        int count = 0;
+        for (int left = ~mask & allItems; left != 0; left &= left - 1) {
+            int bit = Integer.numberOfTrailingZeros(left);
+            int distance = Math.abs(itemX[bit] - x) + Math.abs(itemY[bit] - y);
+            int moves = distance + itemToLadder[bit];
+            if (moves > movesLeft) continue;
+            switch (itemTiles[bit]) {
+                case GOLD -> free++;
+                case MELEE_MUTANT -> costly++;
+                case RANGED_MUTANT -> {
+                    if (distance == 1) free++;
+                    else costly++;
+                }
+                default -> {
+                    potions++;
+                    drinkable |= 1 << bit;
+                    continue; // Scores nothing
+                }
+            }
+            reachable |= 1 << bit;
+            int i = count++;
+            while (i > 0 && nearest[i - 1] > moves) {
+                nearest[i] = nearest[i - 1];
+                i--;
+            }
+            nearest[i] = moves;
+        }
+    }
+
+    /**
+     * A lower bound on the moves from the state surveyed to the ladder that collect at least needed
+     * more scoring items and drink at least potionsNeeded potions, or more than movesLeft if they
+     * cannot be collected. An item counts only if it can be reached with time to get from it to the
+     * ladder. Every melee mutant, and every ranged mutant not already next to the player, costs at
+     * least one hit to take, so only as many of those count as HP plus the reachable potions allow.
+     * The route passes through the needed-th nearest item left, so it is at least as long as the moves
+     * to that item plus the moves from it to the ladder. It also walks to each item it visits from the
+     * player or from another one, and on from the last one to the ladder, so it is at least as long as
+     * the shortest such walks plus the shortest way on. Leaving out its first walk, it joins the items
+     * it visits and the ladder, so that part is no shorter than that many edges of a minimum spanning
+     * tree over them, the shortest ones.
+     */
+    private int estimate(int hp, int movesLeft, int needed, int potionsNeeded) {
+        int affordable = (hp - 1 + POTION_HP * potions) / DAMAGE;
+        if (free + Math.min(costly, affordable) < needed || potions < potionsNeeded) return Integer.MAX_VALUE;
+        if (nearest[needed - 1] > movesLeft) return nearest[needed - 1];
+
+        int set = potionsNeeded > 0 ? 1 : 0;
+        if ((walkedSets & 1 << set) == 0) walk(set);
+        int moves = onwardWalk[set] + walkSums[set][needed - 1] + (potionsNeeded > 0 ? potionSums[potionsNeeded - 1] : 0);
+        int visited = set == 1 ? reachable | drinkable : reachable;
+        moves = Math.max(moves, firstWalk[set] + treeWalks(visited)[needed + potionsNeeded - 1]);
+        return Math.max(moves, nearest[needed - 1]);
+    }
+
+    // The walks to the items surveyed, each from the player or the nearest other item, for the scoring
+    // items alone (set 0) or with the potions too (set 1)
+    private void walk(int set) {
+        int visited = set == 1 ? reachable | drinkable : reachable;
+        int scoring = 0, drunk = 0, first = Integer.MAX_VALUE, onward = Integer.MAX_VALUE;
+        for (int left = visited; left != 0; left &= left - 1) {
+            int bit = Integer.numberOfTrailingZeros(left);
+            int walk = Math.abs(itemX[bit] - surveyX) + Math.abs(itemY[bit] - surveyY);
+            first = Math.min(first, walk);
+            onward = Math.min(onward, itemToLadder[bit]);
+            for (int other : nearestItems[bit]) {
+                if (other >>> 8 >= walk) break;
+                if ((visited & 1 << (other & 0xFF)) != 0) {
+                    walk = other >>> 8;
+                    break;
+                }
+            }
+            if ((drinkable & 1 << bit) == 0) walkScratch[scoring++] = walk;
+            else potionScratch[drunk++] = walk;
+        }
+        sumShortest(walkScratch, scoring, walkSums[set]);
+        sumShortest(potionScratch, drunk, potionSums);
+        firstWalk[set] = first;
+        onwardWalk[set] = onward;
+        walkedSets |= 1 << set;
+    }
+
+    // Sorts the first n walks and sums them into sums, entry i holding the i + 1 shortest
+    private static void sumShortest(int[] walks, int n, int[] sums) {
+        Arrays.sort(walks, 0, n);
+        for (int i = 0, total = 0; i < n; i++) sums[i] = total += walks[i];
+    }
+
+    /**
+     * The edges of a minimum spanning tree over the items and the ladder, summed shortest first: entry
+     * n is the total of the n + 1 shortest. It depends only on the items, so each set is worked out once.
+     */
+    private int[] treeWalks(int items) {
+        if (items == lastTreeItems) return lastTreeWalks;
+        int[] sums = treeWalks.get(items);
+        if (sums == null) {
+            int[] nodes = nodeScratch, dist = treeScratch, edges = edgeScratch;
+            int n = 0;
+            for (int left = items; left != 0; left &= left - 1) {
+                nodes[n] = Integer.numberOfTrailingZeros(left);
+                dist[n] = itemToLadder[nodes[n]]; // Grown from the ladder
+                n++;
+            }
+            int outside = (int) ((1L << n) - 1);
+            for (int e = 0; e < n; e++) {
+                int next = -1;
+                for (int left = outside; left != 0; left &= left - 1) {
+                    int i = Integer.numberOfTrailingZeros(left);
+                    if (next < 0 || dist[i] < dist[next]) next = i;
+                }
+                outside &= ~(1 << next);
+                edges[e] = dist[next];
+                for (int left = outside; left != 0; left &= left - 1) {
+                    int i = Integer.numberOfTrailingZeros(left);
+                    dist[i] = Math.min(dist[i], distance(nodes[i], nodes[next]));
+                }
+            }
+            Arrays.sort(edges, 0, n);
+            sums = new int[n];
+            for (int e = 0, total = 0; e < n; e++) sums[e] = total += edges[e];
+            treeWalks.put(items, sums);
+        }
+        lastTreeItems = items;
+        lastTreeWalks = sums;
+        return sums;
+    }
+
+    /**
+     * The least HP collecting exactly n more scoring items can cost, for each n; more than any HP if
+     * n cannot be collected. Potions the route may drink count as negative costs in the first array
+     * and are left out of the second.
+     */
+    private int[][] hpCosts(int mask) {
+        if (mask == lastCostMask) return lastCosts;
+        int[][] costs = hpCosts.get(mask);
+        if (costs == null) {
+            costs = leastCosts(~mask & allItems);
+            hpCosts.put(mask, costs);
+        }
+        lastCostMask = mask;
+        lastCosts = costs;
+        return costs;
+    }
+
+    private int[][] leastCosts(int left) {
+        int ranged = 0;
+        for (int rest = left; rest != 0; rest &= rest - 1) {
+            int bit = Integer.numberOfTrailingZeros(rest);
+            if (itemTiles[bit] == TileType.RANGED_MUTANT) ranged |= 1 << bit;
+        }
+        // Groups the ranged mutants that can hit one another or the same item
+        int[] groups = groupScratch;
+        int count = 0;
+        for (int rest = left; rest != 0; rest &= rest - 1) {
+            int bit = Integer.numberOfTrailingZeros(rest);
+            int linked = itemThreats[bit] & ranged | (ranged & 1 << bit);
+            if (linked == 0) continue;
+            int merged = linked, kept = 0;
+            for (int g = 0; g < count; g++) {
+                if ((groups[g] & linked) != 0) merged |= groups[g];
+                else groups[kept++] = groups[g];
+            }
+            groups[kept] = merged;
+            count = kept + 1;
+        }
+        int[][] costs = {{0}, {0}};
+        int unthreatened = left;
+        for (int g = 0; g < count; g++) {
+            int members = groups[g];
+            for (int rest = left & ~ranged; rest != 0; rest &= rest - 1) {
+                int bit = Integer.numberOfTrailingZeros(rest);
+                if ((itemThreats[bit] & groups[g]) != 0) members |= 1 << bit;
+            }
+            unthreatened &= ~members;
+            costs = combine(costs, groupCosts(groups[g], members));
+        }
+        return combine(costs, groupCosts(0, unthreatened));
+    }
+
+    // The least HP for each number of scoring items among members, with potions drunk and without,
+    // trying every choice of which of the group's ranged mutants to kill; the rest stay alive all the way
+    private int[][] groupCosts(int group, int members) {
+        int[][] least = new int[2][Integer.bitCount(members & scoringItems) + 1];
+        Arrays.fill(least[0], UNAFFORDABLE);
+        Arrays.fill(least[1], UNAFFORDABLE);
+        int[] costs = costScratch;
+        for (int killed = group; ; killed = (killed - 1) & group) {
+            int alive = group & ~killed;
+            int spent = 0, drunk = 0, items = Integer.bitCount(killed), n = 0;
+            for (int rest = members; rest != 0; rest &= rest - 1) {
+                int bit = Integer.numberOfTrailingZeros(rest);
+                int hits = fixedThreats[itemX[bit] * width + itemY[bit]] + Integer.bitCount(itemThreats[bit] & alive);
+                switch (itemTiles[bit]) {
+                    case HEALTH_POTION -> drunk += Math.max(0, POTION_HP - DAMAGE * hits);
+                    case RANGED_MUTANT -> {
+                        if ((killed & 1 << bit) == 0) continue;
+                        // Each pair two tiles apart is counted once, from its higher bit
+                        spent += DAMAGE * (1 + hits + Integer.bitCount(farRanged[bit] & killed & (1 << bit) - 1));
+                    }
+                    case MELEE_MUTANT -> costs[n++] = DAMAGE * (1 + hits);
+                    default -> costs[n++] = DAMAGE * hits;
+                }
+            }
+            Arrays.sort(costs, 0, n);
+            for (int i = 0; i <= n; i++) {
+                if (i > 0) spent += costs[i - 1];
+                least[0][items + i] = Math.min(least[0][items + i], spent - drunk);
+                least[1][items + i] = Math.min(least[1][items + i], spent);
+            }
+            if (killed == 0) return least;
+        }
+    }
+
+    // The least cost of each number of items taken from two independent groups, with potions drunk and without
+    private static int[][] combine(int[][] a, int[][] b) {
+        return new int[][] {combine(a[0], b[0]), combine(a[1], b[1])};
+    }
+
+    private static int[] combine(int[] a, int[] b) {
+        int[] least = new int[a.length + b.length - 1];
+        Arrays.fill(least, UNAFFORDABLE);
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                if (a[i] != UNAFFORDABLE && b[j] != UNAFFORDABLE) least[i + j] = Math.min(least[i + j], a[i] + b[j]);
+            }
+        }
+        return least;
+    }
+
+    private static List<Direction> route(Nodes nodes, int last, int length) {
+        Direction[] route = new Direction[length];
+        for (int node = last, i = length - 1; i >= 0; node = nodes.parents[node], i--) {
+            route[i] = DIRECTIONS[nodes.moves[node]];
+        }
+        return List.of(route);
+    }
+
+    private static long key(int mask, int cell) {
+        return (long) mask << 32 | cell;
+    }
+
+    /** The search tree, one entry per state in the order they were reached. */
+    private static final class Nodes {
+        long[] keys = new long[1024];
+        byte[] hp = new byte[1024];
+        short[] depth = new short[1024];
+        int[] parents = new int[1024];
+        byte[] moves = new byte[1024];
+        byte[] bound = new byte[1024]; // Most scoring items a route on can end with; those it ends with at the ladder
+        int size;
+
+        void add(long key, int hp, int depth, int parent, int move, int bound) {
+            if (size == keys.length) {
+                int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                this.hp = Arrays.copyOf(this.hp, capacity);
+                this.depth = Arrays.copyOf(this.depth, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                moves = Arrays.copyOf(moves, capacity);
+                this.bound = Arrays.copyOf(this.bound, capacity);
+            }
+            keys[size] = key;
+            this.hp[size] = (byte) hp;
+            this.depth[size] = (short) depth;
+            parents[size] = parent;
+            moves[size] = (byte) move;
+            this.bound[size] = (byte) bound;
+            size++;
+        }
+    }
+
+    /** Nodes waiting to be expanded, one stack per estimated route length. */
+    private static final class Buckets {
+        private final int[][] stacks;
+        private final int[] sizes;
+        private int lowest;
+
+        Buckets(int lengths) {
+            stacks = new int[lengths][];
+            sizes = new int[lengths];
+        }
+
+        void push(int length, int node) {
+            if (stacks[length] == null) stacks[length] = new int[64];
+            if (sizes[length] == stacks[length].length) stacks[length] = Arrays.copyOf(stacks[length], sizes[length] * 2);
+            stacks[length][sizes[length]++] = node;
+            lowest = Math.min(lowest, length);
+        }
+
+        boolean isEmpty() {
+            while (lowest < sizes.length && sizes[lowest] == 0) lowest++;
+            return lowest == sizes.length;
+        }
+
+        /** The shortest estimated route length waiting; call only when not empty. */
+        int shortest() {
+            return lowest;
+        }
+
+        // Newest first within a length, so the search dives towards the ladder instead of widening
+        int pop() {
+            for (; lowest < sizes.length; lowest++) {
+                if (sizes[lowest] > 0) return stacks[lowest][--sizes[lowest]];
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The fewest moves each (items, cell) key has been reached in, for each HP: open addressing with
+     * linear probing, kept at most half full. Per key it stores, for every h, the fewest moves of any
+     * arrival with at least h HP, so a dominance check is one lookup.
+     */
+    private static final class StateTable {
+        private static final long EMPTY = -1L; // Not a key: cells never use the top bits of the low word
+
+        private final int levels;
+        private long[] keys = new long[1 << 12];
+        private short[] fewestMoves;
+        private int size;
+
+        StateTable(int maxHp) {
+            levels = maxHp + 1;
+            fewestMoves = new short[keys.length * levels];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        /** Whether key was reached in fewer moves with at least hp HP. */
+        boolean dominated(long key, int hp, int moves) {
+            int slot = find(key);
+            int fewest = fewestMoves[slot * levels + hp];
+            return keys[slot] == key && fewest != 0 && fewest - 1 < moves;
+        }
+
+        /** Whether key was reached in no more moves with at least hp HP. */
+        boolean reached(long key, int hp, int moves) {
+            int slot = find(key);
+            int fewest = fewestMoves[slot * levels + hp];
+            return keys[slot] == key && fewest != 0 && fewest - 1 <= moves;
+        }
+
+        /** Records an arrival unless one in no more moves with at least as much HP is known; returns whether it was recorded. */
+        boolean offer(long key, int hp, int moves) {
+            int slot = find(key);
+            if (keys[slot] != key) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    grow();
+                    slot = find(key);
+                }
+            }
+            // Stored as moves + 1, so the zero a new slot starts with means never reached
+            int base = slot * levels;
+            int stored = moves + 1;
+            int fewest = fewestMoves[base + hp];
+            if (fewest != 0 && fewest <= stored) return false;
+            for (int h = hp; h >= 0 && (fewestMoves[base + h] == 0 || fewestMoves[base + h] > stored); h--) {
+                fewestMoves[base + h] = (short) stored;
+            }
+            return true;
+        }
+
+        private int find(long key) {
+            int slot = slot(key, keys.length);
+            while (keys[slot] != key && keys[slot] != EMPTY) slot = (slot + 1) & (keys.length - 1);
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            short[] oldMoves = fewestMoves;
+            keys = new long[oldKeys.length * 2];
+            fewestMoves = new short[keys.length * levels];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                System.arraycopy(oldMoves, i * levels, fewestMoves, slot * levels, levels);
+            }
+        }
+
+        private static int slot(long key, int capacity) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ hash >>> 32) & (capacity - 1);
+        }
+    }
+
+    /**
+     * Solves the first level of a seeded game from the command line.
+     * Usage: LevelSolver [difficulty] [seed]
+     * @param args Optional difficulty (default 3) and seed (default 1).
+     */
+    public static void main(String[] args) {
+        int difficulty = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        GameEngine engine = GameEngine.headless(difficulty);
+        engine.startNewGame(seed);
+        engine.getState().printMap();
+        long started = System.nanoTime();
+        Solution solution = solve(engine);
+        long micros = (System.nanoTime() - started) / 1000;
+        if (solution == null) {
+            System.out.printf("No way to reach the ladder alive in time (%d us)%n", micros);
+            return;
+        }
+        System.out.printf("Best score %d with at least %d HP in %d moves (%d states, %d us): %s%n", solution.score(),
+                solution.hp(), solution.moves().size(), solution.statesExplored(), micros, solution.moves());
+    }
+}
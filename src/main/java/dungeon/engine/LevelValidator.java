@@ -0,0 +1,189 @@
+/** Checks that a freshly generated level can be won, and repairs one that cannot.
+ * A level is winnable if some route reaches the ladder before the steps run out without the traps
+ * and melee mutants on it taking all of the player's HP. Ranged mutants only ever might hit and
+ * potions are not counted on, so a level that passes can be won whatever the dice do.
+ *
+ * The check is a breadth-first search over (cell, hits taken): a cell is entered again only with
+ * fewer hits than any earlier, shorter visit, so each cell is visited at most once per hit the
+ * player can afford. Only cells within the step budget of the player are searched, so the cost is
+ * the same on a huge map as on one just large enough to hold that area. Maps with a {@link Bitboard}
+ * run the same search a whole move at a time instead, keeping one set of cells per hit count.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public final class LevelValidator {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int DAMAGE = 2; // A trap or a melee mutant
+
+    private LevelValidator() {
+    }
+
+    /**
+     * Finds the shortest route from the player to a ladder that the player survives.
+     * @param state The level; only read.
+     * @param moveBudget The most moves the route may take.
+     * @return The number of moves, or -1 if no such route exists.
+     */
+    public static int safeRouteLength(GameState state, int moveBudget) {
+        Objects.requireNonNull(state, "State cannot be null.");
+        Player player = state.getPlayer();
+        if (player == null || !player.isAlive() || moveBudget <= 0) return -1;
+        int affordable = (player.getHp() - 1) / DAMAGE; // Hits the player can take and live
+
+        int size = state.getMapSize();
+        int px = state.getPlayerX(), py = state.getPlayerY();
+        Bitboard bits = state.getBitboard();
+        if (bits != null) return floodFill(bits, px * size + py, affordable, moveBudget);
+
+        int x0 = Math.max(0, px - moveBudget), y0 = Math.max(0, py - moveBudget);
+        int height = Math.min(size, px + moveBudget + 1) - x0;
+        int width = Math.min(size, py + moveBudget + 1) - y0;
+        int cells = height * width;
+
+        byte[] fewestHits = new byte[cells]; // Stored as hits + 1, so 0 means not yet visited
+        int[] queue = new int[cells * (affordable + 1)]; // Entries are cell * (affordable + 1) + hits
+        int head = 0, tail = 0;
+        int start = (px - x0) * width + (py - y0);
+        fewestHits[start] = 1;
+        queue[tail++] = start * (affordable + 1);
+        TileMap tiles = state.getTileMap();
+
+        for (int moves = 1; moves <= moveBudget && head < tail; moves++) {
+            for (int layerEnd = tail; head < layerEnd; head++) {
+                int cell = queue[head] / (affordable + 1);
+                int hits = queue[head] % (affordable + 1);
+                int x = cell / width, y = cell % width;
+                for (Direction dir : DIRECTIONS) {
+                    int nx = x + dir.dx, ny = y + dir.dy;
+                    if (nx < 0 || nx >= height || ny < 0 || ny >= width) continue;
+                    int next = nx * width + ny;
+                    TileType tile = tiles.get(x0 + nx, y0 + ny);
+                    if (tile == TileType.LADDER) return moves;
+                    int nextHits = hits + (tile == TileType.TRAP || tile == TileType.MELEE_MUTANT ? 1 : 0);
+                    if (nextHits > affordable) continue;
+                    if (fewestHits[next] != 0 && fewestHits[next] <= nextHits + 1) continue; // Reached sooner with no more hits
+                    fewestHits[next] = (byte) (nextHits + 1);
+                    queue[tail++] = next * (affordable + 1) + nextHits;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // The search above on bitboards, as words: reached*[h] holds the cells reached on the last move
+    // with h hits and seen*[h] every cell reached so far with at most h, which a later visit must beat.
+    private static int floodFill(Bitboard bits, int start, int affordable, int moveBudget) {
+        Bitboard.Cells hazards = bits.cells(TileType.TRAP).or(bits.cells(TileType.MELEE_MUTANT));
+        Bitboard.Cells ladders = bits.cells(TileType.LADDER);
+        long hazardLow = hazards.low(), hazardHigh = hazards.high();
+        long ladderLow = ladders.low(), ladderHigh = ladders.high();
+        Bitboard.Cells startCell = Bitboard.Cells.of(start);
+        long[] reachedLow = new long[affordable + 1], reachedHigh = new long[affordable + 1];
+        long[] seenLow = new long[affordable + 1], seenHigh = new long[affordable + 1];
+        Arrays.fill(seenLow, startCell.low());
+        Arrays.fill(seenHigh, startCell.high());
+        reachedLow[0] = startCell.low();
+        reachedHigh[0] = startCell.high();
+
+        for (int moves = 1; moves <= moveBudget; moves++) {
+            boolean anyNew = false;
+            long seenSoFarLow = 0, seenSoFarHigh = 0;
+            long carryLow = 0, carryHigh = 0; // Hazard cells stepped onto with one hit fewer
+            for (int hits = 0; hits <= affordable; hits++) {
+                long stepLow = bits.neighboursLow(reachedLow[hits], reachedHigh[hits]);
+                long stepHigh = bits.neighboursHigh(reachedLow[hits], reachedHigh[hits]);
+                if (((stepLow & ladderLow) | (stepHigh & ladderHigh)) != 0) return moves;
+                long nextLow = (stepLow & ~hazardLow | carryLow) & ~seenLow[hits];
+                long nextHigh = (stepHigh & ~hazardHigh | carryHigh) & ~seenHigh[hits];
+                carryLow = stepLow & hazardLow;
+                carryHigh = stepHigh & hazardHigh;
+                reachedLow[hits] = nextLow;
+                reachedHigh[hits] = nextHigh;
+                seenSoFarLow |= nextLow;
+                seenSoFarHigh |= nextHigh;
+                seenLow[hits] |= seenSoFarLow;
+                seenHigh[hits] |= seenSoFarHigh;
+                anyNew |= (nextLow | nextHigh) != 0;
+            }
+            if (!anyNew) return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the player can reach a ladder alive within the budget.
+     * @param state The level; only read.
+     * @param moveBudget The most moves the route may take.
+     * @return Whether a survivable route exists.
+     */
+    public static boolean isWinnable(GameState state, int moveBudget) {
+        return safeRouteLength(state, moveBudget) >= 0;
+    }
+
+    /**
+     * Makes a level winnable with as few changes as possible: a ladder out of reach is moved to a
+     * random cell within the budget, then the traps and melee mutants on one shortest way to it are
+     * cleared, going along the row first and then the column.
+     * @param state The level to change.
+     * @param moveBudget The most moves the route may take.
+     * @param ladderCell The level's ladder as x * size + y, or -1 if it has none.
+     * @param random Picks where a moved ladder goes.
+     * @return false if the map is too small to hold a ladder away from the player.
+     */
+    static boolean repair(GameState state, int moveBudget, long ladderCell, DungeonRandom random) {
+        int size = state.getMapSize();
+        int px = state.getPlayerX(), py = state.getPlayerY();
+        int lx = ladderCell < 0 ? -1 : (int) (ladderCell / size);
+        int ly = ladderCell < 0 ? -1 : (int) (ladderCell % size);
+        if (ladderCell < 0 || Math.abs(lx - px) + Math.abs(ly - py) > moveBudget) {
+            int[] moved = pickLadderCell(state, moveBudget, random);
+            if (moved == null) return false;
+            if (ladderCell >= 0) state.setTile(lx, ly, TileType.EMPTY);
+            lx = moved[0];
+            ly = moved[1];
+            state.setTile(lx, ly, TileType.LADDER);
+        }
+        int x = px, y = py;
+        TileMap tiles = state.getTileMap();
+        while (x != lx || y != ly) {
+            if (y != ly) y += Integer.signum(ly - y);
+            else x += Integer.signum(lx - x);
+            TileType tile = tiles.get(x, y);
+            if (tile == TileType.TRAP || tile == TileType.MELEE_MUTANT) state.setTile(x, y, TileType.EMPTY);
+        }
+        return true;
+    }
+
+    // A random free cell within the budget that is not the player's, or null if there is none
+    private static int[] pickLadderCell(GameState state, int moveBudget, DungeonRandom random) {
+        int size = state.getMapSize();
+        int px = state.getPlayerX(), py = state.getPlayerY();
+        int x0 = Math.max(0, px - moveBudget), y0 = Math.max(0, py - moveBudget);
+        int height = Math.min(size, px + moveBudget + 1) - x0;
+        int width = Math.min(size, py + moveBudget + 1) - y0;
+        TileMap tiles = state.getTileMap();
+        // Draws are uniform over the window; tries enough that a usable cell is all but certain to be found, then scans
+        for (int tries = 0; tries < 64; tries++) {
+            int x = x0 + random.nextInt(height), y = y0 + random.nextInt(width);
+            if (isLadderCell(tiles, x, y, px, py, moveBudget)) return new int[]{x, y};
+        }
+        for (int x = x0; x < x0 + height; x++) {
+            for (int y = y0; y < y0 + width; y++) {
+                if (isLadderCell(tiles, x, y, px, py, moveBudget)) return new int[]{x, y};
+            }
+        }
+        return null;
+    }
+
+    private static boolean isLadderCell(TileMap tiles, int x, int y, int px, int py, int moveBudget) {
+        int distance = Math.abs(x - px) + Math.abs(y - py);
+        return distance > 0 && distance <= moveBudget && tiles.get(x, y) == TileType.EMPTY;
+    }
+}
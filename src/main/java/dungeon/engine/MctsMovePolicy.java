@@ -0,0 +1,390 @@
+/** Move policy that picks each move by Monte-Carlo tree search over the rest of the level.
+ * Every playout forks the current game with its own dice, so ranged mutants hit or miss as they
+ * would in play. It walks down the tree of moves tried so far (UCT: the best average result plus
+ * a bonus for moves tried less often), adds one new move, then finishes the level with a quick
+ * rollout: mostly straight to the nearest item there is still time for, otherwise a random step
+ * that prefers items and avoids hazards that would hurt too much, never straying so far that the
+ * ladder can no longer be reached in time. A playout is worth 0 if the player dies or runs out of
+ * steps, and 0.1 to 1 for reaching the ladder, more for the score gained (and, on Level 1, the HP
+ * carried into Level 2).
+ *
+ * Playouts run in parallel as fork-join tasks. The tree is shared without locks: children are
+ * added with compare-and-set, and visit counts and summed rewards are atomic counters. A visit is
+ * counted on the way down, before its reward is known, so threads in flight spread over different
+ * moves instead of all following the current best one.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class MctsMovePolicy implements MovePolicy {
+
+    /** Playouts per move unless another budget is given. */
+    public static final int DEFAULT_PLAYOUTS = 4000;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final double EXPLORATION = 0.3;
+    private static final long REWARD_SCALE = 1_000_000; // Rewards are summed as fixed-point longs, which add atomically
+    private static final double SURVIVAL_REWARD = 0.1;  // Any finish beats any death, but only just: the score is what counts
+    private static final double PERFECT_GAIN = 30;      // Score gained (plus HP kept on Level 1) worth the full reward
+    private static final int LADDER_SLACK = 8;          // Rollouts only step on the ladder once they have fewer spare steps
+    private static final int PLAYOUTS_PER_TASK = 32;
+    private static final int TARGET_ODDS = 4;           // 1 in this many rollout moves is random rather than towards an item
+
+    private final int playouts;
+    private final ForkJoinPool pool;
+    private final DungeonRandom seeds;
+    private volatile Search lastSearch;
+
+    /**
+     * The outcome of one move's search.
+     * @param move The move chosen: the one tried most often.
+     * @param playouts How many playouts were run.
+     * @param nanos How long the search took.
+     * @param value The chosen move's average playout reward, from 0 (always lost) to 1.
+     */
+    public record Search(Direction move, int playouts, long nanos, double value) {
+
+        public double playoutsPerSecond() {
+            return nanos == 0 ? 0 : playouts * 1e9 / nanos;
+        }
+    }
+
+    /**
+     * Creates a policy with the default budget on the common fork-join pool.
+     * @param seed Seed for the playouts' dice and choices.
+     */
+    public MctsMovePolicy(long seed) {
+        this(DEFAULT_PLAYOUTS, ForkJoinPool.commonPool(), seed);
+    }
+
+    /**
+     * Creates a policy. One instance should choose one move at a time; the parallelism is inside each search.
+     * @param playouts Playouts per move.
+     * @param pool The pool the playouts run on.
+     * @param seed Seed for the playouts' dice and choices.
+     * @throws IllegalArgumentException if playouts is not positive.
+     */
+    public MctsMovePolicy(int playouts, ForkJoinPool pool, long seed) {
+        if (playouts <= 0) {
+            throw new IllegalArgumentException("Playouts per move must be positive.");
+        }
+        this.playouts = playouts;
+        this.pool = Objects.requireNonNull(pool, "Pool cannot be null.");
+        this.seeds = new DungeonRandom(seed);
+    }
+
+    /**
+     * Gets the outcome of the last search this policy ran.
+     * @return The search, or null before the first move.
+     */
+    public Search getLastSearch() {
+        return lastSearch;
+    }
+
+    @Override
+    public Direction chooseMove(GameState state, int stepsRemaining) {
+        long started = System.nanoTime();
+        Tree tree = new Tree(state, stepsRemaining, seeds.nextLong());
+        pool.invoke(new Playouts(tree, 0, playouts));
+
+        Direction best = null;
+        long bestVisits = -1;
+        double bestValue = 0;
+        for (Direction dir : DIRECTIONS) {
+            if (!tree.inBounds(state, dir)) continue;
+            Node child = tree.root.children.get(dir.ordinal());
+            long visits = child == null ? 0 : child.visits.get();
+            if (visits > bestVisits) {
+                best = dir;
+                bestVisits = visits;
+                bestValue = child == null ? 0 : child.mean();
+            }
+        }
+        if (best == null) best = Direction.UP; // Unreachable on any map larger than 1x1
+        lastSearch = new Search(best, playouts, System.nanoTime() - started, bestValue);
+        return best;
+    }
+
+    // One position of the tree: a sequence of moves from the root, whatever the dice did along the way
+    private static final class Node {
+        final AtomicReferenceArray<Node> children = new AtomicReferenceArray<>(DIRECTIONS.length);
+        final AtomicLong visits = new AtomicLong();
+        final AtomicLong reward = new AtomicLong();
+
+        double mean() {
+            long n = visits.get();
+            return n == 0 ? 0 : (double) reward.get() / REWARD_SCALE / n;
+        }
+    }
+
+    // Everything one move's search shares between threads; only the nodes' counters ever change
+    private static final class Tree {
+        final Node root = new Node();
+        final GameState state;
+        final int maxSteps;
+        final int rootScore;
+        final long seed;
+        final int[] ladderX, ladderY;
+
+        Tree(GameState state, int stepsRemaining, long seed) {
+            this.state = state.fork();
+            this.maxSteps = state.getSteps() + stepsRemaining;
+            this.rootScore = state.getPlayer() == null ? 0 : state.getPlayer().getScore();
+            this.seed = seed;
+            int[][] ladders = findLadders(this.state);
+            this.ladderX = ladders[0];
+            this.ladderY = ladders[1];
+        }
+
+        // Ladder positions, from a pass over the non-empty cells (cells come in chunk order, see TileMap)
+        private static int[][] findLadders(GameState state) {
+            TileMap tiles = state.getTileMap();
+            int chunk = tiles.getChunkSize();
+            int chunksPerSide = (tiles.getSize() + chunk - 1) / chunk;
+            long chunkCells = (long) chunk * chunk;
+            List<int[]> found = new ArrayList<>();
+            tiles.forEachNonEmpty((cell, code) -> {
+                if (code != TileType.LADDER.getCode()) return;
+                int index = (int) (cell / chunkCells), offset = (int) (cell % chunkCells);
+                found.add(new int[]{index / chunksPerSide * chunk + offset / chunk, index % chunksPerSide * chunk + offset % chunk});
+            });
+            int[][] ladders = new int[2][found.size()];
+            for (int i = 0; i < found.size(); i++) {
+                ladders[0][i] = found.get(i)[0];
+                ladders[1][i] = found.get(i)[1];
+            }
+            return ladders;
+        }
+
+        boolean inBounds(GameState game, Direction dir) {
+            int x = game.getPlayerX() + dir.dx, y = game.getPlayerY() + dir.dy;
+            int size = game.getMapSize();
+            return x >= 0 && x < size && y >= 0 && y < size;
+        }
+
+        int ladderDistance(int x, int y) {
+            int best = Integer.MAX_VALUE;
+            for (int i = 0; i < ladderX.length; i++) {
+                best = Math.min(best, Math.abs(x - ladderX[i]) + Math.abs(y - ladderY[i]));
+            }
+            return best;
+        }
+
+        // The reward if the level has ended, or -1 while it goes on
+        double outcome(GameState game) {
+            Player player = game.getPlayer();
+            if (player == null || !player.isAlive() || game.getSteps() >= maxSteps) return 0;
+            if (game.hasReachedLadderThisTurn()) {
+                double gain = player.getScore() - rootScore + (game.getLevel() == 1 ? player.getHp() : 0);
+                return SURVIVAL_REWARD + (1 - SURVIVAL_REWARD) * Math.min(1, gain / PERFECT_GAIN);
+            }
+            if (ladderDistance(game.getPlayerX(), game.getPlayerY()) >= maxSteps - game.getSteps()) {
+                return 0; // Too far from the ladder to reach it before the last step
+            }
+            return -1;
+        }
+
+        // One playout: down the tree, one new node, a rollout, then the reward added along the path
+        void playout(DungeonRandom random, Node[] path, int[] weights) {
+            GameState game = state.fork(random);
+            Node node = root;
+            node.visits.incrementAndGet();
+            int depth = 0;
+            path[depth++] = node;
+            double reward;
+            while ((reward = outcome(game)) < 0) {
+                long parentVisits = node.visits.get();
+                Node best = null;
+                int bestMove = -1;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                boolean expanded = false;
+                for (Direction dir : DIRECTIONS) {
+                    if (!inBounds(game, dir)) continue;
+                    Node child = node.children.get(dir.ordinal());
+                    if (child == null) { // Try every move once before comparing them
+                        Node fresh = new Node();
+                        child = node.children.compareAndExchange(dir.ordinal(), null, fresh);
+                        best = child == null ? fresh : child;
+                        bestMove = dir.ordinal();
+                        expanded = true;
+                        break;
+                    }
+                    long visits = Math.max(1, child.visits.get());
+                    double score = child.mean() + EXPLORATION * Math.sqrt(Math.log(parentVisits) / visits);
+                    if (score > bestScore) {
+                        best = child;
+                        bestMove = dir.ordinal();
+                        bestScore = score;
+                    }
+                }
+                node = best;
+                node.visits.incrementAndGet();
+                path[depth++] = node;
+                game.movePlayer(DIRECTIONS[bestMove]);
+                if (expanded) {
+                    reward = outcome(game);
+                    if (reward < 0) reward = rollout(game, random, weights);
+                    break;
+                }
+            }
+            long fixed = Math.round(reward * REWARD_SCALE);
+            for (int i = 0; i < depth; i++) {
+                path[i].reward.addAndGet(fixed);
+            }
+        }
+
+        private double rollout(GameState game, DungeonRandom random, int[] weights) {
+            double reward;
+            while ((reward = outcome(game)) < 0) {
+                game.movePlayer(rolloutMove(game, random, weights));
+            }
+            return reward;
+        }
+
+        // A random move weighted towards items, which always leaves enough steps to reach the ladder
+        private Direction rolloutMove(GameState game, DungeonRandom random, int[] weights) {
+            int hp = game.getPlayer().getHp();
+            int stepsLeft = maxSteps - game.getSteps();
+            Bitboard bits = game.getBitboard();
+            if (bits != null && random.nextInt(TARGET_ODDS) != 0) {
+                Direction towards = towardsNearestItem(game, bits, hp, stepsLeft, random);
+                if (towards != null) return towards;
+            }
+            int total = 0;
+            Direction closest = null;
+            int closestDistance = Integer.MAX_VALUE;
+            TileMap tiles = game.getTileMap();
+            for (Direction dir : DIRECTIONS) {
+                weights[dir.ordinal()] = 0;
+                if (!inBounds(game, dir)) continue;
+                int x = game.getPlayerX() + dir.dx, y = game.getPlayerY() + dir.dy;
+                TileType tile = tiles.get(x, y);
+                int distance = ladderDistance(x, y);
+                if (distance < closestDistance) {
+                    closest = dir;
+                    closestDistance = distance;
+                }
+                if (tile != TileType.LADDER && distance > stepsLeft - 2) continue; // Could no longer get back in time
+                int weight = switch (tile) {
+                    case GOLD, RANGED_MUTANT -> 8;
+                    case MELEE_MUTANT -> hp > 4 ? 6 : 1;
+                    case HEALTH_POTION -> hp <= 6 ? 8 : 1;
+                    case TRAP -> hp > 2 ? 1 : 0;
+                    case LADDER -> stepsLeft - 1 - ladderDistance(game.getPlayerX(), game.getPlayerY()) > LADDER_SLACK ? 0 : 8;
+                    default -> 2;
+                };
+                weights[dir.ordinal()] = weight;
+                total += weight;
+            }
+            if (total == 0) return closest;
+            int pick = random.nextInt(total);
+            for (Direction dir : DIRECTIONS) {
+                pick -= weights[dir.ordinal()];
+                if (pick < 0) return dir;
+            }
+            return closest;
+        }
+
+        // A step towards the nearest item worth having that still leaves time to reach the ladder, or null if there is none
+        private Direction towardsNearestItem(GameState game, Bitboard bits, int hp, int stepsLeft, DungeonRandom random) {
+            Bitboard.Cells items = bits.cells(TileType.GOLD).or(bits.cells(TileType.RANGED_MUTANT));
+            if (hp > 4) items = items.or(bits.cells(TileType.MELEE_MUTANT));
+            if (hp <= 6) items = items.or(bits.cells(TileType.HEALTH_POTION));
+            int size = bits.getSize();
+            int px = game.getPlayerX(), py = game.getPlayerY();
+            int targetX = -1, targetY = -1, nearest = Integer.MAX_VALUE;
+            for (; !items.isEmpty(); items = items.withoutFirst()) {
+                int x = items.first() / size, y = items.first() % size;
+                int distance = Math.abs(x - px) + Math.abs(y - py);
+                if (distance < nearest && distance + ladderDistance(x, y) <= stepsLeft - 1) {
+                    targetX = x;
+                    targetY = y;
+                    nearest = distance;
+                }
+            }
+            if (targetX < 0) return null;
+            Direction chosen = null; // Picked at random among the ways closer, a way round a trap before one onto it
+            boolean chosenIsTrap = true;
+            int options = 0;
+            TileMap tiles = game.getTileMap();
+            for (Direction dir : DIRECTIONS) {
+                int x = px + dir.dx, y = py + dir.dy;
+                if (Math.abs(x - targetX) + Math.abs(y - targetY) >= nearest) continue;
+                boolean trap = tiles.get(x, y) == TileType.TRAP;
+                if (trap && !chosenIsTrap) continue;
+                if (!trap && chosenIsTrap) options = 0;
+                chosenIsTrap = trap;
+                if (random.nextInt(++options) == 0) chosen = dir;
+            }
+            return chosen;
+        }
+    }
+
+    // Splits a range of playouts in half until each task runs a few dozen on one worker
+    private static final class Playouts extends RecursiveAction {
+        private static final long serialVersionUID = 20250530L; // ForkJoinTask is Serializable; these never are
+        private final transient Tree tree;
+        private final int from, to;
+
+        Playouts(Tree tree, int from, int to) {
+            this.tree = tree;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PLAYOUTS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Playouts(tree, from, mid), new Playouts(tree, mid, to));
+                return;
+            }
+            DungeonRandom random = new DungeonRandom(tree.seed + from);
+            Node[] path = new Node[tree.maxSteps - tree.state.getSteps() + 2]; // A playout makes at most one move per step left
+            int[] weights = new int[DIRECTIONS.length]; // Rollout scratch
+            for (int i = from; i < to; i++) {
+                tree.playout(random, path, weights);
+            }
+        }
+    }
+
+    /**
+     * Plays seeded games from the command line and reports how the policy did and how fast it searched.
+     * Usage: MctsMovePolicy [games] [difficulty] [playoutsPerMove] [seed]
+     * @param args Optional games (default 20), difficulty (default 3), playouts per move (default 4000) and seed (default 1).
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int difficulty = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int playouts = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PLAYOUTS;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+
+        MctsMovePolicy mcts = new MctsMovePolicy(playouts, ForkJoinPool.commonPool(), seed);
+        long[] searched = new long[2]; // Playouts and nanoseconds over all moves
+        MovePolicy counting = (state, stepsRemaining) -> {
+            Direction move = mcts.chooseMove(state, stepsRemaining);
+            searched[0] += mcts.getLastSearch().playouts();
+            searched[1] += mcts.getLastSearch().nanos();
+            return move;
+        };
+        SimulationStats stats = new SimulationStats(difficulty);
+        GameEngine engine = GameEngine.headless(difficulty, seed);
+        for (int i = 0; i < games; i++) {
+            GameSimulator.playGame(engine, counting);
+            stats.record(engine);
+        }
+        System.out.println(stats);
+        System.out.printf("%d playouts in %.1f s on %d threads: %.0f playouts/s%n", searched[0], searched[1] / 1e9,
+                ForkJoinPool.commonPool().getParallelism(), searched[0] * 1e9 / Math.max(1, searched[1]));
+    }
+}
@@ -0,0 +1,272 @@
+/** Append-only journal of a game's moves, for crash-safe autosave.
+ * The file holds a checkpoint (the game encoded with GameStateCodec) followed by one byte per
+ * event since then: a move in some direction, or advancing to the next level. Since the game is
+ * fully determined by its state and random source, replaying those events on the checkpoint
+ * rebuilds the exact game, so recording a move costs one byte instead of a whole save.
+ *
+ * None of the file work happens on the caller's thread, which in the GUI is the FX thread: each
+ * event and checkpoint is encoded there and queued on the {@link AsyncPersistence} I/O thread, which
+ * writes them in order. An event is written as soon as that thread gets to it, so it survives the game
+ * process dying, and the file is forced to disk every few events (and on every level change), which
+ * bounds what a power loss can take. Every so often the journal is compacted into a fresh checkpoint,
+ * written to a temporary file and moved over the old one, so replay time stays bounded however long
+ * the game runs. A write that fails on the I/O thread is reported by the next call made on the journal.
+ *
+ * Layout: "MDJL" magic, 1 version byte, varint checkpoint length, checkpoint, then event bytes.
+ * Event bytes are never 0, so a tail of zeros left by a crash mid-write is recognised and ignored.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public final class MoveJournal implements Closeable {
+
+    public static final String DEFAULT_FILENAME = "minidungeon.journal";
+    /** Events between checkpoints; replaying this many moves takes well under a millisecond. */
+    public static final int CHECKPOINT_INTERVAL = 64;
+    /** Events between forcing the file to disk. */
+    public static final int SYNC_INTERVAL = 8;
+
+    private static final byte[] MAGIC = {'M', 'D', 'J', 'L'};
+    private static final int VERSION = 1;
+    private static final int MOVE = 0x10;       // | Direction ordinal
+    private static final int NEXT_LEVEL = 0x20;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * What a journal file holds: the game at its last checkpoint and the events recorded since.
+     * @param checkpoint The decoded checkpoint.
+     * @param events The event bytes, see {@link #isMove(byte)}, {@link #direction(byte)} and {@link #isNextLevel(byte)}.
+     */
+    public record Contents(GameState checkpoint, byte[] events) {
+    }
+
+    private final Path file;
+    private final AsyncPersistence io = AsyncPersistence.shared();
+    private final ByteBuffer event = ByteBuffer.allocate(1); // Reused for every event; I/O thread only
+    private FileChannel channel;        // I/O thread only
+    private int eventsSinceSync;        // I/O thread only
+    private int eventsSinceCheckpoint;  // Caller's thread only
+    private boolean closed;             // Caller's thread only
+    private volatile IOException failure; // The first write that failed on the I/O thread
+
+    private MoveJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Starts a journal for a game, replacing any journal already in the file once the I/O thread gets to it.
+     * @param file The journal file.
+     * @param state The game to checkpoint; encoded before this returns, so play can carry on at once.
+     * @return The open journal.
+     */
+    public static MoveJournal start(Path file, GameState state) {
+        MoveJournal journal = new MoveJournal(file);
+        journal.writeCheckpoint(state);
+        return journal;
+    }
+
+    /**
+     * Queues a move to be recorded. The file is forced to disk every {@link #SYNC_INTERVAL} events.
+     * @param direction The direction moved.
+     * @throws IOException if an earlier write failed, so the journal can no longer be trusted.
+     */
+    public void recordMove(Direction direction) throws IOException {
+        append(MOVE | direction.ordinal());
+    }
+
+    /**
+     * Queues advancing to the next level to be recorded, with the file forced to disk after it.
+     * @throws IOException if an earlier write failed.
+     */
+    public void recordNextLevel() throws IOException {
+        append(NEXT_LEVEL);
+        sync();
+    }
+
+    /**
+     * Checks whether enough events have been recorded that the game should be checkpointed.
+     * @return true once {@link #CHECKPOINT_INTERVAL} events have been recorded since the last checkpoint.
+     */
+    public boolean needsCheckpoint() {
+        return eventsSinceCheckpoint >= CHECKPOINT_INTERVAL;
+    }
+
+    /**
+     * Queues replacing the journal with a checkpoint of the game. The new file is written and forced
+     * beside the old one, then moved over it, so a crash at any point leaves one complete journal or
+     * the other. Events recorded after this call go into the new file.
+     * @param state The game, which must be the result of replaying this journal; encoded before this returns.
+     * @throws IOException if an earlier write failed.
+     */
+    public void checkpoint(GameState state) throws IOException {
+        checkOpen();
+        writeCheckpoint(state);
+        eventsSinceCheckpoint = 0;
+    }
+
+    private void writeCheckpoint(GameState state) {
+        byte[] encoded = GameStateCodec.encode(state);
+        ByteArrayOutputStream contents = new ByteArrayOutputStream(encoded.length + 16);
+        contents.writeBytes(MAGIC);
+        contents.write(VERSION);
+        for (int length = encoded.length; ; length >>>= 7) { // Varint length
+            if ((length & ~0x7F) == 0) {
+                contents.write(length);
+                break;
+            }
+            contents.write((length & 0x7F) | 0x80);
+        }
+        contents.writeBytes(encoded);
+        byte[] bytes = contents.toByteArray();
+
+        onIoThread(() -> {
+            if (channel != null) channel.close();
+            channel = null;
+            AsyncPersistence.writeAtomically(file, bytes);
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            eventsSinceSync = 0;
+        });
+    }
+
+    /**
+     * Queues forcing every recorded event to disk.
+     * @throws IOException if an earlier write failed.
+     */
+    public void sync() throws IOException {
+        checkOpen();
+        onIoThread(this::force);
+    }
+
+    /**
+     * Queues syncing and closing the journal, leaving the file for {@link #read(Path)}. Returns at once;
+     * anything queued on the I/O thread after this, such as deleting the file, runs once it is closed.
+     * @throws IOException if an earlier write failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        onIoThread(() -> {
+            if (channel == null) return;
+            try {
+                force();
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        });
+        IOException failed = failure;
+        if (failed != null) throw failed;
+    }
+
+    private void append(int code) throws IOException {
+        checkOpen();
+        eventsSinceCheckpoint++;
+        onIoThread(() -> {
+            event.clear();
+            event.put((byte) code).flip();
+            writeFully(channel, event);
+            if (++eventsSinceSync >= SYNC_INTERVAL) force();
+        });
+    }
+
+    private void force() throws IOException {
+        if (eventsSinceSync == 0) return;
+        channel.force(false);
+        eventsSinceSync = 0;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) throw new IOException("Journal is closed.");
+        IOException failed = failure;
+        if (failed != null) throw failed;
+    }
+
+    private interface IoTask {
+        void run() throws IOException;
+    }
+
+    // Runs a step of the journal on the I/O thread; after one fails the rest are skipped
+    private void onIoThread(IoTask task) {
+        io.submit(() -> {
+            if (failure != null) return null;
+            try {
+                task.run();
+            } catch (IOException e) {
+                failure = e;
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // Already failing
+                    }
+                    channel = null;
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /**
+     * Reads a journal file. A tail cut short by a crash is ignored; only complete events are returned.
+     * @param file The journal file.
+     * @return The checkpoint and the events recorded after it.
+     * @throws IOException if the file is missing, is not a journal, or its checkpoint is corrupt.
+     */
+    public static Contents read(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        if (data.length < MAGIC.length + 2 || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a MiniDungeon journal.");
+        }
+        int version = data[MAGIC.length] & 0xFF;
+        if (version > VERSION) {
+            throw new IOException("Journal version " + version + " is newer than this game supports (" + VERSION + ").");
+        }
+        int position = MAGIC.length + 1;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= data.length || shift > 28) throw new IOException("Journal is corrupt: bad checkpoint length.");
+            int b = data[position++] & 0xFF;
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        if (length < 0 || length > data.length - position) {
+            throw new IOException("Journal is corrupt: checkpoint is truncated.");
+        }
+        GameState checkpoint = GameStateCodec.decode(Arrays.copyOfRange(data, position, position + length));
+        int eventsStart = position + length;
+        int eventsEnd = eventsStart;
+        while (eventsEnd < data.length && (isMove(data[eventsEnd]) || isNextLevel(data[eventsEnd]))) {
+            eventsEnd++;
+        }
+        return new Contents(checkpoint, Arrays.copyOfRange(data, eventsStart, eventsEnd));
+    }
+
+    public static boolean isMove(byte event) {
+        return (event & 0xFC) == MOVE;
+    }
+
+    public static Direction direction(byte event) {
+        return DIRECTIONS[event & 0x03];
+    }
+
+    public static boolean isNextLevel(byte event) {
+        return event == NEXT_LEVEL;
+    }
+}
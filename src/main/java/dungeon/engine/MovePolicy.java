@@ -0,0 +1,20 @@
+/** Strategy for choosing the player's next move during automated play.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+@FunctionalInterface
+public interface MovePolicy {
+
+    /**
+     * Chooses the next move for the player.
+     * Implementations must treat the state as read-only.
+     *
+     * @param state The current game state.
+     * @param stepsRemaining How many steps the player has left on this level.
+     * @return The direction to move in. Must not be null.
+     */
+    Direction chooseMove(GameState state, int stepsRemaining);
+}
@@ -0,0 +1,268 @@
+/** A sorted multiset that answers rank and range queries in O(log n).
+ * Implemented as a treap: a binary search tree whose nodes also carry a random priority kept in heap
+ * order, which keeps the tree balanced in expectation without any rebalancing bookkeeping. Each node
+ * stores how many copies of its element it holds and the total count of its subtree, so the number of
+ * elements before a given one is found on a single path from the root.
+ * A page of elements from any index is read by walking that path and then in order, without copying
+ * the rest of the tree.
+ *
+ * Not thread safe; TopScores guards its trees with its lock.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+final class OrderStatisticTree<E> {
+
+    private static final class Node<E> {
+        final E value;
+        final int priority;
+        long count;  // Copies of value held here
+        long weight; // Copies held in this subtree
+        Node<E> left;
+        Node<E> right;
+
+        Node(E value, int priority, long count) {
+            this.value = value;
+            this.priority = priority;
+            this.count = count;
+            this.weight = count;
+        }
+    }
+
+    private final Comparator<? super E> order;
+    private final DungeonRandom priorities = new DungeonRandom(0x5EED_7EA9L); // Any seed keeps it balanced
+    private Node<E> root;
+    private int distinct;
+    private E removed; // Set by removeLast(Node)
+
+    /**
+     * Creates an empty tree.
+     * @param order The order elements are kept in; the first element is the least by it.
+     */
+    OrderStatisticTree(Comparator<? super E> order) {
+        this.order = Objects.requireNonNull(order, "Order cannot be null.");
+    }
+
+    /**
+     * Counts every copy of every element.
+     * @return The number of elements.
+     */
+    long size() {
+        return weight(root);
+    }
+
+    /**
+     * Counts the distinct elements.
+     * @return The number of nodes in the tree.
+     */
+    int distinct() {
+        return distinct;
+    }
+
+    /**
+     * Adds copies of an element, merging them with any equal element already held.
+     * @param value The element.
+     * @param copies How many copies to add; must be positive.
+     */
+    void add(E value, long copies) {
+        if (copies < 1) {
+            throw new IllegalArgumentException("Copies must be positive.");
+        }
+        root = insert(root, value, copies);
+    }
+
+    /**
+     * Removes one copy of the last element.
+     * @return The element removed.
+     * @throws NoSuchElementException if the tree is empty.
+     */
+    E removeLast() {
+        if (root == null) throw new NoSuchElementException();
+        root = removeLast(root);
+        E value = removed;
+        removed = null;
+        return value;
+    }
+
+    /**
+     * Gets the last element.
+     * @return The greatest element by the tree's order.
+     * @throws NoSuchElementException if the tree is empty.
+     */
+    E last() {
+        if (root == null) throw new NoSuchElementException();
+        Node<E> node = root;
+        while (node.right != null) node = node.right;
+        return node.value;
+    }
+
+    /**
+     * Counts the elements that come strictly before a value, i.e. its 0-based index if it were added.
+     * @param value The value, which need not be in the tree.
+     * @return The number of elements ordered before it.
+     */
+    long countBefore(E value) {
+        long before = 0;
+        Node<E> node = root;
+        while (node != null) {
+            int c = order.compare(value, node.value);
+            if (c <= 0) {
+                node = node.left;
+            } else {
+                before += weight(node.left) + node.count;
+                node = node.right;
+            }
+        }
+        return before;
+    }
+
+    /**
+     * Counts the copies of a value.
+     * @param value The value.
+     * @return How many equal elements the tree holds.
+     */
+    long countOf(E value) {
+        Node<E> node = root;
+        while (node != null) {
+            int c = order.compare(value, node.value);
+            if (c == 0) return node.count;
+            node = c < 0 ? node.left : node.right;
+        }
+        return 0;
+    }
+
+    /**
+     * Reads a range of elements in order, counting every copy.
+     * @param from The 0-based index of the first element.
+     * @param limit The most elements to read.
+     * @return The elements; fewer than limit if the tree ends first.
+     */
+    List<E> range(long from, int limit) {
+        List<E> page = new ArrayList<>(Math.max(0, (int) Math.min(limit, size() - from)));
+        forEachFrom(from, limit, page::add);
+        return page;
+    }
+
+    /**
+     * Visits every distinct element in order with its number of copies, e.g. for writing the tree out.
+     * @param visitor Receives each element and its count.
+     */
+    void forEachDistinct(DistinctVisitor<? super E> visitor) {
+        Deque<Node<E>> path = new ArrayDeque<>();
+        pushLeftmost(root, path);
+        while (!path.isEmpty()) {
+            Node<E> node = path.pop();
+            visitor.visit(node.value, node.count);
+            pushLeftmost(node.right, path);
+        }
+    }
+
+    interface DistinctVisitor<E> {
+        void visit(E value, long count);
+    }
+
+    private void forEachFrom(long from, int limit, Consumer<? super E> action) {
+        if (from < 0 || limit <= 0) return;
+        // Walk down to the element at from, keeping the nodes still to visit after it
+        Deque<Node<E>> path = new ArrayDeque<>();
+        long skip = from;
+        Node<E> node = root;
+        while (node != null) {
+            long leftWeight = weight(node.left);
+            if (skip < leftWeight) {
+                path.push(node);
+                node = node.left;
+            } else if (skip < leftWeight + node.count) {
+                path.push(node);
+                skip -= leftWeight;
+                break;
+            } else {
+                skip -= leftWeight + node.count;
+                node = node.right;
+            }
+        }
+        if (node == null) return; // from is past the end
+        int emitted = 0;
+        while (!path.isEmpty() && emitted < limit) {
+            Node<E> next = path.pop();
+            for (long i = skip; i < next.count && emitted < limit; i++, emitted++) {
+                action.accept(next.value);
+            }
+            skip = 0;
+            pushLeftmost(next.right, path);
+        }
+    }
+
+    private static <E> void pushLeftmost(Node<E> node, Deque<Node<E>> path) {
+        for (; node != null; node = node.left) path.push(node);
+    }
+
+    private Node<E> insert(Node<E> node, E value, long copies) {
+        if (node == null) {
+            distinct++;
+            return new Node<>(value, priorities.nextInt(), copies);
+        }
+        int c = order.compare(value, node.value);
+        if (c == 0) {
+            node.count += copies;
+        } else if (c < 0) {
+            node.left = insert(node.left, value, copies);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, value, copies);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<E> removeLast(Node<E> node) {
+        if (node.right != null) {
+            node.right = removeLast(node.right);
+            update(node);
+            return node;
+        }
+        removed = node.value;
+        if (--node.count > 0) {
+            update(node);
+            return node;
+        }
+        distinct--;
+        return node.left;
+    }
+
+    private static <E> Node<E> rotateRight(Node<E> node) {
+        Node<E> top = node.left;
+        node.left = top.right;
+        top.right = node;
+        update(node);
+        return top;
+    }
+
+    private static <E> Node<E> rotateLeft(Node<E> node) {
+        Node<E> top = node.right;
+        node.right = top.left;
+        top.left = node;
+        update(node);
+        return top;
+    }
+
+    private static <E> void update(Node<E> node) {
+        node.weight = weight(node.left) + node.count + weight(node.right);
+    }
+
+    private static long weight(Node<?> node) {
+        return node == null ? 0 : node.weight;
+    }
+}
@@ -46,6 +46,10 @@ public class Player implements Serializable {
         return hp;
     }
 
+    public int getMaxHp() {
+        return maxHp;
+    }
+
     /**
      * Adjusts the player's current HP by the given delta.
      * Ensures HP does not go below 0 or exceed maxHp.
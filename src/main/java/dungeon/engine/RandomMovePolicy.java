@@ -0,0 +1,36 @@
+/** Move policy that wanders the dungeon at random, never walking into the map boundary.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+public class RandomMovePolicy implements MovePolicy {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final DungeonRandom random;
+    private final Direction[] candidates = new Direction[DIRECTIONS.length]; // Reused between moves
+
+    /**
+     * Creates a random policy. Instances are not thread-safe; use one per worker.
+     * @param seed Seed for the policy's own random source.
+     */
+    public RandomMovePolicy(long seed) {
+        this.random = new DungeonRandom(seed);
+    }
+
+    @Override
+    public Direction chooseMove(GameState state, int stepsRemaining) {
+        int size = state.getMapSize();
+        int count = 0;
+        for (Direction dir : DIRECTIONS) {
+            int x = state.getPlayerX() + dir.dx;
+            int y = state.getPlayerY() + dir.dy;
+            if (x >= 0 && x < size && y >= 0 && y < size) {
+                candidates[count++] = dir;
+            }
+        }
+        return candidates[random.nextInt(count)];
+    }
+}
@@ -9,13 +9,16 @@ package dungeon.engine;
 
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RangedMutant implements Entity, Serializable {
 
     @Serial
     private static final long serialVersionUID = 20240530L; // Unique ID for serialization
-    private final Random random = new Random(); // For determining attack success
+    private static final double HIT_CHANCE = 0.5;
+
+    /** How many tiles away (in a straight row or column) the mutant can hit the player from. */
+    public static final int ATTACK_RANGE = 2;
 
     /**
      * Returns the map symbol for a ranged mutant.
@@ -65,17 +68,27 @@ public class RangedMutant implements Entity, Serializable {
         int deltaY = Math.abs(playerY - mutantY);
 
         // Attack if in the same row/column, 1 or 2 tiles away.
-        if (playerX == mutantX && deltaY > 0 && deltaY <= 2) {
+        if (playerX == mutantX && deltaY > 0 && deltaY <= ATTACK_RANGE) {
             return true;
         }
-        return playerY == mutantY && deltaX > 0 && deltaX <= 2;
+        return playerY == mutantY && deltaX > 0 && deltaX <= ATTACK_RANGE;
+    }
+
+    /**
+     * Determines if the ranged mutant's attack attempt is successful, using the game's random source
+     * so that seeded games replay identically.
+     * @param random The game's random source.
+     * @return true if the attack hits (50% chance), false otherwise.
+     */
+    public boolean tryAttack(DungeonRandom random) {
+        return random.nextDouble() < HIT_CHANCE;
     }
 
     /**
-     * Determines if the ranged mutant's attack attempt is successful.
+     * Determines if the ranged mutant's attack attempt is successful, outside of any particular game.
      * @return true if the attack hits (50% chance), false otherwise.
      */
     public boolean tryAttack() {
-        return random.nextDouble() < 0.5; // 50% chance to hit
+        return ThreadLocalRandom.current().nextDouble() < HIT_CHANCE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+/** A recorded game: everything needed to play it again move for move.
+ * A game is fully determined by its map size, starting difficulty and seed, so a recording only has
+ * to hold those and the player's inputs. Each move is one of four directions and is packed into 2
+ * bits, four moves to a byte, so even a full 100-step game is 25 bytes of moves. All four 2-bit codes
+ * are directions, so the one level change a game can have is stored as the move it followed instead
+ * of in the move stream. The hash of the final state is stored too, so a replay can prove it reached
+ * exactly the same game (see {@link ReplayPlayer}).
+ *
+ * Layout: "MDRP" magic, 1 version byte, varint map size, varint difficulty, 8-byte seed, varint move
+ * count, varint (moves before the level change + 1, or 0 if there was none), the packed moves (move i
+ * in bits (i % 4) * 2 of byte i / 4), 8-byte final state hash, then a 4-byte CRC32 of everything before it.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+public final class Replay {
+
+    public static final String DEFAULT_FILENAME = "minidungeon.replay";
+    /** Marks a recording whose game never changed level. */
+    public static final int NO_LEVEL_CHANGE = -1;
+
+    private static final byte[] MAGIC = {'M', 'D', 'R', 'P'};
+    private static final int VERSION = 1;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final int mapSize;
+    private final int difficulty;
+    private final long seed;
+    private final byte[] moves; // Packed, 4 per byte
+    private final int moveCount;
+    private final int levelChangeAfter;
+    private final long finalHash;
+
+    Replay(int mapSize, int difficulty, long seed, byte[] moves, int moveCount, int levelChangeAfter, long finalHash) {
+        this.mapSize = mapSize;
+        this.difficulty = difficulty;
+        this.seed = seed;
+        this.moves = moves;
+        this.moveCount = moveCount;
+        this.levelChangeAfter = levelChangeAfter;
+        this.finalHash = finalHash;
+    }
+
+    public int getMapSize() { return mapSize; }
+    public int getDifficulty() { return difficulty; }
+    public long getSeed() { return seed; }
+    public int getMoveCount() { return moveCount; }
+    public long getFinalHash() { return finalHash; }
+
+    /**
+     * Gets the number of moves played before the game advanced to Level 2.
+     * @return The move count at the level change, or {@link #NO_LEVEL_CHANGE}.
+     */
+    public int getLevelChangeAfter() { return levelChangeAfter; }
+
+    /**
+     * Gets a recorded move.
+     * @param index The 0-based move number.
+     * @return The direction moved.
+     */
+    public Direction getMove(int index) {
+        Objects.checkIndex(index, moveCount);
+        return DIRECTIONS[(moves[index >>> 2] >>> ((index & 3) << 1)) & 3];
+    }
+
+    /**
+     * Hashes a game state: 64-bit FNV-1a over its {@link GameStateCodec} encoding, which covers the
+     * map, the player, the counters and the random source, so two states hash alike only if every
+     * later move would play out alike too.
+     * @param state The state.
+     * @return The hash.
+     */
+    public static long hash(GameState state) {
+        long hash = FNV_OFFSET;
+        for (byte b : GameStateCodec.encode(state)) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Encodes the recording.
+     * @return The encoded bytes, including header and checksum.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + moves.length);
+        out.writeBytes(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, mapSize);
+        writeVarint(out, difficulty);
+        out.writeBytes(ByteBuffer.allocate(Long.BYTES).putLong(seed).array());
+        writeVarint(out, moveCount);
+        writeVarint(out, levelChangeAfter + 1);
+        out.write(moves, 0, (moveCount + 3) >>> 2);
+        out.writeBytes(ByteBuffer.allocate(Long.BYTES).putLong(finalHash).array());
+
+        CRC32 crc = new CRC32();
+        byte[] body = out.toByteArray();
+        crc.update(body);
+        return ByteBuffer.allocate(body.length + CHECKSUM_SIZE).put(body).putInt((int) crc.getValue()).array();
+    }
+
+    /**
+     * Decodes a recording written by {@link #encode()}.
+     * @param data The encoded bytes.
+     * @return The recording.
+     * @throws IOException if the data is not a replay, is from a newer version, is corrupt or is truncated.
+     */
+    public static Replay decode(byte[] data) throws IOException {
+        if (data.length < MAGIC.length + 1 + CHECKSUM_SIZE || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a MiniDungeon replay.");
+        }
+        int version = data[MAGIC.length] & 0xFF;
+        if (version > VERSION) {
+            throw new IOException("Replay version " + version + " is newer than this game supports (" + VERSION + ").");
+        }
+        int bodyEnd = data.length - CHECKSUM_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, bodyEnd);
+        ByteBuffer in = ByteBuffer.wrap(data, 0, bodyEnd);
+        if ((int) crc.getValue() != ByteBuffer.wrap(data).getInt(bodyEnd)) {
+            throw new IOException("Replay is corrupt (checksum mismatch).");
+        }
+        try {
+            in.position(MAGIC.length + 1);
+            int mapSize = readVarint(in);
+            int difficulty = readVarint(in);
+            long seed = in.getLong();
+            int moveCount = readVarint(in);
+            int levelChangeAfter = readVarint(in) - 1;
+            if (levelChangeAfter > moveCount) throw new IOException("Replay is corrupt: level change after the last move.");
+            long packedLength = ((long) moveCount + 3) >>> 2;
+            if (packedLength > in.remaining()) throw new IOException("Replay is truncated.");
+            byte[] moves = new byte[(int) packedLength];
+            in.get(moves);
+            long finalHash = in.getLong();
+            return new Replay(mapSize, difficulty, seed, moves, moveCount, levelChangeAfter, finalHash);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Replay is truncated.", e);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        for (; (value & ~0x7F) != 0; value >>>= 7) {
+            out.write((value & 0x7F) | 0x80);
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) break;
+                return value;
+            }
+        }
+        throw new IOException("Replay is corrupt: bad varint.");
+    }
+
+    /** Records a game as it is played; kept by GameEngine for the game in progress. */
+    static final class Recorder {
+        private final int mapSize;
+        private final int difficulty;
+        private final long seed;
+        private byte[] moves = new byte[32];
+        private int moveCount;
+        private int levelChangeAfter = NO_LEVEL_CHANGE;
+        private boolean finished;
+        private long finalHash;
+
+        Recorder(int mapSize, int difficulty, long seed) {
+            this.mapSize = mapSize;
+            this.difficulty = difficulty;
+            this.seed = seed;
+        }
+
+        void move(Direction direction) {
+            if (finished) return;
+            int index = moveCount >>> 2;
+            if (index == moves.length) moves = Arrays.copyOf(moves, moves.length * 2);
+            int shift = (moveCount & 3) << 1;
+            moves[index] = (byte) ((moves[index] & ~(3 << shift)) | direction.ordinal() << shift); // May overwrite a rewound move
+            moveCount++;
+        }
+
+        int getMoveCount() {
+            return moveCount;
+        }
+
+        int getLevelChangeAfter() {
+            return levelChangeAfter;
+        }
+
+        // Goes back (or, after going back, forward again) to an earlier point of the recording. Moves
+        // past it are kept until overwritten, so returning to a later point replays them as recorded.
+        void rewind(int moveCount, int levelChangeAfter) {
+            this.moveCount = moveCount;
+            this.levelChangeAfter = levelChangeAfter;
+            this.finished = false;
+        }
+
+        void levelChange() {
+            if (!finished) levelChangeAfter = moveCount;
+        }
+
+        // Fixes the hash as soon as the game ends, before frontends touch the finished state
+        void finish(GameState state) {
+            if (finished) return;
+            finalHash = hash(state);
+            finished = true;
+        }
+
+        Replay toReplay(GameState current) {
+            return new Replay(mapSize, difficulty, seed, Arrays.copyOf(moves, (moveCount + 3) >>> 2), moveCount,
+                    levelChangeAfter, finished ? finalHash : hash(current));
+        }
+    }
+}
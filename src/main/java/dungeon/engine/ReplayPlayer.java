@@ -0,0 +1,111 @@
+/** Plays a recorded game back on a fresh headless engine.
+ * The engine is rebuilt from the recording's map size, difficulty and seed, then fed its moves one
+ * at a time, advancing the level after the same move the player did. Frontends step it on a timer to
+ * watch a game; {@link #verify(Replay)} runs it flat out and checks that the final state hashes to
+ * the value recorded, which catches any change to the rules or level generation that would make an
+ * old game play out differently.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+public final class ReplayPlayer {
+
+    /**
+     * The outcome of playing a replay to the end.
+     * @param matches Whether the final state hash matched the recorded one.
+     * @param moves The number of moves played.
+     * @param expectedHash The recorded final state hash.
+     * @param actualHash The final state hash reached.
+     */
+    public record Result(boolean matches, int moves, long expectedHash, long actualHash) {
+    }
+
+    private final Replay replay;
+    private final GameEngine engine;
+    private int nextMove;
+
+    /**
+     * Starts the recorded game on a new headless engine, before any move is played.
+     * @param replay The recording.
+     */
+    public ReplayPlayer(Replay replay) {
+        this.replay = Objects.requireNonNull(replay, "Replay cannot be null.");
+        this.engine = GameEngine.headless(replay.getDifficulty(), 0L, replay.getMapSize());
+        engine.startNewGame(replay.getSeed());
+    }
+
+    /**
+     * Plays the next recorded move, and the level change if the player advanced after it.
+     * @return false if every move has already been played.
+     */
+    public boolean step() {
+        if (isFinished()) return false;
+        engine.applyMove(replay.getMove(nextMove++));
+        // Only from the ladder: a replay that has drifted from the recording must not be forced back on track
+        if (nextMove == replay.getLevelChangeAfter() && engine.getState().hasReachedLadderThisTurn()) {
+            engine.advanceToNextLevel();
+        }
+        return true;
+    }
+
+    public boolean isFinished() {
+        return nextMove >= replay.getMoveCount();
+    }
+
+    public int getMovesPlayed() {
+        return nextMove;
+    }
+
+    /** Gets the engine the replay is played on, e.g. for a frontend to draw. */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Checks the game as played so far against the recording's final state. Call it before anything
+     * else changes the engine's state, e.g. a frontend's game over handling.
+     * @return The moves played and whether the current state hashes to the recorded final hash.
+     */
+    public Result result() {
+        long actual = Replay.hash(engine.getState());
+        return new Result(actual == replay.getFinalHash(), nextMove, replay.getFinalHash(), actual);
+    }
+
+    /**
+     * Plays a recording through as fast as possible and checks where it ends up.
+     * @param replay The recording.
+     * @return Whether it reproduced the recorded game.
+     */
+    public static Result verify(Replay replay) {
+        ReplayPlayer player = new ReplayPlayer(replay);
+        while (player.step()) {
+            // Nothing to draw
+        }
+        return player.result();
+    }
+
+    /**
+     * Verifies a replay file from the command line.
+     * Usage: ReplayPlayer [file], defaulting to the replay the GUI saves; exits with status 1 if it does not match.
+     * @param args Optional replay file path.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : Replay.DEFAULT_FILENAME);
+        Replay replay = Replay.decode(Files.readAllBytes(file));
+        long started = System.nanoTime();
+        Result result = verify(replay);
+        long micros = (System.nanoTime() - started) / 1000;
+        System.out.printf("Replayed %d moves (difficulty %d, seed %d) in %d us: %s%n", result.moves(),
+                replay.getDifficulty(), replay.getSeed(), micros,
+                result.matches() ? "final state matches"
+                        : String.format("MISMATCH (expected %016x, got %016x)", result.expectedHash(), result.actualHash()));
+        if (!result.matches()) System.exit(1);
+    }
+}
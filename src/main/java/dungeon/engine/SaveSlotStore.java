@@ -0,0 +1,350 @@
+/** Many named save slots kept in a single file.
+ * The file starts with a small header and a fixed-size index with one entry per slot (name, time saved,
+ * payload offset, capacity and length), followed by the slot payloads. The index is memory-mapped, so
+ * listing slots never touches a payload, and each payload is mapped on its own, so loading or
+ * overwriting one slot never reads or rewrites the others.
+ *
+ * A payload is never overwritten in place: a save writes it to the first gap big enough that no slot
+ * is using, the old copy included, or to the end of the file, and forces it to disk before switching
+ * the index entry over to it. A crash mid-save therefore leaves the slot's previous save loadable,
+ * and a slot saved again and again just alternates between two regions. The offset, capacity and
+ * length switched over lie together in one 16-byte, 16-byte-aligned run of the entry, which never
+ * spans a disk sector. Payloads also carry their own checksum (see GameStateCodec).
+ *
+ * Several stores can have one file open at once, such as two server sessions of the same player.
+ * Every operation holds a lock on the whole file while it runs, so they take turns: an exclusive
+ * FileChannel lock against other processes, and a lock per file within this one, since two channels
+ * of one JVM cannot both wait on a file lock. A new file's header is written under the same lock,
+ * so a second opener never reads it half written.
+ *
+ * Layout: "MDSS" magic, 1 version byte, 3 reserved bytes, 4-byte slot count, 4 reserved bytes, then
+ * slot count * 64-byte index entries: 1 name length byte (0 = free), 39 name bytes (UTF-8),
+ * 8-byte time saved (epoch millis), 8-byte offset, 4-byte capacity, 4-byte length.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class SaveSlotStore implements Closeable {
+
+    public static final String DEFAULT_FILENAME = "minidungeon.slots";
+    public static final int DEFAULT_SLOT_COUNT = 32;
+    public static final int MAX_NAME_BYTES = 39;
+
+    private static final byte[] MAGIC = {'M', 'D', 'S', 'S'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 64;
+    private static final int SAVED_AT = 40;   // Offsets within an index entry
+    private static final int OFFSET = 48;
+    private static final int CAPACITY = 56;
+    private static final int LENGTH = 60;
+    private static final int MIN_CAPACITY = 512;
+    // One per slot file opened by this JVM; there are only ever a few, so they are never removed
+    private static final ConcurrentMap<Path, ReentrantLock> FILE_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * A slot as listed in the index.
+     * @param name The slot name.
+     * @param length The size of the saved payload in bytes.
+     * @param savedAtMillis When the slot was last written, in epoch milliseconds.
+     */
+    public record Slot(String name, int length, long savedAtMillis) {
+    }
+
+    // An operation that runs with the file locked
+    @FunctionalInterface
+    private interface Locked<T> {
+        T run() throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final ReentrantLock lock;
+    private final MappedByteBuffer index;
+    private final int slotCount;
+
+    private SaveSlotStore(FileChannel channel, ReentrantLock lock, MappedByteBuffer index, int slotCount) {
+        this.channel = channel;
+        this.lock = lock;
+        this.index = index;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Opens a slot file, creating it with {@link #DEFAULT_SLOT_COUNT} slots if it does not exist.
+     * @param file The slot file.
+     * @return The open store.
+     * @throws IOException if the file cannot be opened or is not a slot file.
+     */
+    public static SaveSlotStore open(Path file) throws IOException {
+        return open(file, DEFAULT_SLOT_COUNT);
+    }
+
+    /**
+     * Opens a slot file, creating it if it does not exist.
+     * @param file The slot file.
+     * @param slotCount The number of slots to create a new file with; an existing file keeps its own.
+     * @return The open store.
+     * @throws IOException if the file cannot be opened or is not a slot file.
+     */
+    public static SaveSlotStore open(Path file, int slotCount) throws IOException {
+        if (slotCount < 1) {
+            throw new IllegalArgumentException("Slot count must be positive.");
+        }
+        ReentrantLock lock = FILE_LOCKS.computeIfAbsent(file.toAbsolutePath().normalize(), key -> new ReentrantLock());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int requested = slotCount;
+        try {
+            return locked(channel, lock, () -> {
+                boolean created = channel.size() == 0;
+                int slots = created ? requested : readHeader(channel);
+                MappedByteBuffer index = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * ENTRY_SIZE);
+                if (created) {
+                    index.put(0, MAGIC).put(MAGIC.length, (byte) VERSION).putInt(8, slots);
+                    index.force();
+                }
+                return new SaveSlotStore(channel, lock, index, slots);
+            });
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int readHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Not a MiniDungeon slot file.");
+        }
+        MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a MiniDungeon slot file.");
+        }
+        int version = header.get(MAGIC.length) & 0xFF;
+        if (version > VERSION) {
+            throw new IOException("Slot file version " + version + " is newer than this game supports (" + VERSION + ").");
+        }
+        int slotCount = header.getInt(8);
+        if (slotCount < 1 || channel.size() < HEADER_SIZE + (long) slotCount * ENTRY_SIZE) {
+            throw new IOException("Slot file is corrupt: bad slot count.");
+        }
+        return slotCount;
+    }
+
+    /**
+     * Lists the used slots, reading only the index.
+     * @return The slots, in index order.
+     * @throws IOException if the file cannot be locked.
+     */
+    public List<Slot> list() throws IOException {
+        return locked(() -> {
+            List<Slot> slots = new ArrayList<>();
+            for (int i = 0; i < slotCount; i++) {
+                int entry = entryPosition(i);
+                if (index.get(entry) != 0) {
+                    slots.add(new Slot(nameAt(entry), index.getInt(entry + LENGTH), index.getLong(entry + SAVED_AT)));
+                }
+            }
+            return slots;
+        });
+    }
+
+    public boolean contains(String name) throws IOException {
+        byte[] nameBytes = encodeName(name);
+        return locked(() -> find(nameBytes) >= 0);
+    }
+
+    /**
+     * Reads one slot's payload.
+     * @param name The slot name.
+     * @return A copy of the payload, or null if there is no such slot.
+     * @throws IOException if the payload cannot be read.
+     */
+    public byte[] read(String name) throws IOException {
+        byte[] nameBytes = encodeName(name);
+        return locked(() -> {
+            int entry = find(nameBytes);
+            if (entry < 0) return null;
+            long offset = index.getLong(entry + OFFSET);
+            int length = index.getInt(entry + LENGTH);
+            if (offset < dataStart() || offset + length > channel.size()) {
+                throw new IOException("Slot file is corrupt: slot '" + name + "' points outside the file.");
+            }
+            byte[] payload = new byte[length];
+            channel.map(MapMode.READ_ONLY, offset, length).get(payload);
+            return payload;
+        });
+    }
+
+    /**
+     * Writes one slot's payload, creating the slot if needed. Other slots are not touched.
+     * @param name The slot name (1 to {@link #MAX_NAME_BYTES} bytes of UTF-8).
+     * @param payload The bytes to store.
+     * @throws IOException if every slot is in use by another name, or the write fails.
+     */
+    public void write(String name, byte[] payload) throws IOException {
+        byte[] nameBytes = encodeName(name);
+        locked(() -> {
+            writeLocked(nameBytes, payload);
+            return null;
+        });
+    }
+
+    private void writeLocked(byte[] nameBytes, byte[] payload) throws IOException {
+        int entry = find(nameBytes);
+        boolean isNew = entry < 0;
+        if (isNew) {
+            entry = findFree();
+            if (entry < 0) {
+                throw new IOException("All " + slotCount + " save slots are in use.");
+            }
+        }
+        int capacity = capacityFor(payload.length);
+        long offset = allocate(capacity); // Away from the slot's current payload, which stays valid until the index moves on
+        MappedByteBuffer region = channel.map(MapMode.READ_WRITE, offset, payload.length);
+        region.put(0, payload);
+        region.force();
+
+        if (isNew) {
+            index.put(entry + 1, nameBytes);
+        }
+        index.putLong(entry + SAVED_AT, System.currentTimeMillis())
+                .putLong(entry + OFFSET, offset)
+                .putInt(entry + CAPACITY, capacity)
+                .putInt(entry + LENGTH, payload.length);
+        index.put(entry, (byte) nameBytes.length); // Marks a new entry as used once it is complete
+        index.force();
+    }
+
+    /**
+     * Deletes a slot, freeing its space for other slots.
+     * @param name The slot name.
+     * @return true if the slot existed.
+     * @throws IOException if the file cannot be locked.
+     */
+    public boolean delete(String name) throws IOException {
+        byte[] nameBytes = encodeName(name);
+        return locked(() -> {
+            int entry = find(nameBytes);
+            if (entry < 0) return false;
+            index.put(entry, (byte) 0);
+            index.force();
+            return true;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private <T> T locked(Locked<T> action) throws IOException {
+        return locked(channel, lock, action);
+    }
+
+    // Runs action holding this JVM's lock on the file, then the file lock that keeps other processes out
+    private static <T> T locked(FileChannel channel, ReentrantLock lock, Locked<T> action) throws IOException {
+        lock.lock();
+        try {
+            FileLock fileLock = channel.lock();
+            try {
+                return action.run();
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Finds the lowest offset where capacity bytes fit between the used slots
+    private long allocate(int capacity) {
+        List<long[]> used = new ArrayList<>(); // {offset, capacity}
+        for (int i = 0; i < slotCount; i++) {
+            int entry = entryPosition(i);
+            if (index.get(entry) != 0) {
+                used.add(new long[]{index.getLong(entry + OFFSET), index.getInt(entry + CAPACITY)});
+            }
+        }
+        used.sort(Comparator.comparingLong(extent -> extent[0]));
+        long candidate = dataStart();
+        for (long[] extent : used) {
+            if (extent[0] - candidate >= capacity) break;
+            candidate = Math.max(candidate, extent[0] + extent[1]);
+        }
+        return candidate;
+    }
+
+    private int find(byte[] nameBytes) {
+        for (int i = 0; i < slotCount; i++) {
+            int entry = entryPosition(i);
+            if (index.get(entry) == nameBytes.length && nameMatches(entry, nameBytes)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private int findFree() {
+        for (int i = 0; i < slotCount; i++) {
+            int entry = entryPosition(i);
+            if (index.get(entry) == 0) return entry;
+        }
+        return -1;
+    }
+
+    private boolean nameMatches(int entry, byte[] nameBytes) {
+        for (int i = 0; i < nameBytes.length; i++) {
+            if (index.get(entry + 1 + i) != nameBytes[i]) return false;
+        }
+        return true;
+    }
+
+    private String nameAt(int entry) {
+        byte[] nameBytes = new byte[Math.min(index.get(entry) & 0xFF, MAX_NAME_BYTES)];
+        index.get(entry + 1, nameBytes);
+        return new String(nameBytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] nameBytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length == 0 || nameBytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Slot name must be 1 to " + MAX_NAME_BYTES + " bytes long.");
+        }
+        return nameBytes;
+    }
+
+    // Rounds up to whole blocks, with headroom, so a slot that grows a little still fits a gap it left behind
+    private static int capacityFor(int length) {
+        int wanted = Math.max(MIN_CAPACITY, length + length / 2);
+        return (int) Math.min(Integer.MAX_VALUE, (wanted + MIN_CAPACITY - 1L) / MIN_CAPACITY * MIN_CAPACITY);
+    }
+
+    private int entryPosition(int slot) {
+        return HEADER_SIZE + slot * ENTRY_SIZE;
+    }
+
+    private long dataStart() {
+        return HEADER_SIZE + (long) slotCount * ENTRY_SIZE;
+    }
+}
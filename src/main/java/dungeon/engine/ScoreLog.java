@@ -0,0 +1,220 @@
+/** Append-only file behind a TopScores leaderboard.
+ * Every score that makes the board is appended as an entry record; scores that drop off the board
+ * later are not logged, as replaying the records in order with the same capacity drops them again.
+ * Every other recorded game is appended as a tally record, which only counts towards ranks and
+ * percentiles. When the log has grown well past the board it is compacted: rewritten atomically with
+ * just the entries still on the board and one tally per distinct score for the rest.
+ *
+ * Layout: "MDSL" magic, 1 version byte, then records of: 2-byte payload length, payload, 4-byte CRC32
+ * of the payload. The payload is 1 byte kind, 1 byte difficulty, 4-byte score, then for an entry a
+ * 4-byte epoch day and the UTF-8 name, or for a tally an 8-byte count. A record torn by a crash fails
+ * its length or checksum check; it and anything after it are dropped when the log is next opened.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+final class ScoreLog {
+
+    private static final byte[] MAGIC = {'M', 'D', 'S', 'L'};
+    private static final int VERSION = 2; // Version 1 never left development and is not read
+    private static final int HEADER_SIZE = MAGIC.length + 1;
+    private static final int ENTRY = 1; // Record kinds
+    private static final int TALLY = 2;
+    private static final int ENTRY_PAYLOAD = 1 + 1 + 4 + 4; // Before the name
+    private static final int TALLY_PAYLOAD = 1 + 1 + 4 + 8;
+    private static final int MAX_NAME_BYTES = 0xFFFF - ENTRY_PAYLOAD;
+
+    sealed interface Record permits Entry, Tally {
+        int difficulty();
+    }
+
+    /**
+     * A score that made the board.
+     * @param difficulty The leaderboard partition it was submitted to.
+     * @param entry The score.
+     */
+    record Entry(int difficulty, ScoreEntry entry) implements Record {
+    }
+
+    /**
+     * Recorded games that are counted in ranks but are not on the board.
+     * @param difficulty The leaderboard partition they were submitted to.
+     * @param score Their score.
+     * @param count How many games.
+     */
+    record Tally(int difficulty, int score, long count) implements Record {
+    }
+
+    private final Path file;
+    private long validLength; // Where the next record goes; anything after it is a torn tail
+    private FileChannel channel;
+
+    private ScoreLog(Path file, long validLength) {
+        this.file = file;
+        this.validLength = validLength;
+    }
+
+    /**
+     * Opens a log, reading the records it holds. A missing file is an empty log.
+     * @param file The log file.
+     * @param records Receives the records, in the order they were appended.
+     * @return The log, ready for appends.
+     * @throws IOException if the file cannot be read or is not a score log this game can read.
+     */
+    static ScoreLog open(Path file, List<Record> records) throws IOException {
+        if (!Files.exists(file)) {
+            return empty(file);
+        }
+        byte[] data = Files.readAllBytes(file);
+        if (data.length < HEADER_SIZE || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a MiniDungeon score log: " + file);
+        }
+        int version = data[MAGIC.length] & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Score log version " + version + " is not supported; this game reads version " + VERSION + ".");
+        }
+        ByteBuffer in = ByteBuffer.wrap(data);
+        CRC32 crc = new CRC32();
+        int end = HEADER_SIZE; // Just past the last complete record
+        while (end + 2 <= data.length) {
+            int length = in.getShort(end) & 0xFFFF;
+            int payload = end + 2;
+            if (payload + length + 4 > data.length) break;
+            crc.reset();
+            crc.update(data, payload, length);
+            if ((int) crc.getValue() != in.getInt(payload + length)) break;
+            Record record = decode(data, in, payload, length);
+            if (record == null) break;
+            records.add(record);
+            end = payload + length + 4;
+        }
+        return new ScoreLog(file, end);
+    }
+
+    /**
+     * Starts an empty log, replacing the file's contents on the first append.
+     * @param file The log file.
+     * @return The log.
+     */
+    static ScoreLog empty(Path file) {
+        return new ScoreLog(file, 0);
+    }
+
+    /**
+     * Appends records and forces them to disk together, so a batch costs one sync however large it is.
+     * @param records The records to append, in order.
+     * @throws IOException if the log cannot be written.
+     */
+    void append(List<? extends Record> records) throws IOException {
+        if (records.isEmpty()) return;
+        if (channel == null) {
+            if (validLength == 0) { // New file
+                rewrite(List.of());
+            }
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            channel.truncate(validLength); // Drop a torn tail before appending after it
+            channel.position(validLength);
+        }
+        ByteBuffer[] buffers = new ByteBuffer[records.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(encode(records.get(i)));
+        }
+        for (ByteBuffer last = buffers[buffers.length - 1]; last.hasRemaining(); ) {
+            channel.write(buffers); // Gathering write: one system call for the batch, usually
+        }
+        channel.force(false);
+        validLength = channel.position();
+    }
+
+    /**
+     * Replaces the whole log with the given records (compaction), atomically.
+     * @param records The records to keep, in the order they should be replayed.
+     * @throws IOException if the log cannot be written.
+     */
+    void rewrite(List<? extends Record> records) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(records.size());
+        int total = HEADER_SIZE;
+        for (Record record : records) {
+            byte[] bytes = encode(record);
+            encoded.add(bytes);
+            total += bytes.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(total);
+        out.put(MAGIC).put((byte) VERSION);
+        for (byte[] bytes : encoded) out.put(bytes);
+
+        close();
+        AsyncPersistence.writeAtomically(file, out.array());
+        validLength = total;
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // A checksummed payload that does not parse is treated like a torn one: null
+    private static Record decode(byte[] data, ByteBuffer in, int payload, int length) {
+        if (length < 1) return null;
+        return switch (data[payload]) {
+            case ENTRY -> {
+                if (length < ENTRY_PAYLOAD) yield null;
+                String name = new String(data, payload + ENTRY_PAYLOAD, length - ENTRY_PAYLOAD, StandardCharsets.UTF_8);
+                LocalDate date = LocalDate.ofEpochDay(in.getInt(payload + 6));
+                yield new Entry(data[payload + 1], new ScoreEntry(name, in.getInt(payload + 2), date));
+            }
+            case TALLY -> length != TALLY_PAYLOAD ? null
+                    : new Tally(data[payload + 1], in.getInt(payload + 2), in.getLong(payload + 6));
+            default -> null;
+        };
+    }
+
+    private static byte[] encode(Record record) {
+        ByteBuffer out;
+        int length;
+        switch (record) {
+            case Entry(int difficulty, ScoreEntry entry) -> {
+                byte[] name = entry.getPlayerName().getBytes(StandardCharsets.UTF_8);
+                if (name.length > MAX_NAME_BYTES) name = Arrays.copyOf(name, MAX_NAME_BYTES);
+                length = ENTRY_PAYLOAD + name.length;
+                out = ByteBuffer.allocate(2 + length + 4);
+                out.putShort((short) length)
+                        .put((byte) ENTRY)
+                        .put((byte) difficulty)
+                        .putInt(entry.getScore())
+                        .putInt((int) entry.getDate().toEpochDay())
+                        .put(name);
+            }
+            case Tally(int difficulty, int score, long count) -> {
+                length = TALLY_PAYLOAD;
+                out = ByteBuffer.allocate(2 + length + 4);
+                out.putShort((short) length)
+                        .put((byte) TALLY)
+                        .put((byte) difficulty)
+                        .putInt(score)
+                        .putLong(count);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 2, length);
+        out.putInt((int) crc.getValue());
+        return out.array();
+    }
+}
@@ -0,0 +1,55 @@
+/** Results of a GameSimulator run: per-difficulty statistics plus overall throughput.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.List;
+
+public class SimulationReport {
+
+    private final List<SimulationStats> stats;
+    private final long elapsedNanos;
+
+    public SimulationReport(List<SimulationStats> stats, long elapsedNanos) {
+        this.stats = List.copyOf(stats);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<SimulationStats> getStats() { return stats; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /**
+     * Looks up the statistics for one starting difficulty.
+     * @param difficulty The starting difficulty.
+     * @return The stats, or null if that difficulty was not simulated.
+     */
+    public SimulationStats getStats(int difficulty) {
+        for (SimulationStats s : stats) {
+            if (s.getDifficulty() == difficulty) return s;
+        }
+        return null;
+    }
+
+    public long getTotalGames() {
+        long total = 0;
+        for (SimulationStats s : stats) total += s.getGames();
+        return total;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : getTotalGames() / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (SimulationStats s : stats) {
+            sb.append(s).append('\n');
+        }
+        sb.append(String.format("%d games in %.2f s (%.0f games/sec)",
+                getTotalGames(), elapsedNanos / 1_000_000_000.0, getGamesPerSecond()));
+        return sb.toString();
+    }
+}
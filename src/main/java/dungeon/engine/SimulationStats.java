@@ -0,0 +1,113 @@
+/** Aggregated outcomes of many games played at one starting difficulty, either simulated by the
+ * GameSimulator or read back from a GameHistory file.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+public class SimulationStats {
+
+    private final int difficulty;
+    private long games;
+    private long wins;
+    private long outOfSteps;
+    private long reachedLevel2;
+    private final long[] deaths = new long[DeathCause.values().length];
+    private long totalFinalScore;   // Losses count as -1, as in the GUI and text mode
+    private long totalWinningScore;
+    private int bestScore = -1;
+    private long totalSeconds;      // Play time; only recorded games have one
+
+    public SimulationStats(int difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Records the outcome of a finished game.
+     * A game that is neither won nor lost by HP (including one abandoned by a stalled policy)
+     * is counted as running out of steps.
+     * @param engine The engine the game was played on.
+     */
+    public void record(GameEngine engine) {
+        GameState state = engine.getState();
+        boolean won = engine.hasWonGame();
+        DeathCause death = !won && !state.getPlayer().isAlive() ? state.getDeathCause() : null;
+        record(state.getLevel(), won, death, won ? state.getPlayer().getScore() : -1, 0);
+    }
+
+    /**
+     * Records the outcome of a finished game from its parts, e.g. as read from a history file.
+     * @param level The level the game ended on.
+     * @param won Whether the game was won.
+     * @param death What killed the player, or null if the player did not die.
+     * @param finalScore The final score (-1 for a loss).
+     * @param seconds How long the game took to play, or 0 if unknown.
+     */
+    void record(int level, boolean won, DeathCause death, int finalScore, long seconds) {
+        games++;
+        if (level == 2) reachedLevel2++;
+        if (won) {
+            wins++;
+            totalWinningScore += finalScore;
+            bestScore = Math.max(bestScore, finalScore);
+        } else if (death != null) {
+            deaths[death.ordinal()]++;
+        } else {
+            outOfSteps++;
+        }
+        totalFinalScore += finalScore;
+        totalSeconds += seconds;
+    }
+
+    /**
+     * Adds another worker's results for the same difficulty into this one.
+     * @param other The stats to merge in.
+     */
+    public void merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        outOfSteps += other.outOfSteps;
+        reachedLevel2 += other.reachedLevel2;
+        for (int i = 0; i < deaths.length; i++) deaths[i] += other.deaths[i];
+        totalFinalScore += other.totalFinalScore;
+        totalWinningScore += other.totalWinningScore;
+        bestScore = Math.max(bestScore, other.bestScore);
+        totalSeconds += other.totalSeconds;
+    }
+
+    // --- Accessors ---
+    public int getDifficulty() { return difficulty; }
+    public long getGames() { return games; }
+    public long getWins() { return wins; }
+    public long getOutOfSteps() { return outOfSteps; }
+    public long getReachedLevel2() { return reachedLevel2; }
+    public long getDeaths(DeathCause cause) { return deaths[cause.ordinal()]; }
+    public int getBestScore() { return bestScore; }
+
+    public double getWinRate() {
+        return games == 0 ? 0.0 : (double) wins / games;
+    }
+
+    public double getMeanScore() {
+        return games == 0 ? 0.0 : (double) totalFinalScore / games;
+    }
+
+    public double getMeanWinningScore() {
+        return wins == 0 ? 0.0 : (double) totalWinningScore / wins;
+    }
+
+    public double getMeanSeconds() {
+        return games == 0 ? 0.0 : (double) totalSeconds / games;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("d=%-2d games=%-9d win=%5.1f%% L2=%5.1f%% meanScore=%6.2f meanWin=%6.2f best=%-3d " +
+                        "deaths[trap=%d melee=%d ranged=%d] outOfSteps=%d",
+                difficulty, games, 100.0 * getWinRate(), games == 0 ? 0.0 : 100.0 * reachedLevel2 / games,
+                getMeanScore(), getMeanWinningScore(), bestScore,
+                getDeaths(DeathCause.TRAP), getDeaths(DeathCause.MELEE_MUTANT), getDeaths(DeathCause.RANGED_MUTANT),
+                outOfSteps) + (totalSeconds == 0 ? "" : String.format(" meanTime=%.0fs", getMeanSeconds()));
+    }
+}
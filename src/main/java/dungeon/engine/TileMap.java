@@ -0,0 +1,265 @@
+/** Compact square dungeon map storing one tile code byte per cell.
+ * The map is split into square chunks that are only allocated when a non-empty tile is first
+ * written to them; every unallocated chunk reads as empty. A 10x10 map is a single chunk, while a
+ * huge, sparsely populated dungeon only pays for the chunks that actually hold something.
+ * Within a chunk, cells are stored row-major, so scanning a row walks contiguous memory.
+ *
+ * Chunks are also the unit of copy-on-write: {@link #share(boolean)} hands out a map that shares
+ * every chunk with this one, and whichever map next writes to a shared chunk copies just that chunk
+ * first. Each map tags the chunks it has copied (or allocated) with its own owner token, so sharing
+ * again only needs a new token rather than a pass over the chunks; the chunk directory itself (one
+ * reference per chunk, a single one on a 10x10 map) is copied on the first write after sharing.
+ *
+ * Maps small enough for a {@link Bitboard} also keep one up to date on every write.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+public final class TileMap implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 20240531L;
+
+    /** Width and height of a chunk on maps bigger than one chunk (4 KB of tiles per chunk). */
+    static final int CHUNK_SIZE = 64;
+
+    private final int size;
+    private final int chunkSize;      // Equal to size for maps that fit in one chunk
+    private final int chunksPerSide;
+    private byte[][] chunks;          // Row-major by chunk; null means "all empty"
+    private transient Object[] owners; // Per chunk, the map allowed to write it in place; null until first shared
+    private transient Object owner;    // This map's token; tokens are never reused
+    private transient boolean directoryShared;
+    private final transient boolean frozen;
+    private transient Bitboard bitboard; // Null on maps too large for one; rebuilt after deserialising
+
+    /**
+     * Creates an empty map.
+     * @param size The width and height of the map.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    public TileMap(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Map size must be positive.");
+        }
+        this.size = size;
+        this.chunkSize = Math.min(size, CHUNK_SIZE);
+        this.chunksPerSide = (size + chunkSize - 1) / chunkSize;
+        this.chunks = new byte[chunksPerSide * chunksPerSide][];
+        this.frozen = false;
+        this.bitboard = size <= Bitboard.MAX_SIZE ? new Bitboard(size) : null;
+    }
+
+    // A map sharing the source's storage, see share()
+    private TileMap(TileMap source, boolean frozen) {
+        this.size = source.size;
+        this.chunkSize = source.chunkSize;
+        this.chunksPerSide = source.chunksPerSide;
+        this.chunks = source.chunks;
+        this.owners = source.owners;
+        this.owner = new Object();
+        this.directoryShared = true;
+        this.frozen = frozen;
+        this.bitboard = source.bitboard == null ? null : source.bitboard.copy();
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (size <= Bitboard.MAX_SIZE) {
+            Bitboard rebuilt = new Bitboard(size);
+            // A map this small is one chunk, so chunk order is row-major order
+            forEachNonEmpty((cell, code) -> rebuilt.update((int) cell, TileType.EMPTY, TileType.fromCode(code)));
+            bitboard = rebuilt;
+        }
+    }
+
+    /**
+     * Creates a map holding the same tiles as this one, sharing their storage. Neither map sees
+     * the other's later writes: each copies a shared chunk the first time it writes to it.
+     * Takes constant time however large the map is.
+     * @param frozen true for a read-only map (a snapshot), which rejects writes and which can be
+     * shared again from any thread, since sharing it does not change it.
+     * @return The new map.
+     */
+    TileMap share(boolean frozen) {
+        if (!this.frozen) {
+            if (owners == null) owners = new Object[chunks.length]; // Nothing is owned by a token yet
+            owner = new Object(); // Everything this map owned is now shared
+            directoryShared = true;
+        }
+        return new TileMap(this, frozen);
+    }
+
+    /**
+     * Builds a packed map from the old Entity[][] layout.
+     * @param map A square entity map; null cells are empty.
+     * @return The equivalent TileMap.
+     */
+    public static TileMap fromEntities(Entity[][] map) {
+        TileMap tileMap = new TileMap(map.length);
+        for (int x = 0; x < map.length; x++) {
+            for (int y = 0; y < map.length; y++) {
+                tileMap.set(x, y, TileType.of(map[x][y]));
+            }
+        }
+        return tileMap;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    public TileType get(int x, int y) {
+        byte[] chunk = chunks[chunkIndex(x, y)];
+        return chunk == null ? TileType.EMPTY : TileType.fromCode(chunk[offset(x, y)]);
+    }
+
+    /**
+     * Places a tile at a cell.
+     * @param x The row.
+     * @param y The column.
+     * @param type The tile type (EMPTY to clear the cell).
+     * @throws UnsupportedOperationException if this is a frozen snapshot's map.
+     */
+    public void set(int x, int y, TileType type) {
+        if (frozen) throw new UnsupportedOperationException("Snapshot maps are read-only.");
+        int index = chunkIndex(x, y);
+        int offset = offset(x, y);
+        byte[] chunk = chunks[index];
+        if (chunk == null) {
+            if (type == TileType.EMPTY) return; // Already empty; don't allocate
+            chunk = new byte[chunkSize * chunkSize];
+            claim(index, chunk);
+        } else if (owners != null && owners[index] != owner) {
+            if (chunk[offset] == type.getCode()) return; // No change; don't copy
+            chunk = chunk.clone();
+            claim(index, chunk);
+        }
+        if (bitboard != null) bitboard.update(x * size + y, TileType.fromCode(chunk[offset]), type);
+        chunk[offset] = type.getCode();
+    }
+
+    // Installs a chunk only this map writes to, first copying a shared directory
+    private void claim(int index, byte[] chunk) {
+        if (directoryShared) {
+            chunks = chunks.clone();
+            owners = owners.clone();
+            directoryShared = false;
+        }
+        chunks[index] = chunk;
+        if (owners != null) owners[index] = owner;
+    }
+
+    /**
+     * Empties every cell of the map, releasing all chunks.
+     * @throws UnsupportedOperationException if this is a frozen snapshot's map.
+     */
+    public void clear() {
+        if (frozen) throw new UnsupportedOperationException("Snapshot maps are read-only.");
+        if (directoryShared) {
+            chunks = new byte[chunks.length][];
+            owners = new Object[chunks.length];
+            directoryShared = false;
+        } else {
+            Arrays.fill(chunks, null);
+        }
+        if (bitboard != null) bitboard.clear();
+    }
+
+    /**
+     * Gets the bitboard view of this map, kept in step with every write.
+     * @return The view, or null if the map is larger than {@link Bitboard#MAX_SIZE}.
+     */
+    Bitboard getBitboard() {
+        return bitboard;
+    }
+
+    /**
+     * Counts the chunks that currently have storage allocated.
+     * @return The number of allocated chunks.
+     */
+    public int getAllocatedChunkCount() {
+        int count = 0;
+        for (byte[] chunk : chunks) {
+            if (chunk != null) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Receives the non-empty cells of a map, see {@link #forEachNonEmpty(CellVisitor)}.
+     */
+    @FunctionalInterface
+    interface CellVisitor {
+        void visit(long cell, byte code);
+    }
+
+    /**
+     * Gets the width and height of this map's chunks (the map size itself for a single-chunk map).
+     * @return The chunk size.
+     */
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Visits every non-empty cell in chunk order: chunks row by row, then cells row by row within a chunk.
+     * Each cell is identified by its position in that order, chunkIndex * chunkSize^2 + offset, so no
+     * coordinates are computed, and unallocated chunks are skipped without being scanned.
+     * @param visitor Called once per non-empty cell, in increasing cell order.
+     */
+    void forEachNonEmpty(CellVisitor visitor) {
+        int chunkLength = chunkSize * chunkSize;
+        for (int chunkIndex = 0; chunkIndex < chunks.length; chunkIndex++) {
+            byte[] chunk = chunks[chunkIndex];
+            if (chunk == null) continue;
+            long base = (long) chunkIndex * chunkLength;
+            for (int offset = 0; offset < chunk.length; offset++) {
+                if (chunk[offset] != 0) visitor.visit(base + offset, chunk[offset]); // 0 is TileType.EMPTY
+            }
+        }
+    }
+
+    /**
+     * Appends the symbols of part of one row (separated by spaces, as in text mode) to a builder.
+     * Runs of unallocated chunks are rendered without touching any tile storage.
+     * @param x The row to render.
+     * @param fromY The first column to render.
+     * @param toY The column after the last one to render.
+     * @param playerY The player's column if the player is on this row, otherwise -1.
+     * @param out The builder to append to.
+     */
+    void appendRow(int x, int fromY, int toY, int playerY, StringBuilder out) {
+        int y = fromY;
+        while (y < toY) {
+            byte[] chunk = chunks[chunkIndex(x, y)];
+            int chunkEnd = Math.min(toY, (y / chunkSize + 1) * chunkSize);
+            for (; y < chunkEnd; y++) {
+                char symbol = chunk == null ? TileType.EMPTY.getSymbol()
+                        : TileType.fromCode(chunk[offset(x, y)]).getSymbol();
+                out.append(y == playerY ? 'P' : symbol).append(' ');
+            }
+        }
+    }
+
+    private int chunkIndex(int x, int y) {
+        return (x / chunkSize) * chunksPerSide + (y / chunkSize);
+    }
+
+    private int offset(int x, int y) {
+        return (x % chunkSize) * chunkSize + (y % chunkSize);
+    }
+}
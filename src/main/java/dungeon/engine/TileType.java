@@ -0,0 +1,80 @@
+/** The kinds of tile a dungeon cell can hold, each with a compact one-byte code.
+ * Entities carry no per-instance state, so every tile type shares a single entity instance
+ * that supplies the interaction behaviour.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+public enum TileType {
+    EMPTY(null),
+    GOLD(new Gold()),
+    TRAP(new Trap()),
+    MELEE_MUTANT(new MeleeMutant()),
+    RANGED_MUTANT(new RangedMutant()),
+    HEALTH_POTION(new HealthPotion()),
+    LADDER(new Ladder()),
+    ENTRY(new Entry());
+
+    private static final TileType[] BY_CODE = values();
+
+    private final Entity entity;
+
+    TileType(Entity entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Gets the one-byte code stored in the packed map for this tile type.
+     * @return The tile code.
+     */
+    public byte getCode() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Gets the shared entity instance for this tile type.
+     * @return The entity, or null for an empty tile.
+     */
+    public Entity getEntity() {
+        return entity;
+    }
+
+    /**
+     * Gets the map symbol for this tile type.
+     * @return The entity's symbol, or '.' for an empty tile.
+     */
+    public char getSymbol() {
+        return entity == null ? '.' : entity.getSymbol();
+    }
+
+    /**
+     * Looks up a tile type by its packed code.
+     * @param code The tile code.
+     * @return The matching TileType.
+     */
+    public static TileType fromCode(byte code) {
+        return BY_CODE[code];
+    }
+
+    /**
+     * Finds the tile type for an entity object.
+     * @param entity The entity, or null for an empty cell.
+     * @return The matching TileType.
+     * @throws IllegalArgumentException if the entity type has no tile code.
+     */
+    public static TileType of(Entity entity) {
+        if (entity == null) return EMPTY;
+        return switch (entity) {
+            case Gold gold -> GOLD;
+            case Trap trap -> TRAP;
+            case MeleeMutant meleeMutant -> MELEE_MUTANT;
+            case RangedMutant rangedMutant -> RANGED_MUTANT;
+            case HealthPotion healthPotion -> HEALTH_POTION;
+            case Ladder ladder -> LADDER;
+            case Entry entry -> ENTRY;
+            default -> throw new IllegalArgumentException("No tile type for entity: " + entity.getClass().getSimpleName());
+        };
+    }
+}
@@ -0,0 +1,543 @@
+/** The top scores leaderboard, partitioned by difficulty and optionally persisted to a file.
+ * One instance can be shared by many GameEngines (e.g. every session of the GameServer).
+ * Each difficulty keeps its own board of up to a configurable capacity (1000 by default, up to
+ * millions), held in an OrderStatisticTree so a new score is placed, a score's place found, and any
+ * page of the board read in O(log n) without copying the board. Each difficulty also counts the score
+ * of every recorded game, on the board or not, in a second tree with one node per distinct score,
+ * which gives a game's exact rank and percentile among them all in O(log n).
+ * Each board publishes its size and lowest kept score in volatile fields, so isTopScore answers in
+ * O(1) without taking the lock.
+ *
+ * Writes go through a ReentrantLock rather than synchronized, so waiting virtual threads are not
+ * pinned to their carrier thread. A file-backed leaderboard appends each accepted score to a ScoreLog
+ * on the AsyncPersistence I/O thread, so adding a score never waits for the disk and never rewrites
+ * the board; once the log holds twice as many records as the boards and score counts it is compacted.
+ *
+ * For many threads finishing games at once (e.g. server sessions), submit never takes the lock: it
+ * drops the score into one of several lock-free queues, picked by thread so submitters rarely touch
+ * the same queue, and the I/O thread drains them all in one pass. Each pass merges its whole batch
+ * into the boards under a single lock acquisition and logs it with a single sync, so the busier the
+ * submitters, the larger the batches and the cheaper each score.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class TopScores {
+
+    public static final String DEFAULT_FILENAME = "topscores.log";
+    /** The Java-serialized top five list written by earlier versions, imported once if no log exists. */
+    public static final String LEGACY_FILENAME = "topscores.dat";
+    /** The number of scores shown as the top scores. */
+    public static final int MAX_TOP_SCORES = 5;
+    /** The default number of scores kept per difficulty. */
+    public static final int DEFAULT_CAPACITY = 1000;
+    public static final int MAX_DIFFICULTY = 10;
+    /** The partition for scores whose difficulty is not known (those imported from the legacy file). */
+    public static final int UNKNOWN_DIFFICULTY = -1;
+
+    private static final int MIN_COMPACT_RECORDS = 256;
+
+    // Ties on score and date go to the entry added first, as with the stable sort this replaced
+    private record Ranked(ScoreEntry entry, long sequence, int difficulty) implements Comparable<Ranked> {
+        @Override
+        public int compareTo(Ranked other) {
+            int order = entry.compareTo(other.entry);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Where a score stands among every recorded game on its difficulty.
+     * @param rank 1 plus the number of games with a higher score.
+     * @param games The number of games recorded.
+     * @param percentile The percentage of those games with a lower score.
+     */
+    public record Standing(long rank, long games, double percentile) {
+    }
+
+    private record Submission(int difficulty, ScoreEntry entry, CompletableFuture<Boolean> result) {
+    }
+
+    private static final class Board {
+        final OrderStatisticTree<Ranked> entries = new OrderStatisticTree<>(Comparator.naturalOrder()); // Best first
+        final OrderStatisticTree<Integer> games = new OrderStatisticTree<>(Comparator.reverseOrder()); // Every recorded score
+        volatile int size;
+        volatile int lowestKept = Integer.MIN_VALUE;
+    }
+
+    private final Path file; // null for an in-memory leaderboard
+    private final int capacity;
+    private final Board[] boards = new Board[MAX_DIFFICULTY + 2]; // Indexed by difficulty + 1
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<ConcurrentLinkedQueue<Submission>> submissions = new ArrayList<>(); // Power of two stripes
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private ScoreLog log; // Only touched on the I/O thread once the constructor has returned
+    private long sequence;
+    private long logRecords;
+
+    /**
+     * Creates a leaderboard backed by a log file keeping {@link #DEFAULT_CAPACITY} scores per difficulty,
+     * loading any scores already logged in it.
+     * @param file The log file; it is created on the first accepted score.
+     */
+    public TopScores(Path file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a leaderboard backed by a log file, loading any scores already logged in it.
+     * @param file The log file; it is created on the first accepted score.
+     * @param capacity The most scores kept per difficulty.
+     */
+    public TopScores(Path file, int capacity) {
+        this.file = Objects.requireNonNull(file, "Scores file cannot be null.");
+        this.capacity = checkCapacity(capacity);
+        initBoards();
+        load();
+    }
+
+    private TopScores(int capacity) {
+        this.file = null;
+        this.capacity = checkCapacity(capacity);
+        initBoards();
+    }
+
+    /**
+     * Creates a leaderboard keeping {@link #DEFAULT_CAPACITY} scores per difficulty that is never read
+     * from or written to disk.
+     * @return A new, empty leaderboard.
+     */
+    public static TopScores inMemory() {
+        return new TopScores(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a leaderboard that is never read from or written to disk.
+     * @param capacity The most scores kept per difficulty.
+     * @return A new, empty leaderboard.
+     */
+    public static TopScores inMemory(int capacity) {
+        return new TopScores(capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Checks whether a score would make a difficulty's board, without taking the lock.
+     * @param difficulty The difficulty played.
+     * @param score The final score; -1 (a lost game) never qualifies.
+     * @return true if the board has room, or the score beats the lowest score on it.
+     */
+    public boolean isTopScore(int difficulty, int score) {
+        if (score == -1) { // Explicitly exclude -1 scores
+            return false;
+        }
+        Board board = board(difficulty);
+        return board.size < capacity || score > board.lowestKept;
+    }
+
+    /**
+     * Finds the place on a difficulty's board a new score would take, behind any equal score already on it.
+     * @param difficulty The difficulty played.
+     * @param score The score.
+     * @return The 1-based place; more than the capacity if the score would not stay on the board.
+     */
+    public long placeFor(int difficulty, int score) {
+        Board board = board(difficulty);
+        Ranked probe = new Ranked(new ScoreEntry("", score, LocalDate.MIN), Long.MAX_VALUE, difficulty);
+        lock.lock();
+        try {
+            return board.entries.countBefore(probe) + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds where a score stands among every game recorded on a difficulty.
+     * @param difficulty The difficulty played.
+     * @param score The score.
+     * @return Its rank and percentile.
+     */
+    public Standing standing(int difficulty, int score) {
+        Board board = board(difficulty);
+        lock.lock();
+        try {
+            long games = board.games.size();
+            long higher = board.games.countBefore(score);
+            long lower = games - higher - board.games.countOf(score);
+            return new Standing(higher + 1, games, games == 0 ? 0 : 100.0 * lower / games);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a finished game's score for ranks and percentiles without putting it on the board,
+     * e.g. when it is not a top score or the player gave no name.
+     * @param difficulty The difficulty played.
+     * @param score The final score; -1 (a lost game) is not recorded.
+     */
+    public void recordGame(int difficulty, int score) {
+        if (score == -1) return;
+        Board board = board(difficulty);
+        lock.lock();
+        try {
+            board.games.add(score, 1);
+            log(List.of(new ScoreLog.Tally(difficulty, score, 1)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a finished game's score and adds it to a difficulty's board, dropping the lowest score if
+     * the board is over capacity, and logs it in the background if the leaderboard is file-backed.
+     * @param difficulty The difficulty played.
+     * @param playerName The player's name.
+     * @param score The final score; -1 (a lost game) is never added.
+     * @param date The date the score was achieved.
+     * @return true if the score made it onto the leaderboard.
+     */
+    public boolean add(int difficulty, String playerName, int score, LocalDate date) {
+        if (score == -1) {
+            Diagnostics.event(Category.SCORES, Level.DEBUG, "Attempted to add a score of -1 to top scores. Aborted.");
+            return false;
+        }
+        Board board = board(difficulty);
+        ScoreEntry entry = new ScoreEntry(playerName, score, date);
+        lock.lock();
+        try {
+            boolean kept = place(board, entry, difficulty);
+            log(List.of(record(kept, difficulty, entry)));
+            return kept;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Submits a finished game's score from any thread without waiting for the lock or the disk.
+     * The score is merged into the boards and logged by the I/O thread, batched with every other score
+     * submitted meanwhile, exactly as {@link #add(int, String, int, LocalDate)} would place it.
+     * @param difficulty The difficulty played.
+     * @param playerName The player's name.
+     * @param score The final score; -1 (a lost game) is never added.
+     * @param date The date the score was achieved.
+     * @return A future completed with whether the score made it onto the leaderboard, once it has been
+     *         logged (a failed write is reported through Diagnostics, as for add).
+     */
+    public CompletableFuture<Boolean> submit(int difficulty, String playerName, int score, LocalDate date) {
+        if (score == -1) {
+            return CompletableFuture.completedFuture(false);
+        }
+        board(difficulty); // Rejects a bad difficulty on the caller's thread
+        Submission submission = new Submission(difficulty, new ScoreEntry(playerName, score, date), new CompletableFuture<>());
+        int stripe = (int) Thread.currentThread().threadId() & (submissions.size() - 1);
+        submissions.get(stripe).add(submission);
+        if (drainScheduled.compareAndSet(false, true)) {
+            AsyncPersistence.shared().submit(() -> {
+                drainSubmissions();
+                return null;
+            });
+        }
+        return submission.result();
+    }
+
+    /**
+     * Gets the best scores on one difficulty's board.
+     * @param difficulty The difficulty.
+     * @param limit The most entries to return.
+     * @return The entries, best first.
+     */
+    public List<ScoreEntry> getTop(int difficulty, int limit) {
+        return getPage(difficulty, 0, limit);
+    }
+
+    /**
+     * Gets a page of one difficulty's board.
+     * @param difficulty The difficulty.
+     * @param from The 0-based place of the first entry.
+     * @param limit The most entries to return.
+     * @return The entries, best first; empty if from is past the end of the board.
+     */
+    public List<ScoreEntry> getPage(int difficulty, int from, int limit) {
+        Board board = board(difficulty);
+        lock.lock();
+        try {
+            List<Ranked> page = board.entries.range(from, limit);
+            List<ScoreEntry> entries = new ArrayList<>(page.size());
+            for (Ranked ranked : page) entries.add(ranked.entry());
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the best scores across every difficulty.
+     * @param limit The most entries to return.
+     * @return The entries, best first.
+     */
+    public List<ScoreEntry> getTop(int limit) {
+        lock.lock();
+        try {
+            List<Ranked> merged = new ArrayList<>();
+            for (Board board : boards) { // Only the first limit of each board can make the merged list
+                merged.addAll(board.entries.range(0, limit));
+            }
+            merged.sort(Comparator.naturalOrder());
+            List<ScoreEntry> top = new ArrayList<>(Math.min(limit, merged.size()));
+            for (int i = 0; i < limit && i < merged.size(); i++) top.add(merged.get(i).entry());
+            return top;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the overall leaderboard across every difficulty.
+     * @return The best {@link #MAX_TOP_SCORES} entries, best first.
+     */
+    public List<ScoreEntry> getEntries() {
+        return getTop(MAX_TOP_SCORES);
+    }
+
+    /**
+     * Counts the scores on one difficulty's board.
+     * @param difficulty The difficulty.
+     * @return The number of entries kept, at most the capacity.
+     */
+    public int size(int difficulty) {
+        return board(difficulty).size;
+    }
+
+    /**
+     * Waits until every score added or submitted so far has been logged.
+     * @return A future completed on the I/O thread once the log is up to date.
+     */
+    public CompletableFuture<Void> flush() {
+        // The first task runs after any pending drain, the second after the append that drain queued
+        AsyncPersistence io = AsyncPersistence.shared();
+        return io.submit(() -> null).thenCompose(ignored -> io.submit(() -> null));
+    }
+
+    // Runs on the I/O thread: merges every queued submission as one batch
+    private void drainSubmissions() {
+        drainScheduled.set(false); // A submission queued from here on schedules the next drain
+        List<Submission> batch = new ArrayList<>();
+        for (ConcurrentLinkedQueue<Submission> stripe : submissions) {
+            for (Submission next; (next = stripe.poll()) != null; ) batch.add(next);
+        }
+        if (batch.isEmpty()) return;
+        boolean[] kept = new boolean[batch.size()];
+        List<ScoreLog.Record> records = new ArrayList<>(batch.size());
+        CompletableFuture<Void> logged;
+        lock.lock();
+        try {
+            for (int i = 0; i < kept.length; i++) {
+                Submission submission = batch.get(i);
+                kept[i] = place(board(submission.difficulty()), submission.entry(), submission.difficulty());
+                records.add(record(kept[i], submission.difficulty(), submission.entry()));
+            }
+            logged = log(records);
+        } finally {
+            lock.unlock();
+        }
+        logged.whenComplete((ignored, error) -> {
+            for (int i = 0; i < kept.length; i++) batch.get(i).result().complete(kept[i]);
+        });
+    }
+
+    // Called with the lock held: counts the game and puts it on the board if it makes it
+    private boolean place(Board board, ScoreEntry entry, int difficulty) {
+        board.games.add(entry.getScore(), 1);
+        // Below the cut-off the board is not touched; a tie still needs the date comparison
+        return !(board.size >= capacity && entry.getScore() < board.lowestKept) && insert(board, entry, difficulty);
+    }
+
+    private static ScoreLog.Record record(boolean kept, int difficulty, ScoreEntry entry) {
+        return kept ? new ScoreLog.Entry(difficulty, entry) : new ScoreLog.Tally(difficulty, entry.getScore(), 1);
+    }
+
+    // Called with the lock held (or from the constructor); true if the entry stayed on the board
+    private boolean insert(Board board, ScoreEntry entry, int difficulty) {
+        Ranked ranked = new Ranked(entry, sequence++, difficulty);
+        board.entries.add(ranked, 1);
+        boolean kept = true;
+        if (board.entries.size() > capacity) {
+            kept = board.entries.removeLast() != ranked;
+        }
+        board.size = (int) board.entries.size();
+        board.lowestKept = board.entries.last().entry().getScore();
+        return kept;
+    }
+
+    // Called with the lock held, so records are queued for the I/O thread in the order they were added
+    private CompletableFuture<Void> log(List<? extends ScoreLog.Record> records) {
+        if (file == null) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> logged = AsyncPersistence.shared().submit(() -> {
+            log.append(records);
+            return null;
+        });
+        logged.whenComplete((ignored, error) -> {
+            if (error != null) {
+                Diagnostics.event(Category.SCORES, Level.ERROR, "Error saving top scores: {}", error.getMessage());
+            }
+        });
+        logRecords += records.size();
+        if (logRecords > Math.max(MIN_COMPACT_RECORDS, 2L * (totalSize() + distinctScores()))) {
+            compact();
+        }
+        return logged.exceptionally(error -> null); // Already reported
+    }
+
+    // Called with the lock held: rewrites the log with a tally of the recorded games not on a board,
+    // then the kept entries in the order they were added
+    private void compact() {
+        List<ScoreLog.Record> records = new ArrayList<>(totalSize() + distinctScores());
+        List<Ranked> kept = new ArrayList<>(totalSize());
+        for (int i = 0; i < boards.length; i++) {
+            int difficulty = i - 1;
+            Board board = boards[i];
+            Map<Integer, Long> onBoard = new HashMap<>();
+            board.entries.forEachDistinct((ranked, count) -> {
+                kept.add(ranked);
+                onBoard.merge(ranked.entry().getScore(), count, Long::sum);
+            });
+            board.games.forEachDistinct((score, count) -> {
+                long offBoard = count - onBoard.getOrDefault(score, 0L);
+                if (offBoard > 0) records.add(new ScoreLog.Tally(difficulty, score, offBoard));
+            });
+        }
+        kept.sort(Comparator.comparingLong(Ranked::sequence));
+        for (Ranked ranked : kept) {
+            records.add(new ScoreLog.Entry(ranked.difficulty(), ranked.entry()));
+        }
+        logRecords = records.size();
+        AsyncPersistence.shared().submit(() -> {
+            log.rewrite(records);
+            return null;
+        }).whenComplete((ignored, error) -> {
+            if (error != null) {
+                Diagnostics.event(Category.SCORES, Level.ERROR, "Error compacting top scores: {}", error.getMessage());
+            } else {
+                Diagnostics.event(Category.SCORES, Level.INFO, "Top scores log compacted to {} entries.", records.size());
+            }
+        });
+    }
+
+    private int totalSize() {
+        int total = 0;
+        for (Board board : boards) total += board.size;
+        return total;
+    }
+
+    private int distinctScores() {
+        int total = 0;
+        for (Board board : boards) total += board.games.distinct();
+        return total;
+    }
+
+    private void load() {
+        List<ScoreLog.Record> records = new ArrayList<>();
+        Path legacy = file.resolveSibling(LEGACY_FILENAME);
+        try {
+            log = ScoreLog.open(file, records);
+        } catch (IOException e) {
+            Diagnostics.event(Category.SCORES, Level.WARN, "Error loading top scores: {}", e.getMessage());
+            log = ScoreLog.empty(file);
+            return;
+        }
+        if (records.isEmpty() && !Files.exists(file) && Files.exists(legacy)) {
+            importLegacy(legacy);
+            return;
+        }
+        for (ScoreLog.Record record : records) {
+            if (!validDifficulty(record.difficulty())) continue;
+            Board board = board(record.difficulty());
+            switch (record) {
+                case ScoreLog.Entry(int difficulty, ScoreEntry entry) -> {
+                    board.games.add(entry.getScore(), 1);
+                    insert(board, entry, difficulty);
+                }
+                case ScoreLog.Tally(int difficulty, int score, long count) -> board.games.add(score, count);
+            }
+        }
+        logRecords = records.size();
+        Diagnostics.event(Category.SCORES, Level.INFO, "Top scores loaded from {}. Count: {}", file, totalSize());
+    }
+
+    // The legacy file is left in place, so an older version of the game still finds its scores
+    private void importLegacy(Path legacy) {
+        try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(legacy))) {
+            Object loadedObject = ois.readObject();
+            if (!(loadedObject instanceof List<?> list)) {
+                Diagnostics.event(Category.SCORES, Level.WARN, "Error loading top scores: File content is not a List.");
+                return;
+            }
+            for (Object item : list) {
+                if (item instanceof ScoreEntry entry) {
+                    board(UNKNOWN_DIFFICULTY).games.add(entry.getScore(), 1);
+                    insert(board(UNKNOWN_DIFFICULTY), entry, UNKNOWN_DIFFICULTY);
+                }
+            }
+            Diagnostics.event(Category.SCORES, Level.INFO, "Top scores imported from {}. Count: {}", legacy, totalSize());
+            compact();
+        } catch (IOException | ClassNotFoundException e) {
+            Diagnostics.event(Category.SCORES, Level.WARN, "Error loading top scores: {}", e.getMessage());
+        }
+    }
+
+    private Board board(int difficulty) {
+        if (!validDifficulty(difficulty)) {
+            throw new IllegalArgumentException("Difficulty must be " + UNKNOWN_DIFFICULTY + " to " + MAX_DIFFICULTY + ".");
+        }
+        return boards[difficulty + 1];
+    }
+
+    private static boolean validDifficulty(int difficulty) {
+        return difficulty >= UNKNOWN_DIFFICULTY && difficulty <= MAX_DIFFICULTY;
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        return capacity;
+    }
+
+    private void initBoards() {
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new Board();
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = Integer.highestOneBit(processors * 2 - 1); // The power of two at or above processors
+        for (int i = 0; i < stripes; i++) {
+            submissions.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/** Kinds of event a single turn can produce, recorded as codes and formatted into text only on demand.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+public enum TurnEvent {
+    MOVED,          // a = Direction ordinal
+    OUT_OF_BOUNDS,
+    INTERACTION,    // text = the entity's interaction message
+    TRAP_FATAL,
+    RANGED_HIT,     // a, b = the mutant's position
+    RANGED_MISS,    // a, b = the mutant's position
+    RANGED_FATAL,
+    CANNOT_MOVE,
+    MESSAGE;        // text = a free-form message
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Builds the player-facing message for an event of this kind.
+     *
+     * @param a The first int argument.
+     * @param b The second int argument.
+     * @param text The text argument.
+     * @return The message, worded as the game has always shown it.
+     */
+    public String format(int a, int b, String text) {
+        return switch (this) {
+            case MOVED -> "You moved " + DIRECTIONS[a].name().toLowerCase() + ".";
+            case OUT_OF_BOUNDS -> "Invalid move: you tried to move out of bounds.";
+            case INTERACTION, MESSAGE -> text;
+            case TRAP_FATAL -> "The trap was fatal!";
+            case RANGED_HIT -> "A ranged mutant at (" + a + "," + b + ") hit you! -2 HP.";
+            case RANGED_MISS -> "A ranged mutant at (" + a + "," + b + ") attacked but missed.";
+            case RANGED_FATAL -> "The ranged attack was fatal!";
+            case CANNOT_MOVE -> "Cannot move, player is not active or null.";
+        };
+    }
+}
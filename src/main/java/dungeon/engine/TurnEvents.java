@@ -0,0 +1,98 @@
+/** Reusable buffer of the events produced by the current turn.
+ * Events are stored as a kind, two ints and an optional reference to an existing string in
+ * parallel arrays that are cleared rather than reallocated, so recording a turn allocates nothing.
+ * Text is only built when a consumer such as the GUI status area or text mode asks for it.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+public final class TurnEvents {
+
+    private static final int INITIAL_CAPACITY = 8; // Enough for a move, an interaction and a few ranged attacks
+
+    private TurnEvent[] kinds = new TurnEvent[INITIAL_CAPACITY];
+    private int[] args = new int[INITIAL_CAPACITY * 2];
+    private String[] texts = new String[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(TurnEvent kind) {
+        add(kind, 0, 0, null);
+    }
+
+    public void add(TurnEvent kind, int a, int b) {
+        add(kind, a, b, null);
+    }
+
+    public void add(TurnEvent kind, String text) {
+        add(kind, 0, 0, text);
+    }
+
+    private void add(TurnEvent kind, int a, int b, String text) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            args = Arrays.copyOf(args, size * 4);
+            texts = Arrays.copyOf(texts, size * 2);
+        }
+        kinds[size] = kind;
+        args[size * 2] = a;
+        args[size * 2 + 1] = b;
+        texts[size] = text;
+        size++;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public TurnEvent getKind(int index) { return kinds[checkIndex(index)]; }
+    public int getA(int index) { return args[checkIndex(index) * 2]; }
+    public int getB(int index) { return args[checkIndex(index) * 2 + 1]; }
+
+    /**
+     * Checks whether an event of the given kind was recorded this turn.
+     * @param kind The kind to look for.
+     * @return true if at least one such event is in the buffer.
+     */
+    public boolean contains(TurnEvent kind) {
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == kind) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Formats one event into its player-facing message.
+     * @param index The event's position in this turn.
+     * @return The message.
+     */
+    public String format(int index) {
+        return kinds[checkIndex(index)].format(args[index * 2], args[index * 2 + 1], texts[index]);
+    }
+
+    /**
+     * Formats every event, in the order they happened.
+     * @return A new list of messages.
+     */
+    public List<String> formatAll() {
+        List<String> messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) messages.add(format(i));
+        return messages;
+    }
+
+    /**
+     * Empties the buffer, keeping its storage for the next turn.
+     */
+    public void clear() {
+        Arrays.fill(texts, 0, size, null); // Don't hold on to old message strings
+        size = 0;
+    }
+
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+}
@@ -7,6 +7,9 @@
  */
 package dungeon.gui;
 
+import dungeon.engine.Diagnostics;
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
 import dungeon.engine.Entity;
 import dungeon.engine.Gold;
 import dungeon.engine.HealthPotion;
@@ -42,8 +45,8 @@ public class Cell extends StackPane {
         // Preload the image for empty cells (your "dungeon.png")
         emptyCellImage = loadImage(IMAGE_BASE_PATH + "dungeon.png");
         if (emptyCellImage == null) {
-            System.err.println("CRITICAL WARNING: Default empty cell image (dungeon.png) not found at " +
-                    IMAGE_BASE_PATH + "dungeon.png. Check resource path and file name.");
+            Diagnostics.event(Category.GUI, Level.ERROR, "Default empty cell image (dungeon.png) not found at {}dungeon.png. " +
+                    "Check resource path and file name.", IMAGE_BASE_PATH);
         }
     }
 
@@ -54,33 +57,33 @@ public class Cell extends StackPane {
      * @return The loaded Image object, or null if not found or on error.
      */
     private static Image loadImage(String resourcePath) {
-        // This debug line helps verify the path being attempted for loading.
-        System.out.println("DEBUG Cell.loadImage: Attempting to load resourcePath: [" + resourcePath + "]");
-
         if (imageCache.containsKey(resourcePath)) {
             Image cachedImage = imageCache.get(resourcePath);
             // If null was cached due to a previous load failure, return null to avoid re-attempting.
             return cachedImage;
         }
+        // Only reached once per image; cache hits on every redraw stay silent
+        Diagnostics.event(Category.GUI, Level.DEBUG, "Cell.loadImage: Loading resourcePath: [{}]", resourcePath);
         try {
             // Cell.class.getResourceAsStream() loads resources from the classpath.
             Image image = new Image(Objects.requireNonNull(Cell.class.getResourceAsStream(resourcePath)));
             if (image.isError()) {
-                System.err.println("Failed to load image: [" + resourcePath + "] - " + image.getException().getMessage());
+                Diagnostics.event(Category.GUI, Level.ERROR, "Failed to load image: [{}] - {}", resourcePath,
+                        image.getException().getMessage());
                 imageCache.put(resourcePath, null); // Cache null to indicate failure
                 return null;
             }
             imageCache.put(resourcePath, image); // Cache successfully loaded image
             return image;
         } catch (NullPointerException e) {
-            System.err.println("Error: Image resource not found at path: [" + resourcePath + "]. " +
+            Diagnostics.event(Category.GUI, Level.ERROR, "Image resource not found at path: [{}]. " +
                     "Ensure path is correct (starts with '/' for classpath root) " +
-                    "and image is in the resources folder and included in the build.");
+                    "and image is in the resources folder and included in the build.", resourcePath);
             imageCache.put(resourcePath, null);
             return null;
         } catch (Exception e) {
-            System.err.println("Unexpected error loading image resource: [" + resourcePath + "] - " + e.getMessage());
-            e.printStackTrace(); // Print full trace for other unexpected errors
+            // Passing the exception itself also writes its full trace
+            Diagnostics.event(Category.GUI, Level.ERROR, "Unexpected error loading image resource: [{}] - {}", resourcePath, e);
             imageCache.put(resourcePath, null);
             return null;
         }
@@ -131,7 +134,8 @@ public class Cell extends StackPane {
                 case HealthPotion healthPotion -> imageFileName = "healthpotion.png"; // Your specified name
                 case Entry entry -> imageFileName = "entry.png"; // Assuming you have/want entry.png
                 default ->
-                        System.err.println("Cell.setVisual: Unknown entity type, cannot determine image - " + entity.getClass().getSimpleName());
+                        Diagnostics.event(Category.GUI, Level.WARN, "Cell.setVisual: Unknown entity type, cannot determine image - {}",
+                                entity.getClass().getSimpleName());
             }
         }
 
@@ -7,18 +7,34 @@
  */
 package dungeon.gui;
 
+import dungeon.engine.AsyncPersistence;
+import dungeon.engine.Diagnostics;
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
 import dungeon.engine.Direction;
 import dungeon.engine.Entity;
 import dungeon.engine.GameEngine;
+import dungeon.engine.GameHistory;
+import dungeon.engine.GameState;
+import dungeon.engine.HintService;
+import dungeon.engine.MctsMovePolicy;
 import dungeon.engine.Player;
+import dungeon.engine.Replay;
+import dungeon.engine.ReplayPlayer;
 import dungeon.engine.ScoreEntry;
+import dungeon.engine.TileMap;
+import dungeon.engine.TopScores;
 
 import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextInputDialog;
@@ -31,11 +47,17 @@ import javafx.scene.text.Font;
 import javafx.util.Duration;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 public class Controller implements Initializable {
 
@@ -53,13 +75,36 @@ public class Controller implements Initializable {
     @FXML private TextArea statusTextArea;
     @FXML private Button saveButton;
     @FXML private Button loadButton;
+    @FXML private Button replayButton;
+    @FXML private Button undoButton;
+    @FXML private Button redoButton;
+    @FXML private Button autoPlayButton;
+    @FXML private Button hintButton;
+    @FXML private Label hintLabel;
 
     // --- Game Logic and State ---
     private GameEngine engine;
     private Timeline timeline;
     private int elapsedTime;
+    private int gameSeconds; // Unlike elapsedTime, not reset by a level change
+    private boolean gameRecorded; // Whether the finished game is already in the history
+    private boolean savedGameAvailable; // Checked once, then kept up to date by saves, instead of on every redraw
+    private boolean replaying; // While true, engine is a ReplayPlayer's and input is ignored
+    // Unlimited undo: each point is a copy-on-write snapshot, so one per move costs only what the move changed
+    private final Deque<GameEngine.UndoPoint> undoStack = new ArrayDeque<>();
+    private final Deque<GameEngine.UndoPoint> redoStack = new ArrayDeque<>();
+    private final GameHistory history = new GameHistory(Path.of(GameHistory.DEFAULT_FILENAME));
+    private final MctsMovePolicy autoPlayer = new MctsMovePolicy(System.nanoTime());
+    private boolean autoPlaying;
+    private CompletableFuture<Direction> autoMove; // The auto-player's search in progress, if any; only one at a time
+    private final HintService hints = new HintService(Platform::runLater, this::showHint);
+    private boolean hintsShown;
 
     private static final String SAVE_FILENAME = "minidungeon.save";
+    private static final int TOP_SCORES_PAGE_SIZE = 10;
+    private static final List<String> REPLAY_SPEEDS = List.of("1 move/s", "4 moves/s", "16 moves/s", "Instant (verify only)");
+    private static final double[] REPLAY_MOVES_PER_SECOND = {1, 4, 16, 0};
+    private static final double AUTO_PLAY_PAUSE_SECONDS = 0.25; // Between auto-played moves, so they can be followed
 
     /**
      * Initializes the controller class.
@@ -67,7 +112,13 @@ public class Controller implements Initializable {
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         gridPane.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
-            if (engine == null || engine.isGameOver() || engine.hasWonGame()) return;
+            if (engine == null || replaying || engine.isGameOver() || engine.hasWonGame()) return;
+            if (e.isShortcutDown() && (e.getCode() == KeyCode.Z || e.getCode() == KeyCode.Y)) {
+                if (e.getCode() == KeyCode.Y || e.isShiftDown()) handleRedo();
+                else handleUndo();
+                e.consume();
+                return;
+            }
             Direction dir = null;
             if (e.getCode() == KeyCode.W || e.getCode() == KeyCode.UP) dir = Direction.UP;
             else if (e.getCode() == KeyCode.S || e.getCode() == KeyCode.DOWN) dir = Direction.DOWN;
@@ -77,9 +128,10 @@ public class Controller implements Initializable {
         });
         gridPane.setFocusTraversable(true);
 
-        File saveFile = new File(SAVE_FILENAME);
-        if (loadButton != null) loadButton.setDisable(!saveFile.exists());
+        savedGameAvailable = new File(SAVE_FILENAME).exists();
+        if (loadButton != null) loadButton.setDisable(!savedGameAvailable);
         if (saveButton != null) saveButton.setDisable(true);
+        if (replayButton != null) replayButton.setDisable(!new File(Replay.DEFAULT_FILENAME).exists());
     }
 
     /**
@@ -88,24 +140,42 @@ public class Controller implements Initializable {
      */
     public void setInitialDifficulty(int difficulty) {
         engine = new GameEngine(difficulty);
-        engine.startNewGame();
+        boolean recover = engine.hasJournal() && confirmRecovery();
+        engine.setJournaling(true); // Autosave every move, so a crash doesn't lose the run
+        boolean recovered = recover && engine.recoverFromJournal();
+        if (!recovered) engine.startNewGame();
+        undoStack.clear();
+        redoStack.clear();
+        gameSeconds = 0;
+        gameRecorded = false;
 
         resetAndStartTimer();
         updateGui();
         gridPane.setDisable(false);
         if (statusTextArea != null) statusTextArea.clear();
-        appendToStatus("Game started. Level 1. Difficulty: " + engine.getState().getDifficulty());
+        appendToStatus((recovered ? "Recovered unfinished game. Level " + engine.getState().getLevel() : "Game started. Level 1")
+                + ". Difficulty: " + engine.getState().getDifficulty());
         gridPane.requestFocus();
 
+        savedGameAvailable = engine.hasSavedGame();
         if (saveButton != null) saveButton.setDisable(false);
-        if (loadButton != null) loadButton.setDisable(!new File(SAVE_FILENAME).exists());
+        if (loadButton != null) loadButton.setDisable(!savedGameAvailable);
+    }
+
+    private boolean confirmRecovery() {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Unfinished Game");
+        alert.setHeaderText("Your last game did not finish.");
+        alert.setContentText("Continue it where you left off? (Cancel starts a new game.)");
+        Optional<ButtonType> answer = alert.showAndWait();
+        return answer.isPresent() && answer.get() == ButtonType.OK;
     }
 
     private void resetAndStartTimer() {
         if (timeline != null) timeline.stop();
         elapsedTime = 0;
         timeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
-            elapsedTime++; updateTimerLabel();
+            elapsedTime++; gameSeconds++; updateTimerLabel();
         }));
         timeline.setCycleCount(Timeline.INDEFINITE);
         timeline.play();
@@ -123,20 +193,22 @@ public class Controller implements Initializable {
      */
     private void updateGui() {
         if (engine == null || engine.getState() == null) {
-            System.err.println("Controller.updateGui: Engine or game state not initialized."); // Kept for critical errors
+            Diagnostics.event(Category.GUI, Level.ERROR, "Controller.updateGui: Engine or game state not initialized.");
             if (saveButton != null) saveButton.setDisable(true);
             return;
         }
 
         gridPane.getChildren().clear();
-        Entity[][] entityMap = engine.getMapEntities();
+        GameState state = engine.getState();
+        int mapSize = state.getMapSize();
         int playerX = engine.getPlayerX();
         int playerY = engine.getPlayerY();
-        for (int r = 0; r < entityMap.length; r++) {
-            for (int c = 0; c < entityMap[r].length; c++) {
+        TileMap tiles = state.getTileMap();
+        for (int r = 0; r < mapSize; r++) {
+            for (int c = 0; c < mapSize; c++) {
                 Cell guiCell = new Cell();
                 boolean isPlayerCurrentlyOnCell = (r == playerX && c == playerY);
-                Entity currentEntityOnCell = entityMap[r][c];
+                Entity currentEntityOnCell = tiles.get(r, c).getEntity();
                 guiCell.setVisual(currentEntityOnCell, isPlayerCurrentlyOnCell);
                 gridPane.add(guiCell, c, r);
             }
@@ -151,12 +223,17 @@ public class Controller implements Initializable {
         if (levelLabel != null) levelLabel.setText("Level: " + engine.getState().getLevel());
         if (difficultyLabel != null) difficultyLabel.setText("Difficulty: " + engine.getState().getDifficulty());
 
+        if (replaying) return; // The replay player advances levels itself, and a replay's end is not a game's end
+
         boolean gameIsEffectivelyOver = engine.isGameOver() || engine.hasWonGame();
         if (saveButton != null) saveButton.setDisable(gameIsEffectivelyOver);
+        if (autoPlayButton != null) autoPlayButton.setDisable(gameIsEffectivelyOver);
         if (gridPane != null) gridPane.setDisable(gameIsEffectivelyOver);
         if (loadButton != null) {
-            loadButton.setDisable(!new File(SAVE_FILENAME).exists());
+            loadButton.setDisable(!savedGameAvailable);
         }
+        updateUndoButtons();
+        requestHint();
 
         if (engine.isGameOver()) {
             if (timeline != null) timeline.stop();
@@ -194,6 +271,13 @@ public class Controller implements Initializable {
      * Processes end of game: checks top score, shows alerts.
      */
     private void processEndOfGame(int finalScore, boolean wonGame) {
+        saveReplay();
+        GameHistory.Entry entry = engine.describeFinishedGame(gameSeconds);
+        if (entry != null && !gameRecorded) {
+            history.submit(entry);
+            gameRecorded = true;
+        }
+        boolean named = false; // A named score counts towards the ranks whether or not it stays on the board
         if (finalScore != -1 && engine.isTopScore(finalScore)) {
             TextInputDialog nameDialog = new TextInputDialog("Player");
             nameDialog.setTitle("New High Score!");
@@ -204,11 +288,18 @@ public class Controller implements Initializable {
             if (nameResult.isPresent() && !nameResult.get().trim().isEmpty()) {
                 String playerName = nameResult.get().trim();
                 engine.addPlayerScore(playerName, finalScore, LocalDate.now());
+                named = true;
                 appendToStatus("Your score of " + finalScore + " as '" + playerName + "' has been saved to the Top 5!");
             } else {
                 appendToStatus("You achieved a Top 5 score (" + finalScore + "), but no name was entered. Score not saved.");
             }
         }
+        if (finalScore != -1) {
+            if (!named) engine.recordScore(finalScore); // Still counts towards everyone's rank
+            TopScores.Standing standing = engine.getStanding(finalScore);
+            appendToStatus(String.format("Rank %d of %d games at difficulty %d (better than %.1f%%).",
+                    standing.rank(), standing.games(), engine.getInitialDifficulty(), standing.percentile()));
+        }
 
         if (wonGame) {
             showWinAlert(finalScore);
@@ -219,22 +310,24 @@ public class Controller implements Initializable {
     }
 
     /**
-     * Appends messages to the GUI status area and console.
+     * Appends messages to the GUI status area (and the GUI diagnostics at DEBUG level).
      */
     private void appendToStatus(String message) {
         if (statusTextArea != null) {
             statusTextArea.appendText(message + "\n");
         }
-        System.out.println("GUI_STATUS: " + message); // Keep as a fallback log
+        Diagnostics.event(Category.GUI, Level.DEBUG, "GUI_STATUS: {}", message);
     }
 
     /**
      * Processes player movement.
      */
     private void processMove(Direction direction) {
-        if (engine == null || engine.isGameOver() || engine.hasWonGame()) {
+        if (engine == null || replaying || engine.isGameOver() || engine.hasWonGame()) {
             return;
         }
+        undoStack.push(engine.createUndoPoint());
+        redoStack.clear(); // A new move starts a new line of play
         List<String> messagesFromMove = engine.handlePlayerMove(direction);
         for (String msg : messagesFromMove) {
             appendToStatus(msg);
@@ -297,6 +390,16 @@ public class Controller implements Initializable {
                 Game Features:
                 - Save Game: Saves your current progress (single save file).
                 - Load Game: Loads your previously saved game.
+                - Undo / Redo: Take back moves (Ctrl+Z) and play them again (Ctrl+Y) as often as you like \
+                while the game is in progress.
+                - Autosave: Every move is recorded, so if the game closes unexpectedly you can continue it next time.
+                - Replay Last Game: Plays your last finished game back move by move at the speed you choose, \
+                and checks that it ends exactly as it did.
+                - Auto-play: Lets the computer play for you until you press Stop Auto-play. It tries \
+                thousands of random continuations before each move; you can still move by hand meanwhile.
+                - Hint: Shows the best next move above the board, worked out while you think and updated \
+                as it looks further ahead. It counts on the worst luck with ranged mutants, so the score \
+                and HP shown are what you are sure to reach the ladder with.
                 
                 Good luck exploring the MiniDungeon!""";
         alert.setContentText(helpText);
@@ -306,25 +409,32 @@ public class Controller implements Initializable {
     }
 
     /**
-     * Handles the Save Game action.
+     * Handles the Save Game action. The game is written in the background, so play carries on meanwhile.
      */
     @FXML
     private void handleSaveGame() { // Kept ActionEvent
-        if (engine != null && !engine.isGameOver() && !engine.hasWonGame()) {
-            engine.saveGameState();
-        } else {
+        if (engine == null || engine.isGameOver() || engine.hasWonGame()) {
             appendToStatus("Cannot save: Game is over or not properly started.");
+            gridPane.requestFocus();
+            return;
         }
-        List<String> saveMessages = engine.getState().getAndClearTurnMessages();
-        for (String msg : saveMessages) {
-            appendToStatus(msg);
-        }
-        // updateGui(); // Only call if save operation could change GUI state beyond messages
+        if (saveButton != null) saveButton.setDisable(true); // One save at a time
+        GameEngine savingEngine = engine;
+        savingEngine.saveGameStateAsync(Platform::runLater).thenAccept(saved -> {
+            if (saved) {
+                savedGameAvailable = true;
+                if (loadButton != null) loadButton.setDisable(false);
+            }
+            if (saveButton != null) saveButton.setDisable(savingEngine.isGameOver() || savingEngine.hasWonGame());
+            for (String msg : savingEngine.getState().getAndClearTurnMessages()) {
+                appendToStatus(msg);
+            }
+        });
         gridPane.requestFocus();
     }
 
     /**
-     * Handles the Load Game action.
+     * Handles the Load Game action. The file is read in the background and the game is swapped in once it is ready.
      */
     @FXML
     private void handleLoadGame() { // Kept ActionEvent
@@ -332,12 +442,18 @@ public class Controller implements Initializable {
             appendToStatus("Cannot load: Game engine not ready.");
             return;
         }
-        boolean loaded = engine.loadGameState();
-        if (loaded) {
-            resetAndStartTimer();
-        }
-        updateGui(); // Always update GUI after load attempt to show new state or error messages
-        gridPane.requestFocus();
+        if (loadButton != null) loadButton.setDisable(true); // One load at a time
+        engine.loadGameStateAsync(Platform::runLater).thenAccept(loaded -> {
+            if (loaded) {
+                undoStack.clear();
+                redoStack.clear();
+                gameSeconds = 0;
+                gameRecorded = false;
+                resetAndStartTimer();
+            }
+            updateGui(); // Always update GUI after load attempt to show new state or error messages
+            gridPane.requestFocus();
+        });
     }
 
     /**
@@ -354,7 +470,7 @@ public class Controller implements Initializable {
         }
         try {
             alert.showAndWait();
-        } catch (Exception e) { e.printStackTrace(); }
+        } catch (Exception e) { Diagnostics.event(Category.GUI, Level.ERROR, "Alert failed: {}", e); }
     }
 
     /**
@@ -367,11 +483,11 @@ public class Controller implements Initializable {
         alert.setContentText("You've successfully escaped the dungeon from Level 2!\nFinal Score: " + finalScore);
         try {
             alert.showAndWait();
-        } catch (Exception e) { e.printStackTrace(); }
+        } catch (Exception e) { Diagnostics.event(Category.GUI, Level.ERROR, "Alert failed: {}", e); }
     }
 
     /**
-     * Shows the top scores dialog.
+     * Shows the top scores dialog, a page at a time with Previous and Next buttons.
      */
     @FXML
     private void showTopScoresDialog() { // Kept ActionEvent
@@ -379,51 +495,314 @@ public class Controller implements Initializable {
             appendToStatus("Game engine not ready to show top scores.");
             return;
         }
-        List<ScoreEntry> scores = engine.getTopScores();
-        StringBuilder sb = new StringBuilder();
-        if (scores.isEmpty()) {
-            sb.append("No high scores recorded yet!");
+        ButtonType earlierButton = new ButtonType("Earlier Scores");
+        ButtonType currentButton = new ButtonType("Difficulty " + engine.getInitialDifficulty());
+        boolean hasEarlier = engine.getEarlierTopScoreCount() > 0; // Imported from an older version's top five
+        boolean earlier = false;
+        int from = 0;
+        while (true) {
+            int total = earlier ? engine.getEarlierTopScoreCount() : engine.getTopScoreCount();
+            List<ScoreEntry> scores = earlier // Only this page is copied
+                    ? engine.getEarlierTopScores(from, TOP_SCORES_PAGE_SIZE)
+                    : engine.getTopScores(from, TOP_SCORES_PAGE_SIZE);
+            StringBuilder sb = new StringBuilder();
+            if (scores.isEmpty()) {
+                sb.append("No high scores recorded yet!");
+            } else {
+                sb.append(String.format("%-7s %-10s %-20s %s\n", "Rank", "Score", "Player", "Date"));
+                sb.append("-----------------------------------------------------------\n");
+                for (int i = 0; i < scores.size(); i++) {
+                    ScoreEntry entry = scores.get(i);
+                    sb.append(String.format("#%-6d %-10d %-20s %s\n",
+                            from + i + 1,
+                            entry.getScore(),
+                            entry.getPlayerName(),
+                            entry.getFormattedDate()));
+                }
+            }
+
+            List<ButtonType> buttons = new ArrayList<>();
+            if (from > 0) buttons.add(ButtonType.PREVIOUS);
+            if (from + TOP_SCORES_PAGE_SIZE < total) buttons.add(ButtonType.NEXT);
+            if (hasEarlier) buttons.add(earlier ? currentButton : earlierButton);
+            buttons.add(ButtonType.CLOSE);
+            Alert alert = new Alert(Alert.AlertType.INFORMATION, "", buttons.toArray(new ButtonType[0]));
+            alert.setTitle("Top Scores");
+            alert.setHeaderText((earlier ? "Hall of Fame - Earlier Scores" : "Hall of Fame - Difficulty " + engine.getInitialDifficulty())
+                    + (scores.isEmpty() ? "" : " (" + (from + 1) + "-" + (from + scores.size()) + " of " + total + ")"));
+
+            TextArea textArea = new TextArea(sb.toString());
+            textArea.setEditable(false);
+            textArea.setWrapText(false);
+            textArea.setFont(Font.font("Monospaced", 12));
+
+            textArea.setMaxWidth(Double.MAX_VALUE);
+            textArea.setMaxHeight(Double.MAX_VALUE);
+            GridPane.setVgrow(textArea, Priority.ALWAYS);
+            GridPane.setHgrow(textArea, Priority.ALWAYS);
+
+            GridPane expandableContent = new GridPane();
+            expandableContent.setMaxWidth(Double.MAX_VALUE);
+            expandableContent.add(textArea, 0, 0);
+
+            alert.getDialogPane().setExpandableContent(expandableContent);
+            alert.getDialogPane().setExpanded(true);
+            alert.getDialogPane().setPrefSize(500, 350);
+            alert.setResizable(true);
+
+            Optional<ButtonType> choice = alert.showAndWait();
+            if (choice.isPresent() && choice.get() == ButtonType.NEXT) {
+                from += TOP_SCORES_PAGE_SIZE;
+            } else if (choice.isPresent() && choice.get() == ButtonType.PREVIOUS) {
+                from = Math.max(0, from - TOP_SCORES_PAGE_SIZE);
+            } else if (choice.isPresent() && (choice.get() == earlierButton || choice.get() == currentButton)) {
+                earlier = choice.get() == earlierButton;
+                from = 0;
+            } else {
+                break;
+            }
+        }
+        gridPane.requestFocus();
+    }
+
+    /**
+     * Handles the Undo action: takes back the last move, keeping it for Redo.
+     */
+    @FXML
+    private void handleUndo() {
+        if (engine == null || replaying || undoStack.isEmpty() || engine.isGameOver() || engine.hasWonGame()) return;
+        redoStack.push(engine.createUndoPoint());
+        engine.restoreUndoPoint(undoStack.pop());
+        appendToStatus("Move undone.");
+        updateGui();
+        gridPane.requestFocus();
+    }
+
+    /**
+     * Handles the Redo action: plays an undone move again, exactly as it went the first time.
+     */
+    @FXML
+    private void handleRedo() {
+        if (engine == null || replaying || redoStack.isEmpty() || engine.isGameOver() || engine.hasWonGame()) return;
+        undoStack.push(engine.createUndoPoint());
+        engine.restoreUndoPoint(redoStack.pop());
+        appendToStatus("Move redone.");
+        updateGui();
+        gridPane.requestFocus();
+    }
+
+    // Undo and redo are only offered while the game is in progress, so a finished game is only ended once
+    private void updateUndoButtons() {
+        boolean inProgress = engine != null && !replaying && !engine.isGameOver() && !engine.hasWonGame();
+        if (undoButton != null) undoButton.setDisable(!inProgress || undoStack.isEmpty());
+        if (redoButton != null) redoButton.setDisable(!inProgress || redoStack.isEmpty());
+    }
+
+    // Writes the finished game's recording in the background, replacing the last one
+    private void saveReplay() {
+        Replay replay = engine.getReplay();
+        if (replay == null) return; // Loaded and recovered games are not recorded
+        AsyncPersistence.shared().write(Path.of(Replay.DEFAULT_FILENAME), replay.encode()).whenCompleteAsync((done, error) -> {
+            if (error != null) {
+                Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error saving replay: {}", error);
+            } else if (replayButton != null) {
+                replayButton.setDisable(false);
+            }
+        }, Platform::runLater);
+    }
+
+    /**
+     * Handles the Replay Last Game action: reads the last finished game's recording in the background,
+     * then plays it on the board at the chosen speed and reports whether it ended in the recorded state.
+     * The game in progress is put back afterwards.
+     */
+    @FXML
+    private void handleReplay() {
+        if (engine == null || replaying) return;
+        if (replayButton != null) replayButton.setDisable(true);
+        AsyncPersistence.shared().read(Path.of(Replay.DEFAULT_FILENAME)).whenCompleteAsync((bytes, error) -> {
+            if (replayButton != null) replayButton.setDisable(false);
+            Replay replay = null;
+            try {
+                if (error != null) throw error instanceof IOException io ? io : new IOException(error);
+                replay = Replay.decode(bytes);
+            } catch (IOException e) {
+                Diagnostics.event(Category.PERSISTENCE, Level.ERROR, "Error reading replay: {}", e);
+                appendToStatus("Could not read the last game's replay.");
+            }
+            if (replay != null) chooseReplaySpeed(replay);
+        }, Platform::runLater);
+    }
+
+    private void chooseReplaySpeed(Replay replay) {
+        ChoiceDialog<String> speedDialog = new ChoiceDialog<>(REPLAY_SPEEDS.get(1), REPLAY_SPEEDS);
+        speedDialog.setTitle("Replay Last Game");
+        speedDialog.setHeaderText("Replay " + replay.getMoveCount() + " moves at difficulty " + replay.getDifficulty() + ".");
+        speedDialog.setContentText("Speed:");
+        Optional<String> speed = speedDialog.showAndWait();
+        if (speed.isEmpty()) return;
+        double movesPerSecond = REPLAY_MOVES_PER_SECOND[REPLAY_SPEEDS.indexOf(speed.get())];
+        if (movesPerSecond == 0) {
+            reportReplay(ReplayPlayer.verify(replay));
         } else {
-            sb.append(String.format("%-5s %-10s %-20s %s\n", "Rank", "Score", "Player", "Date"));
-            sb.append("-----------------------------------------------------------\n");
-            for (int i = 0; i < scores.size(); i++) {
-                ScoreEntry entry = scores.get(i);
-                sb.append(String.format("#%-4d %-10d %-20s %s\n",
-                        i + 1,
-                        entry.getScore(),
-                        entry.getPlayerName(),
-                        entry.getFormattedDate()));
+            playReplay(new ReplayPlayer(replay), movesPerSecond);
+        }
+    }
+
+    private void playReplay(ReplayPlayer player, double movesPerSecond) {
+        GameEngine game = engine;
+        replaying = true;
+        engine = player.getEngine();
+        if (timeline != null) timeline.pause();
+        if (saveButton != null) saveButton.setDisable(true);
+        if (loadButton != null) loadButton.setDisable(true);
+        if (replayButton != null) replayButton.setDisable(true);
+        if (undoButton != null) undoButton.setDisable(true);
+        if (redoButton != null) redoButton.setDisable(true);
+        if (autoPlayButton != null) autoPlayButton.setDisable(true);
+        stopAutoPlay();
+        hints.cancel();
+        if (hintLabel != null) hintLabel.setText("");
+        gridPane.setDisable(true);
+        appendToStatus("Replaying last game...");
+        updateGui();
+
+        Timeline[] playback = new Timeline[1];
+        playback[0] = new Timeline(new KeyFrame(Duration.seconds(1 / movesPerSecond), e -> {
+            if (player.step()) {
+                updateGui();
+                return;
             }
+            playback[0].stop();
+            reportReplay(player.result());
+            engine = game;
+            updateGui(); // Still replaying, so this only redraws: a finished game must not be ended twice
+            replaying = false;
+            boolean gameIsEffectivelyOver = engine.isGameOver() || engine.hasWonGame();
+            if (saveButton != null) saveButton.setDisable(gameIsEffectivelyOver);
+            if (loadButton != null) loadButton.setDisable(!savedGameAvailable);
+            if (replayButton != null) replayButton.setDisable(false);
+            if (autoPlayButton != null) autoPlayButton.setDisable(gameIsEffectivelyOver);
+            updateUndoButtons();
+            requestHint();
+            gridPane.setDisable(gameIsEffectivelyOver);
+            if (!gameIsEffectivelyOver) {
+                if (timeline != null) timeline.play();
+                gridPane.requestFocus();
+            }
+        }));
+        playback[0].setCycleCount(Timeline.INDEFINITE);
+        playback[0].play();
+    }
+
+    private void reportReplay(ReplayPlayer.Result result) {
+        String message = result.matches()
+                ? "Replay of " + result.moves() + " moves finished: it ended exactly as recorded."
+                : String.format("Replay of %d moves finished in a different state than recorded (expected %016x, got %016x).",
+                        result.moves(), result.expectedHash(), result.actualHash());
+        appendToStatus(message);
+        Alert alert = new Alert(result.matches() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("Replay Last Game");
+        alert.setHeaderText(result.matches() ? "Replay verified" : "Replay did not match");
+        alert.setContentText(message);
+        alert.show(); // Not showAndWait: this can run from an animation frame
+    }
+
+    /**
+     * Handles the Auto-play action: starts or stops letting the auto-player make every move. Each
+     * move is searched on a background thread, so the board stays responsive; a move made by hand
+     * (or an undo) meanwhile just makes it search again from the new position.
+     */
+    @FXML
+    private void handleAutoPlay() {
+        if (autoPlaying) {
+            stopAutoPlay();
+            appendToStatus("Auto-play stopped.");
+        } else if (engine != null && !replaying && !engine.isGameOver() && !engine.hasWonGame()) {
+            autoPlaying = true;
+            if (autoPlayButton != null) autoPlayButton.setText("Stop Auto-play");
+            appendToStatus("Auto-play started.");
+            requestAutoMove();
         }
+        gridPane.requestFocus();
+    }
 
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Top 5 Scores");
-        alert.setHeaderText("Hall of Fame");
-
-        TextArea textArea = new TextArea(sb.toString());
-        textArea.setEditable(false);
-        textArea.setWrapText(false);
-        textArea.setFont(Font.font("Monospaced", 12));
-
-        textArea.setMaxWidth(Double.MAX_VALUE);
-        textArea.setMaxHeight(Double.MAX_VALUE);
-        GridPane.setVgrow(textArea, Priority.ALWAYS);
-        GridPane.setHgrow(textArea, Priority.ALWAYS);
-
-        GridPane expandableContent = new GridPane();
-        expandableContent.setMaxWidth(Double.MAX_VALUE);
-        expandableContent.add(textArea, 0, 0);
-
-        alert.getDialogPane().setExpandableContent(expandableContent);
-        alert.getDialogPane().setExpanded(true);
-        alert.getDialogPane().setPrefSize(500, 350);
-        alert.setResizable(true);
+    private void stopAutoPlay() {
+        autoPlaying = false;
+        if (autoPlayButton != null) autoPlayButton.setText("Auto-play");
+    }
 
-        alert.showAndWait();
+    // Searches for the next move on a copy of the game, then plays it back on the FX thread
+    private void requestAutoMove() {
+        if (!autoPlaying || autoMove != null) return; // A search already in flight carries on auto-play when it finishes
+        if (engine == null || replaying || engine.isGameOver() || engine.hasWonGame()) {
+            stopAutoPlay();
+            return;
+        }
+        GameState searched = engine.getState();
+        int steps = searched.getSteps();
+        GameState position = searched.fork();
+        int stepsRemaining = engine.getMaxSteps() - steps;
+        autoMove = CompletableFuture.supplyAsync(() -> autoPlayer.chooseMove(position, stepsRemaining));
+        autoMove.whenCompleteAsync((move, error) -> {
+            autoMove = null;
+            if (!autoPlaying) return;
+            if (error != null) {
+                Diagnostics.event(Category.GUI, Level.ERROR, "Auto-play search failed: {}", error);
+                appendToStatus("Auto-play stopped: the search failed.");
+                stopAutoPlay();
+                return;
+            }
+            if (engine.getState() != searched || searched.getSteps() != steps) {
+                requestAutoMove(); // The game moved on while searching
+                return;
+            }
+            MctsMovePolicy.Search search = autoPlayer.getLastSearch();
+            appendToStatus(String.format("Auto-play: %s (%d playouts, %.0f playouts/s).", move, search.playouts(),
+                    search.playoutsPerSecond()));
+            processMove(move);
+            if (engine.isGameOver() || engine.hasWonGame()) {
+                stopAutoPlay();
+                return;
+            }
+            PauseTransition pause = new PauseTransition(Duration.seconds(AUTO_PLAY_PAUSE_SECONDS));
+            pause.setOnFinished(e -> requestAutoMove());
+            pause.play();
+        }, Platform::runLater);
+    }
+
+    /**
+     * Handles the Hint action: shows or hides the suggested next move. While shown, every move starts
+     * a fresh analysis on the hint service's own thread, abandoning the last one, and the label above
+     * the board is updated each time the analysis finds a better move.
+     */
+    @FXML
+    private void handleHint() {
+        hintsShown = !hintsShown;
+        if (hintButton != null) hintButton.setText(hintsShown ? "Hide Hint" : "Hint");
+        requestHint();
         gridPane.requestFocus();
     }
 
-    // --- Player Movement Action Handlers ---
+    private void requestHint() {
+        if (!hintsShown || engine == null || replaying || engine.isGameOver() || engine.hasWonGame()) {
+            hints.cancel();
+            if (hintLabel != null) hintLabel.setText("");
+            return;
+        }
+        if (hintLabel != null) hintLabel.setText("Hint: thinking...");
+        hints.analyse(engine.getState(), engine.getMaxSteps() - engine.getSteps());
+    }
+
+    private void showHint(HintService.Hint hint) {
+        if (hintLabel == null) return;
+        String text = hint.safe()
+                ? String.format("Hint: %s (reaches the ladder with score %d and at least %d HP, looking %d moves ahead%s)",
+                        hint.move(), hint.score(), hint.hp(), hint.horizon(), hint.complete() ? "" : ", still thinking")
+                : String.format("Hint: %s (no route to the ladder is safe from every hit, so this is a best guess)", hint.move());
+        hintLabel.setText(text);
+    }
+
     @FXML private void moveUp() { processMove(Direction.UP); }
     @FXML private void moveDown() { processMove(Direction.DOWN); }
     @FXML private void moveLeft() { processMove(Direction.LEFT); }
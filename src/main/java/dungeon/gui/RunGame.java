@@ -7,6 +7,10 @@
  */
 package dungeon.gui;
 
+import dungeon.engine.Diagnostics;
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
+
 import javafx.application.Application;
 import javafx.scene.control.ChoiceDialog;
 import javafx.stage.Stage;
@@ -53,8 +57,7 @@ public class RunGame extends Application {
             Stage gameStage = new Stage(); // GameGUI will use this new stage
             mainGameGui.start(gameStage);
         } catch (Exception e) {
-            System.err.println("RunGame: Error starting GameGUI - " + e.getMessage());
-            e.printStackTrace();
+            Diagnostics.event(Category.GUI, Level.ERROR, "RunGame: Error starting GameGUI - {}", e);
             javafx.application.Platform.exit(); // Exit if the main game GUI fails to load
         }
     }
@@ -0,0 +1,149 @@
+/** Local TCP server hosting many MiniDungeon sessions in one JVM.
+ * Every connection is a session running on its own virtual thread against its own GameEngine,
+ * so thousands of mostly idle players cost little more than their game state. All sessions share
+ * one leaderboard, and each player's saves live in their own directory under the storage root.
+ *
+ * Protocol: UTF-8 text, one command per line, one reply line per command.
+ *   NEW [difficulty] [seed]   Start a game (default difficulty 3).       -> OK <state>
+ *   MOVE U|D|L|R              Move; Level 1's ladder advances to Level 2. -> OK <state>
+ *   MAP                       The map, rows separated by '/'.            -> OK <row>/<row>/...
+ *   USER name                 Switch save namespace ([A-Za-z0-9_-]{1,32}); ends the current game. -> OK user <name>
+ *   SAVE [slot] / LOAD [slot] Save or restore this player's game, optionally in a named slot. -> OK <state>
+ *   SLOTS                     This player's named save slots.            -> OK <slot>;<slot>;...
+ *   SCORE name                Submit the finished game's score.          -> OK <added|not a top score> [rank=<n>/<games>]
+ *   SCORES                    The shared leaderboard's top 5.            -> OK <name>:<score>:<date>;...
+ *   SCORES difficulty [from]  10 entries of one difficulty's board from a 0-based place; -1 is the
+ *                             scores kept from before boards were split by difficulty. -> OK <name>:<score>:<date>;...
+ *   QUIT                      Close the session.                         -> BYE
+ * where <state> is: <PLAYING|WON|DEAD|OUT_OF_STEPS> level=<n> hp=<n> score=<n> steps=<n>/<max> pos=<x>,<y>
+ * Errors reply ERR <reason> and leave the session open.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.server;
+
+import dungeon.engine.Diagnostics;
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
+import dungeon.engine.GameHistory;
+import dungeon.engine.TopScores;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 22100;
+    private static final int ACCEPT_BACKLOG = 4096; // Load tests open thousands of connections at once
+    private static final long ACCEPT_RETRY_MILLIS = 50;
+    private static final int LEADERBOARD_CAPACITY = 100_000; // Scores kept per difficulty
+
+    private final ServerSocket serverSocket;
+    private final Path storageRoot;
+    private final TopScores leaderboard;
+    private final GameHistory history;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong nextSessionId = new AtomicLong(1);
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    /**
+     * Binds a server to a local port. Call {@link #start()} to begin accepting sessions.
+     * @param port The port to listen on, or 0 for any free port.
+     * @param storageRoot Directory holding the shared leaderboard, the game history and each player's saves.
+     * @throws IOException if the directory cannot be created or the port cannot be bound.
+     */
+    public GameServer(int port, Path storageRoot) throws IOException {
+        this.storageRoot = storageRoot;
+        Files.createDirectories(storageRoot.resolve("players"));
+        this.leaderboard = new TopScores(storageRoot.resolve(TopScores.DEFAULT_FILENAME), LEADERBOARD_CAPACITY);
+        this.history = new GameHistory(storageRoot.resolve(GameHistory.DEFAULT_FILENAME));
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), ACCEPT_BACKLOG);
+    }
+
+    /**
+     * Starts accepting sessions on a background daemon thread.
+     */
+    public void start() {
+        Thread.ofPlatform().name("dungeon-server-accept").daemon().start(this::acceptLoop);
+        Diagnostics.event(Category.ENGINE, Level.INFO, "GameServer listening on port {}", getPort());
+    }
+
+    public int getPort() { return serverSocket.getLocalPort(); }
+    public int getActiveSessions() { return activeSessions.get(); }
+    TopScores getLeaderboard() { return leaderboard; }
+    GameHistory getHistory() { return history; }
+
+    /**
+     * Gets the save file for a player namespace.
+     * @param user A validated user name.
+     * @return The path of that player's save file.
+     */
+    Path saveFileFor(String user) {
+        return storageRoot.resolve("players").resolve(user).resolve("minidungeon.save");
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                long id = nextSessionId.getAndIncrement();
+                activeSessions.incrementAndGet();
+                sessions.submit(() -> {
+                    try {
+                        new GameSession(this, socket, "session-" + id).run();
+                    } finally {
+                        activeSessions.decrementAndGet();
+                    }
+                });
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    Diagnostics.event(Category.ENGINE, Level.ERROR, "GameServer accept failed: {}", e.getMessage());
+                    pauseAfterAcceptFailure(); // e.g. out of file descriptors; don't spin
+                }
+            }
+        }
+    }
+
+    private static void pauseAfterAcceptFailure() {
+        try {
+            Thread.sleep(ACCEPT_RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes every open session.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow(); // Interrupts sessions blocked reading their sockets
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     * Usage: GameServer [port] [storageDir]
+     * @param args Optional port (default 22100) and storage directory (default ./server-data).
+     * @throws Exception if the server cannot start.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path storage = Path.of(args.length > 1 ? args[1] : "server-data");
+        GameServer server = new GameServer(port, storage);
+        server.start();
+        System.out.println("MiniDungeon server on port " + server.getPort() + ", storing games in " + storage.toAbsolutePath());
+        Thread.currentThread().join(); // The acceptor is a daemon; keep the JVM alive
+    }
+}
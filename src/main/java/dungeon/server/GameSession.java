@@ -0,0 +1,312 @@
+/** One client connection of the GameServer: reads command lines and replies, one line each.
+ * The session owns its GameEngine, so no game state is shared between sessions apart from the leaderboard.
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.server;
+
+import dungeon.engine.Diagnostics;
+import dungeon.engine.Diagnostics.Category;
+import dungeon.engine.Diagnostics.Level;
+import dungeon.engine.Direction;
+import dungeon.engine.GameEngine;
+import dungeon.engine.GameState;
+import dungeon.engine.Player;
+import dungeon.engine.SaveSlotStore;
+import dungeon.engine.ScoreEntry;
+import dungeon.engine.TileMap;
+import dungeon.engine.TopScores;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.regex.Pattern;
+
+class GameSession implements Runnable {
+
+    private static final Pattern USER_NAME = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+    private static final int DEFAULT_DIFFICULTY = 3;
+    private static final int SCORES_PAGE_SIZE = 10;
+
+    private final GameServer server;
+    private final Socket socket;
+    private final StringBuilder reply = new StringBuilder(96); // Reused for every reply
+    private String user;
+    private GameEngine engine;
+    private long gameStarted; // System.nanoTime() when the current game was started or loaded
+
+    GameSession(GameServer server, Socket socket, String user) {
+        this.server = server;
+        this.socket = socket;
+        this.user = user;
+    }
+
+    @Override
+    public void run() {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true); // Replies are tiny; don't wait to batch them
+            String line;
+            while ((line = in.readLine()) != null) {
+                reply.setLength(0);
+                boolean keepOpen = handle(line.trim());
+                out.append(reply).append('\n');
+                out.flush();
+                if (!keepOpen) break;
+            }
+        } catch (IOException e) {
+            Diagnostics.event(Category.ENGINE, Level.DEBUG, "Session {} closed: {}", user, e.getMessage());
+        }
+    }
+
+    /**
+     * Handles one command, writing its reply into {@link #reply}.
+     * @return false if the session should end.
+     */
+    private boolean handle(String line) {
+        String[] words = line.split("\\s+");
+        try {
+            switch (words[0].toUpperCase()) {
+                case "NEW" -> newGame(words);
+                case "MOVE" -> move(words);
+                case "MAP" -> map();
+                case "USER" -> user(words);
+                case "SAVE" -> save(words);
+                case "LOAD" -> load(words);
+                case "SLOTS" -> slots();
+                case "SCORE" -> score(words);
+                case "SCORES" -> scores(words);
+                case "QUIT" -> {
+                    reply.append("BYE");
+                    return false;
+                }
+                default -> error("unknown command");
+            }
+        } catch (NumberFormatException e) {
+            error("bad number");
+        }
+        return true;
+    }
+
+    private void newGame(String[] words) {
+        int difficulty = words.length > 1 ? Integer.parseInt(words[1]) : DEFAULT_DIFFICULTY;
+        if (difficulty < 0 || difficulty > 10) {
+            error("difficulty must be 0-10");
+            return;
+        }
+        engine = new GameEngine(difficulty, server.saveFileFor(user), server.getLeaderboard());
+        if (words.length > 2) {
+            engine.startNewGame(Long.parseLong(words[2]));
+        } else {
+            engine.startNewGame();
+        }
+        gameStarted = System.nanoTime();
+        ok();
+        appendState();
+    }
+
+    private void move(String[] words) {
+        if (engine == null) {
+            error("no game, send NEW first");
+            return;
+        }
+        Direction direction = words.length > 1 ? parseDirection(words[1]) : null;
+        if (direction == null) {
+            error("direction must be U, D, L or R");
+            return;
+        }
+        if (!engine.applyMove(direction)) {
+            error("game is over");
+            return;
+        }
+        GameState state = engine.getState();
+        if (state.hasReachedLadderThisTurn() && state.getLevel() == 1) {
+            engine.advanceToNextLevel(); // As the GUI does
+        }
+        if (engine.isGameOver() || engine.hasWonGame()) {
+            // Recorded once: the finished game rejects any further move
+            server.getHistory().submit(engine.describeFinishedGame((int) ((System.nanoTime() - gameStarted) / 1_000_000_000L)));
+        }
+        ok();
+        appendState();
+    }
+
+    private void map() {
+        if (engine == null) {
+            error("no game, send NEW first");
+            return;
+        }
+        GameState state = engine.getState();
+        int size = state.getMapSize();
+        if (size > GameState.MAX_MAP_VIEW_SIZE) {
+            error("map too large to send");
+            return;
+        }
+        ok();
+        TileMap tiles = state.getTileMap();
+        for (int x = 0; x < size; x++) {
+            if (x > 0) reply.append('/');
+            for (int y = 0; y < size; y++) {
+                boolean player = x == state.getPlayerX() && y == state.getPlayerY();
+                reply.append(player ? 'P' : tiles.get(x, y).getSymbol());
+            }
+        }
+    }
+
+    private void user(String[] words) {
+        if (words.length < 2 || !USER_NAME.matcher(words[1]).matches()) {
+            error("user name must be 1-32 letters, digits, '_' or '-'");
+            return;
+        }
+        user = words[1];
+        engine = null; // The engine's save file belongs to the previous user
+        ok();
+        reply.append("user ").append(user);
+    }
+
+    private void save(String[] words) {
+        if (engine == null) {
+            error("no game, send NEW first");
+            return;
+        }
+        String slot = slotName(words);
+        if (slot == null) return;
+        boolean saved = slot.isEmpty() ? engine.saveGameState() : engine.saveGameState(slot);
+        engine.getState().getTurnEvents().clear(); // Only the reply line reports the result
+        if (!saved) {
+            error("save failed");
+            return;
+        }
+        ok();
+        appendState();
+    }
+
+    private void load(String[] words) {
+        String slot = slotName(words);
+        if (slot == null) return;
+        if (engine == null) {
+            engine = new GameEngine(DEFAULT_DIFFICULTY, server.saveFileFor(user), server.getLeaderboard());
+        }
+        if (!(slot.isEmpty() ? engine.loadGameState() : engine.loadGameState(slot))) {
+            error("no saved game");
+            return;
+        }
+        engine.getState().getTurnEvents().clear();
+        gameStarted = System.nanoTime();
+        ok();
+        appendState();
+    }
+
+    private void slots() {
+        GameEngine lister = engine != null ? engine
+                : new GameEngine(DEFAULT_DIFFICULTY, server.saveFileFor(user), server.getLeaderboard());
+        ok();
+        boolean first = true;
+        for (SaveSlotStore.Slot slot : lister.listSaveSlots()) {
+            if (!first) reply.append(';');
+            first = false;
+            reply.append(slot.name());
+        }
+    }
+
+    // The optional slot argument of SAVE and LOAD: "" for the single save file, null (after replying) if invalid
+    private String slotName(String[] words) {
+        if (words.length < 2) return "";
+        if (!USER_NAME.matcher(words[1]).matches()) {
+            error("slot name must be 1-32 letters, digits, '_' or '-'");
+            return null;
+        }
+        return words[1];
+    }
+
+    private void score(String[] words) {
+        if (engine == null || !(engine.isGameOver() || engine.hasWonGame())) {
+            error("finish the game first");
+            return;
+        }
+        if (words.length < 2 || !USER_NAME.matcher(words[1]).matches()) {
+            error("name must be 1-32 letters, digits, '_' or '-'");
+            return;
+        }
+        int finalScore = engine.hasWonGame() ? engine.getPlayer().getScore() : -1; // Losing scores -1
+        ok();
+        // Batched with other sessions finishing at the same time; only this virtual thread waits
+        boolean added = engine.submitPlayerScore(words[1], finalScore, LocalDate.now()).join();
+        reply.append(added ? "added" : "not a top score");
+        if (finalScore != -1) {
+            TopScores.Standing standing = engine.getStanding(finalScore);
+            reply.append(" rank=").append(standing.rank()).append('/').append(standing.games());
+        }
+        engine = null; // One submission per game
+    }
+
+    private void scores(String[] words) {
+        List<ScoreEntry> entries;
+        if (words.length > 1) {
+            int difficulty = Integer.parseInt(words[1]);
+            int from = words.length > 2 ? Integer.parseInt(words[2]) : 0;
+            if (difficulty < TopScores.UNKNOWN_DIFFICULTY || difficulty > TopScores.MAX_DIFFICULTY) {
+                error("difficulty must be 0-10, or -1 for earlier scores");
+                return;
+            }
+            if (from < 0) {
+                error("from must not be negative");
+                return;
+            }
+            entries = server.getLeaderboard().getPage(difficulty, from, SCORES_PAGE_SIZE);
+        } else {
+            entries = server.getLeaderboard().getEntries();
+        }
+        ok();
+        boolean first = true;
+        for (ScoreEntry entry : entries) {
+            if (!first) reply.append(';');
+            first = false;
+            reply.append(entry.getPlayerName()).append(':').append(entry.getScore()).append(':').append(entry.getFormattedDate());
+        }
+    }
+
+    private void appendState() {
+        GameState state = engine.getState();
+        Player player = state.getPlayer();
+        String status;
+        if (engine.hasWonGame()) status = "WON";
+        else if (!player.isAlive()) status = "DEAD";
+        else if (engine.isGameOver()) status = "OUT_OF_STEPS";
+        else status = "PLAYING";
+        reply.append(status)
+                .append(" level=").append(state.getLevel())
+                .append(" hp=").append(player.getHp())
+                .append(" score=").append(player.getScore())
+                .append(" steps=").append(state.getSteps()).append('/').append(engine.getMaxSteps())
+                .append(" pos=").append(state.getPlayerX()).append(',').append(state.getPlayerY());
+    }
+
+    private static Direction parseDirection(String word) {
+        return switch (word.toUpperCase()) {
+            case "U", "UP" -> Direction.UP;
+            case "D", "DOWN" -> Direction.DOWN;
+            case "L", "LEFT" -> Direction.LEFT;
+            case "R", "RIGHT" -> Direction.RIGHT;
+            default -> null;
+        };
+    }
+
+    private void ok() {
+        reply.append("OK ");
+    }
+
+    private void error(String reason) {
+        reply.setLength(0);
+        reply.append("ERR ").append(reason);
+    }
+}
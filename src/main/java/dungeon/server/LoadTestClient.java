@@ -0,0 +1,170 @@
+/** Load-test client for the GameServer.
+ * Opens the requested number of sessions at once (one virtual thread each), starts a game in
+ * every session, then has all of them play random moves concurrently while timing every
+ * MOVE round trip. Reports p50/p99/p99.9/max latency and overall move throughput.
+ * Each session holds one socket (two if the server is embedded), so 10k sessions need the
+ * process's open-file limit raised accordingly (e.g. ulimit -n 32768).
+ * Author: Zane Davis
+ * Student ID: 1174117
+ * Due Date: 30th May 2025
+ */
+package dungeon.server;
+
+import dungeon.engine.DungeonRandom;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LoadTestClient {
+
+    private static final String[] MOVES = {"MOVE U", "MOVE D", "MOVE L", "MOVE R"};
+    private static final int REPLY_TIMEOUT_MILLIS = 30_000;
+
+    private final int port;
+    private final int sessions;
+    private final int movesPerSession;
+
+    public LoadTestClient(int port, int sessions, int movesPerSession) {
+        this.port = port;
+        this.sessions = sessions;
+        this.movesPerSession = movesPerSession;
+    }
+
+    /**
+     * Runs the load test against a server on localhost.
+     * @return Every timed move latency in nanoseconds, sorted ascending, and the wall-clock time of the timed phase.
+     * @throws Exception if a session fails.
+     */
+    public Result run() throws Exception {
+        CountDownLatch connected = new CountDownLatch(sessions);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>(sessions);
+        long elapsed;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                long seed = i;
+                results.add(clients.submit(() -> playSession(seed, connected, go)));
+            }
+            connected.await(); // Every session is open and has a game before timing starts
+            long start = System.nanoTime();
+            go.countDown();
+            for (Future<long[]> result : results) result.get();
+            elapsed = System.nanoTime() - start;
+        }
+        long[] all = new long[sessions * movesPerSession];
+        int at = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            System.arraycopy(latencies, 0, all, at, latencies.length);
+            at += latencies.length;
+        }
+        Arrays.sort(all);
+        return new Result(all, elapsed);
+    }
+
+    private long[] playSession(long seed, CountDownLatch connected, CountDownLatch go) throws IOException, InterruptedException {
+        long[] latencies = new long[movesPerSession];
+        DungeonRandom random = new DungeonRandom(seed);
+        boolean ready = false;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(REPLY_TIMEOUT_MILLIS); // A session the server never accepted fails instead of hanging
+            String newGame = "NEW 3 " + seed + "\n";
+            send(out, in, newGame);
+            ready = true;
+            connected.countDown();
+            go.await();
+            for (int i = 0; i < movesPerSession; i++) {
+                long start = System.nanoTime();
+                String reply = send(out, in, MOVES[random.nextInt(MOVES.length)] + "\n");
+                latencies[i] = System.nanoTime() - start;
+                if (!reply.startsWith("OK PLAYING")) {
+                    send(out, in, newGame); // Game finished; start another (not timed)
+                }
+            }
+            send(out, in, "QUIT\n");
+        } finally {
+            if (!ready) connected.countDown(); // Failed to connect; don't leave run() waiting (the error surfaces from get())
+        }
+        return latencies;
+    }
+
+    private static String send(Writer out, BufferedReader in, String command) throws IOException {
+        out.write(command);
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) throw new IOException("Server closed the connection.");
+        return reply;
+    }
+
+    /**
+     * Sorted move latencies plus the duration of the timed phase.
+     */
+    public record Result(long[] sortedNanos, long elapsedNanos) {
+
+        public double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1e6;
+        }
+
+        public double movesPerSecond() {
+            return sortedNanos.length * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("moves=%d  p50=%.3f ms  p99=%.3f ms  p99.9=%.3f ms  max=%.3f ms  throughput=%.0f moves/s",
+                    sortedNanos.length, percentileMillis(50), percentileMillis(99), percentileMillis(99.9),
+                    percentileMillis(100), movesPerSecond());
+        }
+    }
+
+    /**
+     * Usage: LoadTestClient [port|embedded] [movesPerSession] [sessions...]
+     * With "embedded" (the default) a server is started in this JVM with a temporary storage directory.
+     * Sessions default to the two standard runs, 1000 and 10000.
+     * @param args The optional port, moves per session and session counts.
+     * @throws Exception if the test fails.
+     */
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "embedded";
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int[] sessionCounts = args.length > 2
+                ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000};
+
+        GameServer embedded = null;
+        int port;
+        if (target.equals("embedded")) {
+            embedded = new GameServer(0, Files.createTempDirectory("dungeon-loadtest"));
+            embedded.start();
+            port = embedded.getPort();
+        } else {
+            port = Integer.parseInt(target);
+        }
+        try {
+            for (int sessions : sessionCounts) {
+                Result result = new LoadTestClient(port, sessions, moves).run();
+                System.out.println("sessions=" + sessions + "  " + result);
+            }
+        } finally {
+            if (embedded != null) embedded.close();
+        }
+    }
+}
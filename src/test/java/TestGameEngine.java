@@ -6,15 +6,43 @@
  * Due Date: 30th May 2025
  */
 import dungeon.engine.*;
+import dungeon.server.GameServer;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -298,6 +326,41 @@ class GameStateTest {
 
 
 
+    @Test
+    void packedMapAndCompatibilityViewStayInStep() {
+        gameState.setTile(4, 5, TileType.GOLD);
+        Entity[][] view = gameState.getMap();
+        assertTrue(view[4][5] instanceof Gold, "View should show tiles placed through the packed map.");
+
+        view[6][5] = new HealthPotion(); // Legacy write through the view
+        assertEquals(TileType.HEALTH_POTION, gameState.getTile(6, 5), "Packed map should pick up view writes.");
+
+        gameState.movePlayer(Direction.UP); // Collect the gold
+        assertEquals(TileType.EMPTY, gameState.getTile(4, 5));
+        assertNull(view[4][5], "View should show the gold was collected.");
+
+        view[7][5] = new Trap(); // A later write through the same view is still picked up
+        assertEquals(TileType.TRAP, gameState.getTile(7, 5));
+        view[3][5] = new Gold();
+        int score = gameState.getPlayer().getScore();
+        gameState.movePlayer(Direction.UP); // Onto the gold written through the held view
+        assertTrue(gameState.getPlayer().getScore() > score, "Gold written through a held view should be collected.");
+        assertNull(view[3][5]);
+        assertSame(view, gameState.getMap(), "The view is built only once.");
+    }
+
+    @Test
+    void onlyRangedMutantsWithinTwoTilesAttack() {
+        gameState.setTile(5, 4, TileType.RANGED_MUTANT); // Two tiles left of (5,6)
+        gameState.setTile(5, 2, TileType.RANGED_MUTANT); // Four tiles away: out of range
+        gameState.setTile(7, 7, TileType.RANGED_MUTANT); // Diagonal: out of range
+        gameState.movePlayer(Direction.RIGHT); // Player moves from (5,5) to (5,6)
+        List<String> attacks = gameState.getAndClearTurnMessages().stream()
+                .filter(m -> m.contains("ranged mutant")).toList();
+        assertEquals(1, attacks.size(), "Only the mutant in range should attack.");
+        assertTrue(attacks.get(0).contains("(5,4)"));
+    }
+
     @Test
     void reinitializeForNextLevelResetsRelevantState() {
         gameState.setSteps(50);
@@ -317,6 +380,73 @@ class GameStateTest {
         assertFalse(gameState.hasReachedLadderThisTurn(), "LadderReachedThisTurn flag should reset.");
         assertTrue(gameState.getAndClearTurnMessages().isEmpty(), "Messages should be cleared after reinitialize.");
     }
+
+    @Test
+    void turnEventsAreRecordedAsCodesAndFormattedOnDemand() {
+        gameState.setTile(4, 5, TileType.GOLD);
+        gameState.setPlayerPosition(5, 5);
+        gameState.movePlayer(Direction.UP);
+
+        TurnEvents events = gameState.getTurnEvents();
+        assertEquals(TurnEvent.MOVED, events.getKind(0));
+        assertEquals(Direction.UP.ordinal(), events.getA(0));
+        assertEquals(TurnEvent.INTERACTION, events.getKind(1));
+        assertEquals(List.of("You moved up.", "You picked up gold! +2 score."), gameState.getAndClearTurnMessages());
+        assertTrue(events.isEmpty(), "Formatting the messages should clear the buffer.");
+    }
+
+    @Test
+    void codecRoundTripRestoresTheGameAndItsRandomSequence() throws IOException {
+        GameState original = new GameState(MAP_SIZE_FOR_TEST, 4, new DungeonRandom(7L));
+        original.setPlayer(player);
+        original.setPlayerPosition(2, 3);
+        original.setTile(0, 9, TileType.LADDER);
+        original.setTile(4, 4, TileType.RANGED_MUTANT);
+        original.setSteps(12);
+        player.setScore(-1);
+
+        GameState copy = GameStateCodec.decode(GameStateCodec.encode(original));
+        assertEquals(12, copy.getSteps());
+        assertEquals(4, copy.getDifficulty());
+        assertEquals(-1, copy.getPlayer().getScore());
+        assertEquals(TileType.LADDER, copy.getTile(0, 9));
+        assertEquals(TileType.RANGED_MUTANT, copy.getTile(4, 4));
+        assertEquals(TileType.EMPTY, copy.getTile(5, 5));
+        assertEquals(original.getRandom().nextLong(), copy.getRandom().nextLong(), "Loaded game should play on identically.");
+    }
+
+    @Test
+    void codecRejectsCorruptedSaves() {
+        byte[] encoded = GameStateCodec.encode(gameState);
+        encoded[encoded.length / 2] ^= 0x10;
+        assertThrows(IOException.class, () -> GameStateCodec.decode(encoded));
+    }
+
+    @Test
+    void forksAndSnapshotsAreUnaffectedByLaterMoves() {
+        gameState.setTile(4, 5, TileType.GOLD);
+        gameState.setTile(5, 6, TileType.TRAP);
+        byte[] before = GameStateCodec.encode(gameState);
+        GameSnapshot snapshot = gameState.snapshot();
+        GameState fork = gameState.fork();
+
+        gameState.movePlayer(Direction.UP); // Picks up the gold
+        assertEquals(TileType.EMPTY, gameState.getTile(4, 5));
+        assertEquals(TileType.GOLD, snapshot.getTile(4, 5), "A snapshot should not see later changes.");
+        assertEquals(TileType.GOLD, fork.getTile(4, 5), "A fork should not see the original's changes.");
+        assertEquals(5, snapshot.getPlayerX());
+        assertEquals(0, snapshot.getScore());
+
+        fork.movePlayer(Direction.RIGHT); // Steps on the trap in the fork only
+        assertEquals(8, fork.getPlayer().getHp());
+        assertEquals(10, gameState.getPlayer().getHp());
+        assertEquals(TileType.EMPTY, gameState.snapshot().getTile(4, 5));
+
+        GameState restored = snapshot.restore();
+        assertArrayEquals(before, GameStateCodec.encode(restored), "Restoring should rebuild the game exactly, random source included.");
+        restored.movePlayer(Direction.UP);
+        assertArrayEquals(before, GameStateCodec.encode(snapshot.restore()), "A snapshot can be restored again after play.");
+    }
 }
 
 /**
@@ -329,23 +459,28 @@ class GameEngineTest {
     private GameEngine gameEngine;
     // Hardcoded filenames from GameEngine, used for cleanup.
     private static final String TEST_SAVE_FILENAME = "minidungeon.save";
-    private static final String TEST_TOP_SCORES_FILENAME = "topscores.dat";
+    private static final String TEST_TOP_SCORES_FILENAME = "topscores.log";
+    private static final String TEST_LEGACY_TOP_SCORES_FILENAME = "topscores.dat";
 
 
     @BeforeEach
     void setUp() {
         // Ensure any pre-existing test files are cleaned up before each test
         // to maintain test isolation, especially for tests interacting with top scores.
+        AsyncPersistence.shared().awaitIdle(5000); // Background writes from the last test land first
         cleanupTestFile(TEST_SAVE_FILENAME);
         cleanupTestFile(TEST_TOP_SCORES_FILENAME);
+        cleanupTestFile(TEST_LEGACY_TOP_SCORES_FILENAME);
         gameEngine = new GameEngine(3); // Default difficulty 3
     }
 
     @AfterEach
     void tearDown() {
         // Clean up files that might have been created by methods like addPlayerScore (which calls saveTopScores)
+        AsyncPersistence.shared().awaitIdle(5000);
         cleanupTestFile(TEST_SAVE_FILENAME);
         cleanupTestFile(TEST_TOP_SCORES_FILENAME);
+        cleanupTestFile(TEST_LEGACY_TOP_SCORES_FILENAME);
     }
 
     private void cleanupTestFile(String filename) {
@@ -467,6 +602,65 @@ class GameEngineTest {
         assertTrue(gameEngine.hasWonGame(), "Game should be won when ladder is reached on level 2.");
     }
 
+    @Test
+    void sameSeedGeneratesSameGame() {
+        GameEngine first = GameEngine.headless(5, 1234L);
+        GameEngine second = GameEngine.headless(5, 1234L);
+        first.startNewGame();
+        second.startNewGame();
+        assertEquals(mapSymbols(first), mapSymbols(second), "Same seed should generate the same level.");
+
+        GameSimulator.playGame(first, new GreedyMovePolicy());
+        GameSimulator.playGame(second, new GreedyMovePolicy());
+        assertEquals(first.getGameSeed(), second.getGameSeed());
+        assertEquals(first.getPlayer().getHp(), second.getPlayer().getHp(), "Combat rolls should repeat.");
+        assertEquals(first.getPlayer().getScore(), second.getPlayer().getScore());
+        assertEquals(first.getState().getLevel(), second.getState().getLevel());
+    }
+
+    @Test
+    void hugeDungeonOnlyAllocatesPopulatedChunks() {
+        GameEngine huge = GameEngine.headless(3, 99L, 10_000);
+        huge.startNewGame();
+        GameState state = huge.getState();
+        assertEquals(9_999, state.getPlayerX(), "Player should start in the bottom-left corner.");
+        // 5 gold, 5 traps, 3 melee, 3 ranged, 2 potions, 1 ladder and the entry: at most 20 chunks in use
+        assertTrue(state.getTileMap().getAllocatedChunkCount() <= 20,
+                "Only chunks holding items should be allocated.");
+
+        huge.handlePlayerMove(Direction.DOWN); // Out of bounds on the last row
+        assertEquals(0, state.getSteps(), "Bounds checks should use the configured map size.");
+        huge.handlePlayerMove(Direction.UP);
+        assertEquals(9_998, state.getPlayerX());
+    }
+
+    @Test
+    void crowdedMapFillsEveryFreeCellAndKeepsTheLadder() {
+        // 3x3 map: 8 free cells for 1 + 5 + 5 + 3 + 10 + 2 items
+        GameEngine crowded = GameEngine.headless(10, 5L, 3);
+        crowded.startNewGame();
+        GameState state = crowded.getState();
+        int ladders = 0;
+        int empty = 0;
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                if (state.getTile(x, y) == TileType.LADDER) ladders++;
+                if (state.getTile(x, y) == TileType.EMPTY) empty++;
+            }
+        }
+        assertEquals(1, ladders, "The ladder is placed first, so it always fits.");
+        assertEquals(0, empty, "Every cell apart from the entry should be filled.");
+        assertEquals(TileType.ENTRY, state.getTile(2, 0));
+    }
+
+    private static String mapSymbols(GameEngine engine) {
+        StringBuilder sb = new StringBuilder();
+        for (Entity[] row : engine.getMapEntities()) {
+            for (Entity entity : row) sb.append(entity == null ? '.' : entity.getSymbol());
+        }
+        return sb.toString();
+    }
+
     // Test for isTopScore and the in-memory logic of addPlayerScore.
     // The saveTopScores() call within addPlayerScore is an I/O operation whose file effect is not asserted.
     @Test
@@ -502,4 +696,822 @@ class GameEngineTest {
         assertFalse(gameEngine.isTopScore(20), "Score of 20 should not be a top score when list is full of higher scores.");
         assertTrue(gameEngine.isTopScore(125), "Score of 125 should be a top score, displacing the current 5th.");
     }
+
+    @Test
+    void asyncSaveWritesTheSnapshotTakenWhenItWasRequested() throws IOException {
+        Path saveFile = Files.createTempDirectory("dungeon-async-test").resolve("minidungeon.save");
+        GameEngine engine = new GameEngine(0, saveFile, TopScores.inMemory());
+        engine.startNewGame(26L);
+        engine.applyMove(Direction.UP);
+        byte[] atSave = GameStateCodec.encode(engine.getState());
+        CompletableFuture<Boolean> saved = engine.saveGameStateAsync(Runnable::run);
+        engine.applyMove(Direction.RIGHT); // Play carries on while the save is in flight
+        assertTrue(saved.join());
+
+        assertTrue(engine.loadGameStateAsync(Runnable::run).join());
+        assertArrayEquals(atSave, GameStateCodec.encode(engine.getState()), "The save should hold the state at the time it was requested.");
+    }
+
+    @Test
+    void journaledGameIsRebuiltExactlyAfterACrash() throws IOException {
+        Path saveFile = Files.createTempDirectory("dungeon-journal-test").resolve("minidungeon.save");
+        GameEngine crashed = new GameEngine(0, saveFile, TopScores.inMemory());
+        crashed.setJournaling(true);
+        crashed.startNewGame(22L); // Reaches Level 2 and is still alive after the loop
+        Direction[] pattern = {Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT, Direction.RIGHT, Direction.UP};
+        for (int i = 0; i < 90 && crashed.getState().getSteps() < 90; i++) { // Past a checkpoint, short of the step limit
+            crashed.applyMove(pattern[i % pattern.length]);
+            if (crashed.getState().hasReachedLadderThisTurn() && crashed.getState().getLevel() == 1) {
+                crashed.advanceToNextLevel();
+            }
+        }
+        assertFalse(crashed.isGameOver() || crashed.hasWonGame(), "The test game should still be in progress.");
+        // The crashed engine is abandoned without closing its journal
+
+        GameEngine recovered = new GameEngine(0, saveFile, TopScores.inMemory());
+        assertTrue(recovered.hasJournal());
+        assertTrue(recovered.recoverFromJournal());
+        assertArrayEquals(GameStateCodec.encode(crashed.getState()), GameStateCodec.encode(recovered.getState()),
+                "Replaying the journal should rebuild the same game, random source included.");
+    }
+
+    @Test
+    void journalingLeavesTheFileToTheIoThread() throws IOException, InterruptedException {
+        Path saveFile = Files.createTempDirectory("dungeon-journal-test").resolve("minidungeon.save");
+        Path journalFile = saveFile.resolveSibling(MoveJournal.DEFAULT_FILENAME);
+        GameEngine engine = new GameEngine(0, saveFile, TopScores.inMemory());
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncPersistence.shared().submit(() -> release.await(10, TimeUnit.SECONDS)); // As if stuck on a slow disk
+        try {
+            engine.setJournaling(true);
+            engine.startNewGame(22L);
+            GameEngine.UndoPoint start = engine.createUndoPoint();
+            for (int i = 0; i < MoveJournal.CHECKPOINT_INTERVAL + MoveJournal.SYNC_INTERVAL; i++) {
+                engine.applyMove(i % 2 == 0 ? Direction.UP : Direction.DOWN);
+            }
+            engine.restoreUndoPoint(start);
+            engine.applyMove(Direction.RIGHT);
+            assertFalse(Files.exists(journalFile), "Moves, checkpoints and undo must not wait for the disk.");
+        } finally {
+            release.countDown();
+        }
+        GameEngine recovered = new GameEngine(0, saveFile, TopScores.inMemory());
+        assertTrue(recovered.hasJournal(), "The queued writes land once the I/O thread is free.");
+        assertTrue(recovered.recoverFromJournal());
+        assertArrayEquals(GameStateCodec.encode(engine.getState()), GameStateCodec.encode(recovered.getState()));
+    }
+
+    @Test
+    void recordedGameReplaysToTheSameFinalState() throws IOException {
+        GameEngine played = GameEngine.headless(0, 0L);
+        played.startNewGame(22L); // Reaches Level 2, so the replay has a level change
+        MovePolicy policy = new GreedyMovePolicy();
+        int moves = 0;
+        for (; !played.isGameOver() && !played.hasWonGame(); moves++) {
+            played.handlePlayerMove(policy.chooseMove(played.getState(), played.getMaxSteps() - played.getSteps()));
+            if (played.getState().hasReachedLadderThisTurn() && played.getState().getLevel() == 1) {
+                played.advanceToNextLevel();
+            }
+        }
+        assertEquals(2, played.getState().getLevel());
+        long finalHash = Replay.hash(played.getState());
+        played.getPlayer().setScore(-1); // As the frontends do once the game is over
+
+        byte[] encoded = played.getReplay().encode();
+        Replay replay = Replay.decode(encoded);
+        assertEquals(moves, replay.getMoveCount());
+        assertEquals(finalHash, replay.getFinalHash(), "The hash should be taken when the last move is played.");
+        assertTrue(replay.getLevelChangeAfter() > 0);
+        ReplayPlayer.Result result = ReplayPlayer.verify(replay);
+        assertTrue(result.matches(), "Replaying the moves from the seed should reach the recorded state.");
+        assertEquals(replay.getMoveCount(), result.moves());
+
+        // A changed move (UP <-> DOWN, LEFT <-> RIGHT), re-checksummed so it still decodes, is caught by the hash
+        byte[] tampered = encoded.clone();
+        tampered[tampered.length - 12 - (replay.getMoveCount() + 3) / 4] ^= 0x01; // The first move; moves come before the hash and checksum
+        assertThrows(IOException.class, () -> Replay.decode(tampered), "A corrupt replay should fail its checksum.");
+        CRC32 crc = new CRC32();
+        crc.update(tampered, 0, tampered.length - 4);
+        ByteBuffer.wrap(tampered).putInt(tampered.length - 4, (int) crc.getValue());
+        assertFalse(ReplayPlayer.verify(Replay.decode(tampered)).matches());
+    }
+
+    @Test
+    void undoAndRedoRestoreTheGameAndKeepItsReplayInStep() {
+        GameEngine engine = GameEngine.headless(0, 0L);
+        engine.startNewGame(22L);
+        MovePolicy policy = new GreedyMovePolicy();
+        List<GameEngine.UndoPoint> points = new ArrayList<>();
+        List<byte[]> states = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            points.add(engine.createUndoPoint());
+            states.add(GameStateCodec.encode(engine.getState()));
+            engine.handlePlayerMove(policy.chooseMove(engine.getState(), engine.getMaxSteps() - engine.getSteps()));
+        }
+        GameEngine.UndoPoint end = engine.createUndoPoint();
+        byte[] endState = GameStateCodec.encode(engine.getState());
+
+        engine.restoreUndoPoint(points.get(4));
+        assertArrayEquals(states.get(4), GameStateCodec.encode(engine.getState()), "Undo should restore the game exactly.");
+        assertEquals(4, engine.getReplay().getMoveCount());
+        engine.restoreUndoPoint(end);
+        assertArrayEquals(endState, GameStateCodec.encode(engine.getState()), "Redo should bring the moves back.");
+        assertTrue(ReplayPlayer.verify(engine.getReplay()).matches());
+
+        engine.restoreUndoPoint(points.get(4)); // A different line of play from there
+        engine.handlePlayerMove(Direction.UP);
+        engine.handlePlayerMove(Direction.RIGHT);
+        assertEquals(6, engine.getReplay().getMoveCount());
+        assertTrue(ReplayPlayer.verify(engine.getReplay()).matches(), "The replay should follow the line of play that was kept.");
+    }
+}
+
+/**
+ * Unit tests for the headless GameSimulator.
+ * Checks that every simulated game is accounted for exactly once.
+ */
+class GameSimulatorTest {
+
+    @Test
+    void everyGameEndsInExactlyOneOutcome() {
+        SimulationReport report = new GameSimulator(2).run(new int[]{0, 5}, 51, RandomMovePolicy::new, 42L);
+        assertEquals(102, report.getTotalGames(), "All games across both difficulties should be played.");
+        for (SimulationStats stats : report.getStats()) {
+            long deaths = 0;
+            for (DeathCause cause : DeathCause.values()) deaths += stats.getDeaths(cause);
+            assertEquals(stats.getGames(), stats.getWins() + deaths + stats.getOutOfSteps(),
+                    "Wins, deaths and step-outs should add up to the number of games.");
+        }
+    }
+
+    @Test
+    void sameSeedGivesSameReport() {
+        SimulationReport first = new GameSimulator(2).run(new int[]{3}, 40, RandomMovePolicy::new, 7L);
+        SimulationReport second = new GameSimulator(2).run(new int[]{3}, 40, RandomMovePolicy::new, 7L);
+        assertEquals(first.getStats(3).toString(), second.getStats(3).toString(),
+                "Simulations from the same seed and thread count should agree exactly.");
+    }
+
+    @Test
+    void playGameRunsToCompletion() {
+        GameEngine engine = GameEngine.headless(3);
+        GameSimulator.playGame(engine, new GreedyMovePolicy());
+        assertTrue(engine.isGameOver() || engine.hasWonGame(),
+                "The greedy policy always moves in bounds, so its games should be played to the end.");
+    }
+}
+
+/**
+ * Unit tests for the Diagnostics event facility.
+ * Checks per-category levels and that enabled events are formatted by the background writer.
+ */
+class DiagnosticsTest {
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void setUp() {
+        Diagnostics.setOutput(new PrintStream(written, true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        Diagnostics.flush(1000);
+        Diagnostics.setLevel(Diagnostics.Category.LEVEL, Diagnostics.Level.WARN);
+        Diagnostics.setLevel(Diagnostics.Category.SCORES, Diagnostics.Level.WARN);
+        Diagnostics.setOutput(System.err);
+    }
+
+    @Test
+    void eventsBelowTheCategoryLevelAreDropped() {
+        Diagnostics.setLevel(Diagnostics.Category.LEVEL, Diagnostics.Level.ERROR);
+        assertFalse(Diagnostics.isEnabled(Diagnostics.Category.LEVEL, Diagnostics.Level.WARN));
+        Diagnostics.event(Diagnostics.Category.LEVEL, Diagnostics.Level.WARN, "Could not place {}", 3);
+        assertTrue(Diagnostics.flush(1000));
+        assertEquals("", written.toString(), "A disabled event should never reach the output.");
+    }
+
+    @Test
+    void enabledEventsAreFormattedInOrder() {
+        Diagnostics.setLevel(Diagnostics.Category.SCORES, Diagnostics.Level.DEBUG);
+        Diagnostics.event(Diagnostics.Category.SCORES, Diagnostics.Level.DEBUG, "Loaded {} scores from {}", "topscores.dat", 4);
+        Diagnostics.event(Diagnostics.Category.SCORES, Diagnostics.Level.INFO, "At ({},{})", 1, 2);
+        assertTrue(Diagnostics.flush(1000));
+        String[] lines = written.toString().split("\\R");
+        assertEquals("[DEBUG SCORES] Loaded topscores.dat scores from 4", lines[0]);
+        assertEquals("[INFO SCORES] At (1,2)", lines[1]);
+    }
+}
+
+/**
+ * Tests for the multi-session GameServer, over a real local socket.
+ * Checks the line protocol and that saves are kept per player.
+ */
+class GameServerTest {
+    private GameServer server;
+    private Path storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = Files.createTempDirectory("dungeon-server-test");
+        server = new GameServer(0, storage);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void sessionPlaysSavesAndLoadsOverTheLineProtocol() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            out.println("USER alice");
+            assertEquals("OK user alice", in.readLine());
+            out.println("NEW 3 42");
+            assertEquals("OK PLAYING level=1 hp=10 score=0 steps=0/100 pos=9,0", in.readLine());
+            out.println("MOVE U");
+            String afterMove = in.readLine();
+            assertTrue(afterMove.contains("steps=1/100") && afterMove.contains("pos=8,0"), afterMove);
+            out.println("SAVE");
+            assertEquals(afterMove, in.readLine(), "SAVE should reply with the unchanged state.");
+            out.println("MOVE R");
+            in.readLine();
+            out.println("LOAD");
+            assertEquals(afterMove, in.readLine(), "LOAD should restore the saved state.");
+            out.println("MOVE X");
+            assertTrue(in.readLine().startsWith("ERR"), "A bad direction should be an error, not a disconnect.");
+            out.println("QUIT");
+            assertEquals("BYE", in.readLine());
+        }
+        assertTrue(Files.exists(storage.resolve("players/alice/minidungeon.save")), "Saves should go in the player's own directory.");
+    }
+
+    @Test
+    void playersCannotLoadEachOthersSaves() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            out.println("USER bob");
+            in.readLine();
+            out.println("NEW");
+            in.readLine();
+            out.println("SAVE");
+            assertTrue(in.readLine().startsWith("OK"));
+            out.println("USER carol");
+            in.readLine();
+            out.println("LOAD");
+            assertEquals("ERR no saved game", in.readLine());
+        }
+    }
+}
+
+/**
+ * Tests for the memory-mapped SaveSlotStore.
+ * Checks that slots are written independently and survive reopening the file.
+ */
+class SaveSlotStoreTest {
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempDirectory("dungeon-slots-test").resolve(SaveSlotStore.DEFAULT_FILENAME);
+    }
+
+    @Test
+    void slotsAreOverwrittenAndGrownWithoutDisturbingEachOther() throws IOException {
+        byte[] big = new byte[5000];
+        Arrays.fill(big, (byte) 7);
+        try (SaveSlotStore slots = SaveSlotStore.open(file, 4)) {
+            slots.write("first", new byte[]{1, 2, 3});
+            slots.write("second", new byte[]{4, 5});
+            slots.write("first", big); // Outgrows its space and has to move
+            slots.write("second", new byte[]{6}); // Fits in place
+        }
+        try (SaveSlotStore slots = SaveSlotStore.open(file)) {
+            assertEquals(List.of("first", "second"), slots.list().stream().map(SaveSlotStore.Slot::name).toList());
+            assertArrayEquals(big, slots.read("first"));
+            assertArrayEquals(new byte[]{6}, slots.read("second"));
+            assertNull(slots.read("third"));
+        }
+    }
+
+    @Test
+    void aSaveCutShortBeforeItsIndexUpdateLeavesThePreviousSaveLoadable() throws IOException {
+        byte[] before = {1, 2, 3, 4};
+        int indexBytes = 16 + 2 * 64; // Header and two index entries, see the layout in SaveSlotStore
+        try (SaveSlotStore slots = SaveSlotStore.open(file, 2)) {
+            slots.write("slot", before);
+        }
+        byte[] indexBefore = Arrays.copyOf(Files.readAllBytes(file), indexBytes);
+        try (SaveSlotStore slots = SaveSlotStore.open(file, 2)) {
+            slots.write("slot", new byte[]{9, 9, 9, 9});
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(indexBefore), 0); // As if the index update never reached the disk
+        }
+        try (SaveSlotStore slots = SaveSlotStore.open(file)) {
+            assertArrayEquals(before, slots.read("slot"), "The new save must not have overwritten the old one.");
+            for (int i = 0; i < 10; i++) slots.write("slot", new byte[]{(byte) i});
+            assertArrayEquals(new byte[]{9}, slots.read("slot"));
+        }
+        assertTrue(Files.size(file) <= indexBytes + 2 * 512, "Saving a slot again should reuse its two regions.");
+    }
+
+    @Test
+    void aFullStoreRejectsNewSlotsUntilOneIsDeleted() throws IOException {
+        try (SaveSlotStore slots = SaveSlotStore.open(file, 2)) {
+            slots.write("a", new byte[]{1});
+            slots.write("b", new byte[]{2});
+            assertThrows(IOException.class, () -> slots.write("c", new byte[]{3}));
+            assertTrue(slots.delete("a"));
+            slots.write("c", new byte[]{3});
+            assertArrayEquals(new byte[]{3}, slots.read("c"));
+            assertArrayEquals(new byte[]{2}, slots.read("b"));
+        }
+    }
+
+    @Test
+    void storesSharingOneFileNeitherLoseNorMixUpSlots() throws IOException, InterruptedException {
+        int writers = 4;
+        int rounds = 60;
+        LinkedBlockingQueue<Throwable> failures = new LinkedBlockingQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < rounds; round++) {
+                        byte[] payload = new byte[100 + 700 * writer + round]; // Sizes differ, so gaps get reused
+                        Arrays.fill(payload, (byte) writer);
+                        // Each save opens the file, as the engine does; the first ones race to create it
+                        try (SaveSlotStore slots = SaveSlotStore.open(file, writers)) {
+                            slots.write("writer" + writer, payload);
+                            assertArrayEquals(payload, slots.read("writer" + writer));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        start.countDown(); // Every writer starts at once
+        for (Thread thread : threads) thread.join();
+        assertNull(failures.peek(), "No writer should fail.");
+
+        try (SaveSlotStore slots = SaveSlotStore.open(file)) {
+            assertEquals(writers, slots.list().size());
+            for (int writer = 0; writer < writers; writer++) {
+                byte[] expected = new byte[100 + 700 * writer + rounds - 1];
+                Arrays.fill(expected, (byte) writer);
+                assertArrayEquals(expected, slots.read("writer" + writer), "Slot of writer " + writer);
+            }
+        }
+    }
+}
+
+/**
+ * Tests for the TopScores leaderboard.
+ * Checks that difficulties keep separate boards, and that the log replays and compacts to the same boards.
+ */
+class TopScoresTest {
+    private final LocalDate today = LocalDate.of(2025, 5, 30);
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempDirectory("dungeon-scores-test").resolve(TopScores.DEFAULT_FILENAME);
+    }
+
+    @Test
+    void scoresFromTheOldTopFiveFileStayReachableThroughTheEngine() throws IOException {
+        List<ScoreEntry> old = new ArrayList<>(List.of(new ScoreEntry("Ann", 40, today), new ScoreEntry("Bob", 25, today)));
+        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(file.resolveSibling(TopScores.LEGACY_FILENAME)))) {
+            oos.writeObject(old);
+        }
+        GameEngine engine = new GameEngine(3, file.resolveSibling("unused.save"), new TopScores(file));
+        assertEquals(2, engine.getEarlierTopScoreCount());
+        List<ScoreEntry> earlier = engine.getEarlierTopScores(0, TopScores.MAX_TOP_SCORES);
+        assertEquals(List.of("Ann", "Bob"), earlier.stream().map(ScoreEntry::getPlayerName).toList());
+        assertEquals(0, engine.getTopScoreCount(), "Their difficulty is unknown, so no difficulty's board gets them.");
+
+        GameEngine reopened = new GameEngine(5, file.resolveSibling("unused.save"), new TopScores(file));
+        assertEquals(2, reopened.getEarlierTopScoreCount(), "The import is kept in the new log.");
+    }
+
+    @Test
+    void difficultiesKeepSeparateBoardsTrimmedToCapacity() {
+        TopScores scores = TopScores.inMemory(3);
+        for (int score = 1; score <= 10; score++) {
+            scores.add(2, "Easy" + score, score, today);
+        }
+        assertTrue(scores.add(7, "Hard", 4, today), "Another difficulty's full board should not affect this one.");
+        assertEquals(List.of(10, 9, 8), scores.getTop(2, 5).stream().map(ScoreEntry::getScore).toList());
+        assertFalse(scores.isTopScore(2, 8), "A tie with the lowest kept score should not qualify.");
+        assertTrue(scores.isTopScore(7, 1), "A board with room should accept any score.");
+        assertFalse(scores.add(2, "Late", 5, today));
+        assertEquals(List.of(10, 9, 8, 4), scores.getTop(4).stream().map(ScoreEntry::getScore).toList());
+    }
+
+    @Test
+    void reopeningReplaysTheLogAcrossCompactions() throws IOException {
+        TopScores scores = new TopScores(file, 4);
+        for (int i = 0; i < 1000; i++) { // Enough accepted scores to compact the log several times
+            scores.add(i % 3, "P" + i, i % 20, today);
+        }
+        scores.flush().join();
+        long uncompacted = 1000L * (2 + 9 + 4 + 4); // Length, payload and checksum with names of up to 4 bytes
+        assertTrue(Files.size(file) < uncompacted / 3, "The log should have been compacted.");
+        TopScores reopened = new TopScores(file, 4);
+        for (int difficulty = 0; difficulty < 3; difficulty++) {
+            assertEquals(scores.getTop(difficulty, 4), reopened.getTop(difficulty, 4));
+            assertEquals(scores.standing(difficulty, 10), reopened.standing(difficulty, 10));
+        }
+        assertEquals(334, reopened.standing(0, 0).games(), "Games that fell off the board should still be counted.");
+        assertEquals("P39", reopened.getTop(0, 1).getFirst().getPlayerName(), "The first of the tied best scores should lead.");
+    }
+
+    @Test
+    void ranksPercentilesAndPagesCountEveryRecordedGame() {
+        TopScores scores = TopScores.inMemory(3);
+        for (int score = 1; score <= 10; score++) {
+            scores.add(2, "P" + score, score, today);
+        }
+        scores.recordGame(2, 5);
+        TopScores.Standing standing = scores.standing(2, 5);
+        assertEquals(6, standing.rank(), "Scores 6 to 10 are higher.");
+        assertEquals(11, standing.games());
+        assertEquals(100.0 * 4 / 11, standing.percentile(), 1e-9);
+        assertEquals(3, scores.placeFor(2, 9), "A new score goes behind an equal one already on the board.");
+        assertEquals(List.of(9, 8), scores.getPage(2, 1, 5).stream().map(ScoreEntry::getScore).toList());
+        assertTrue(scores.getPage(2, 3, 5).isEmpty());
+    }
+
+    @Test
+    void pagesMatchASortedCopyOfTheBoard() {
+        TopScores scores = TopScores.inMemory(500);
+        DungeonRandom random = new DungeonRandom(3L);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int score = random.nextInt(300);
+            scores.add(4, "P" + i, score, today);
+            expected.add(score);
+        }
+        expected.sort(Comparator.reverseOrder());
+        for (int from = 0; from < 520; from += 37) {
+            List<Integer> page = scores.getPage(4, from, 37).stream().map(ScoreEntry::getScore).toList();
+            assertEquals(expected.subList(Math.min(from, 500), Math.min(from + 37, 500)), page, "Page from " + from);
+        }
+        assertEquals(expected.indexOf(150) + 1, scores.standing(4, 150).rank());
+    }
+
+    @Test
+    void concurrentSubmissionsAreNeitherLostNorDuplicated() throws InterruptedException {
+        int threads = 16;
+        int perThread = 2000;
+        TopScores scores = new TopScores(file, threads * perThread);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            List<CompletableFuture<Boolean>> mine = new ArrayList<>(perThread);
+            submitters.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    mine.add(scores.submit(thread % 4, "T" + thread + "-" + i, i, today));
+                }
+                synchronized (results) {
+                    results.addAll(mine);
+                }
+            }));
+        }
+        start.countDown(); // Every thread submits at once
+        for (Thread submitter : submitters) submitter.join();
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        assertTrue(results.stream().allMatch(CompletableFuture::join), "Every score fits, so every score should be kept.");
+
+        TopScores reopened = new TopScores(file, threads * perThread);
+        for (TopScores board : List.of(scores, reopened)) {
+            Set<String> names = new HashSet<>();
+            int total = 0;
+            for (int difficulty = 0; difficulty < 4; difficulty++) {
+                List<ScoreEntry> page = board.getPage(difficulty, 0, threads * perThread);
+                total += page.size();
+                for (ScoreEntry entry : page) names.add(entry.getPlayerName());
+                assertEquals(4L * perThread, board.standing(difficulty, 0).games());
+            }
+            assertEquals(threads * perThread, total, "No submission should be lost.");
+            assertEquals(threads * perThread, names.size(), "No submission should be duplicated.");
+        }
+    }
+}
+
+/**
+ * Tests for the columnar GameHistory.
+ * Checks that games appended across several blocks and sessions are all summarised, and that a block left half-started is dropped.
+ */
+class GameHistoryTest {
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempDirectory("dungeon-history-test").resolve(GameHistory.DEFAULT_FILENAME);
+    }
+
+    // Every third game won with score 10 * i, the rest lost to a melee mutant or the step limit
+    private static List<GameHistory.Entry> games(int from, int count, int difficulty) {
+        List<GameHistory.Entry> entries = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            if (i % 3 == 0) {
+                entries.add(new GameHistory.Entry(difficulty, GameHistory.Outcome.WON, null, 2, 5, 40, 10 * i, 30, 1_700_000_000L + i, i));
+            } else if (i % 3 == 1) {
+                entries.add(new GameHistory.Entry(difficulty, GameHistory.Outcome.DIED, DeathCause.MELEE_MUTANT, 1, 0, 20, -1, 10, 1_700_000_000L + i, i));
+            } else {
+                entries.add(new GameHistory.Entry(difficulty, GameHistory.Outcome.OUT_OF_STEPS, null, 2, 3, 100, -1, 60, 1_700_000_000L + i, i));
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    void gamesAcrossBlocksAndSessionsAreAllSummarised() throws IOException {
+        try (GameHistory history = new GameHistory(file)) {
+            history.append(games(0, 150, 3)); // Fills the 64-row block and spills into the next
+            history.append(games(150, 150, 3));
+            history.append(games(0, 30, 7));
+        }
+        try (GameHistory history = new GameHistory(file)) {
+            history.append(games(300, 3, 3)); // Reopened: carries on in the last block
+        }
+
+        SimulationReport report = GameHistory.analyze(file);
+        SimulationStats hard = report.getStats(3);
+        assertEquals(333, report.getTotalGames());
+        assertEquals(303, hard.getGames());
+        assertEquals(101, hard.getWins());
+        assertEquals(101, hard.getDeaths(DeathCause.MELEE_MUTANT));
+        assertEquals(101, hard.getOutOfSteps());
+        assertEquals(3000, hard.getBestScore());
+        assertEquals(10, report.getStats(7).getWins());
+    }
+
+    @Test
+    void aHalfStartedBlockIsDroppedAndRewritten() throws IOException {
+        try (GameHistory history = new GameHistory(file)) {
+            history.append(games(0, 64, 2)); // Exactly fills the first block
+        }
+        try (var out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+            out.write(new byte[]{0, 0, 0, (byte) 128, 0}); // Next block's header, cut off by a crash
+        }
+        assertEquals(64, GameHistory.analyze(file).getTotalGames());
+
+        try (GameHistory history = new GameHistory(file)) {
+            history.append(games(64, 10, 2));
+        }
+        SimulationStats stats = GameHistory.analyze(file).getStats(2);
+        assertEquals(74, stats.getGames());
+        assertEquals(25, stats.getWins());
+    }
+}
+
+/**
+ * Tests for the LevelSolver.
+ * Checks the route on a small hand-made level, and that solutions of generated levels play out as reported.
+ */
+class LevelSolverTest {
+
+    @Test
+    void detoursForGoldAndAroundAMutantThatWouldKill() {
+        GameState state = new GameState(5, 0);
+        Player player = new Player(4, 0);
+        player.setHp(2);
+        state.setPlayer(player);
+        state.setPlayerPosition(4, 0);
+        state.setTile(0, 0, TileType.LADDER);
+        state.setTile(4, 4, TileType.GOLD);
+        state.setTile(2, 0, TileType.MELEE_MUTANT); // On the straight way up; one hit kills
+
+        LevelSolver.Solution solution = LevelSolver.solve(state, 20);
+        assertNotNull(solution);
+        assertEquals(2, solution.score(), "The gold is worth the detour.");
+        assertEquals(12, solution.moves().size(), "4 moves to the gold and 8 back to the ladder.");
+        for (Direction move : solution.moves()) state.movePlayer(move);
+        assertTrue(state.hasReachedLadderThisTurn());
+        assertEquals(2, state.getPlayer().getHp(), "The route should have gone around the mutant.");
+
+        assertNull(LevelSolver.solve(state.fork(), 0));
+    }
+
+    @Test
+    void solutionsOfGeneratedLevelsPlayOutAsReported() {
+        for (long seed = 1; seed <= 5; seed++) {
+            GameEngine engine = GameEngine.headless(2);
+            engine.startNewGame(seed);
+            LevelSolver.Solution solution = LevelSolver.solve(engine);
+            assertNotNull(solution, "Seed " + seed + " should be solvable.");
+            assertTrue(solution.moves().size() < engine.getMaxSteps());
+
+            GameState game = engine.getState().fork();
+            for (Direction move : solution.moves()) game.movePlayer(move);
+            assertTrue(game.hasReachedLadderThisTurn(), "Seed " + seed + ": the route should end on the ladder.");
+            assertEquals(solution.score(), game.getPlayer().getScore());
+            assertTrue(game.getPlayer().getHp() >= solution.hp(), "Ranged mutants can only miss more than the worst case.");
+        }
+    }
+}
+
+class LevelValidatorTest {
+
+    @Test
+    void routesAvoidHazardsThePlayerCannotSurvive() {
+        GameState state = new GameState(5, 0);
+        Player player = new Player(4, 0);
+        state.setPlayer(player);
+        state.setPlayerPosition(4, 0);
+        state.setTile(0, 4, TileType.LADDER);
+        assertEquals(8, LevelValidator.safeRouteLength(state, 99), "An open map takes the straight way.");
+        assertEquals(-1, LevelValidator.safeRouteLength(state, 7), "The ladder is out of reach.");
+
+        state.setTile(0, 3, TileType.TRAP);
+        state.setTile(1, 4, TileType.MELEE_MUTANT);
+        assertEquals(8, LevelValidator.safeRouteLength(state, 99), "One hit is survivable with full HP.");
+        player.setHp(2);
+        assertEquals(-1, LevelValidator.safeRouteLength(state, 99), "Every way in is a hit that kills.");
+        assertFalse(LevelValidator.isWinnable(state, 99));
+    }
+
+    @Test
+    void everyGeneratedLevelCanBeWon() {
+        for (int mapSize : new int[]{10, 30, 300}) {
+            for (long seed = 1; seed <= 20; seed++) {
+                GameEngine engine = GameEngine.headless(10, seed, mapSize);
+                engine.startNewGame(seed);
+                assertTrue(LevelValidator.isWinnable(engine.getState(), engine.getMaxSteps() - 1),
+                        "Level 1 of seed " + seed + " on a " + mapSize + " map");
+
+                engine.getPlayer().setHp(3); // Level 2 has to be winnable with the HP carried over
+                assertTrue(engine.advanceToNextLevel());
+                assertEquals(2, engine.getState().getLevel());
+                assertTrue(LevelValidator.isWinnable(engine.getState(), engine.getMaxSteps() - 1),
+                        "Level 2 of seed " + seed + " on a " + mapSize + " map");
+            }
+        }
+    }
+}
+
+class BitboardTest {
+
+    @Test
+    void boardsFollowEveryWayTheMapChanges() {
+        GameState state = new GameState(10, 0);
+        Bitboard bits = state.getBitboard();
+        assertNotNull(bits);
+        state.setTile(0, 0, TileType.GOLD);
+        state.setTile(9, 9, TileType.GOLD);
+        state.getMap()[5][5] = new Gold(); // Through the compatibility view
+        assertEquals(3, state.getGoldRemaining());
+        assertTrue(state.getBitboard().cells(TileType.GOLD).contains(99), "Cell 99 lives in the high word.");
+
+        GameState fork = state.fork();
+        fork.setTile(0, 0, TileType.TRAP);
+        assertEquals(2, fork.getGoldRemaining());
+        assertEquals(Bitboard.Cells.of(0), fork.getBitboard().cells(TileType.TRAP));
+        assertEquals(3, state.getGoldRemaining(), "A fork's writes must not show in the original.");
+        assertEquals(97, state.getBitboard().count(TileType.EMPTY));
+
+        state.clearMap();
+        assertEquals(0, state.getGoldRemaining());
+        assertEquals(100, state.getBitboard().count(TileType.EMPTY));
+        assertNull(new GameState(12, 0).getBitboard(), "144 cells do not fit in 128 bits.");
+    }
+
+    @Test
+    void threatsAndNeighboursMatchTheRules() {
+        GameState state = new GameState(10, 0);
+        state.setTile(4, 2, TileType.RANGED_MUTANT);  // Two to the left
+        state.setTile(6, 4, TileType.RANGED_MUTANT);  // Two below
+        state.setTile(5, 5, TileType.RANGED_MUTANT);  // Diagonal: cannot hit
+        state.setTile(4, 7, TileType.RANGED_MUTANT);  // Three to the right: out of range
+        Bitboard bits = state.getBitboard();
+        assertEquals(Bitboard.Cells.of(42).or(Bitboard.Cells.of(64)), bits.threatsTo(4, 4));
+        assertEquals(42, bits.threatsTo(4, 4).first(), "Threats come in row-major order.");
+        assertEquals(8, bits.attackMask(4, 4).count());
+        assertEquals(4, bits.attackMask(0, 0).count());
+
+        assertEquals(Bitboard.Cells.of(1).or(Bitboard.Cells.of(10)), bits.neighbours(Bitboard.Cells.of(0)));
+        assertEquals(Bitboard.Cells.of(8).or(Bitboard.Cells.of(19)), bits.neighbours(Bitboard.Cells.of(9)),
+                "The last column must not wrap onto the next row.");
+        assertEquals(4, bits.neighbours(Bitboard.Cells.of(55)).count());
+    }
+}
+
+class MctsMovePolicyTest {
+
+    @Test
+    void takesTheOnlyMoveThatStillReachesTheLadder() {
+        GameState state = new GameState(5, 0);
+        state.setPlayer(new Player(4, 0));
+        state.setPlayerPosition(4, 0);
+        state.setTile(3, 0, TileType.LADDER);
+        state.setTile(4, 1, TileType.GOLD); // Tempting, but then the ladder is out of reach
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            MctsMovePolicy policy = new MctsMovePolicy(500, pool, 1);
+            assertEquals(Direction.UP, policy.chooseMove(state, 2));
+            MctsMovePolicy.Search search = policy.getLastSearch();
+            assertEquals(500, search.playouts());
+            assertTrue(search.playoutsPerSecond() > 0);
+            assertTrue(search.value() > 0, "Reaching the ladder is worth something.");
+            assertEquals(TileType.GOLD, state.getTile(4, 1), "The search must not touch the game.");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void playsWholeGamesThroughTheSimulator() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            GameEngine engine = GameEngine.headless(1, 5);
+            GameSimulator.playGame(engine, new MctsMovePolicy(200, pool, 5));
+            assertTrue(engine.isGameOver() || engine.hasWonGame(), "The game should be played to its end.");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
+
+class HintServiceTest {
+
+    // The map of LevelSolverTest: the gold is worth a detour, past a mutant that would kill
+    private static GameState detourLevel() {
+        GameState state = new GameState(5, 0);
+        Player player = new Player(4, 0);
+        player.setHp(2);
+        state.setPlayer(player);
+        state.setPlayerPosition(4, 0);
+        state.setTile(0, 0, TileType.LADDER);
+        state.setTile(4, 4, TileType.GOLD);
+        state.setTile(2, 0, TileType.MELEE_MUTANT);
+        return state;
+    }
+
+    @Test
+    void deepensUntilTheBestRouteIsFound() throws InterruptedException {
+        LinkedBlockingQueue<HintService.Hint> received = new LinkedBlockingQueue<>();
+        try (HintService hints = new HintService(Runnable::run, received::add)) {
+            GameState state = detourLevel();
+            hints.analyse(state, 21);
+            List<HintService.Hint> all = new ArrayList<>();
+            HintService.Hint hint;
+            do {
+                hint = received.poll(10, TimeUnit.SECONDS);
+                assertNotNull(hint, "The analysis should finish.");
+                all.add(hint);
+            } while (!hint.complete());
+
+            assertEquals(0, all.get(0).score(), "The first hint is the shortest safe way, with no time for the gold.");
+            assertEquals(Direction.RIGHT, hint.move());
+            assertTrue(hint.safe());
+            assertEquals(2, hint.score());
+            assertEquals(2, hint.hp());
+            assertEquals(20, hint.horizon(), "The last step would end the game, so the ladder must come before it.");
+            for (int i = 1; i < all.size(); i++) {
+                assertTrue(all.get(i).horizon() > all.get(i - 1).horizon(), "Each hint should look further ahead.");
+            }
+            assertEquals(TileType.GOLD, state.getTile(4, 4), "The analysis must not touch the game.");
+        }
+    }
+
+    @Test
+    void dropsHintsOfAnAnalysisThatWasReplaced() throws InterruptedException {
+        LinkedBlockingQueue<Runnable> deliveries = new LinkedBlockingQueue<>();
+        List<HintService.Hint> received = new ArrayList<>();
+        try (HintService hints = new HintService(deliveries::add, received::add)) {
+            hints.analyse(detourLevel(), 21);
+            Runnable first = deliveries.poll(10, TimeUnit.SECONDS);
+            assertNotNull(first);
+            hints.cancel();
+            first.run();
+            assertTrue(received.isEmpty(), "A hint for a position already left behind must not be shown.");
+
+            hints.analyse(detourLevel(), 21);
+            Runnable next;
+            while ((next = deliveries.poll(10, TimeUnit.SECONDS)) != null) {
+                next.run(); // Deliveries the first analysis queued before it stopped are dropped here too
+                if (!received.isEmpty() && received.get(received.size() - 1).complete()) break;
+            }
+            assertFalse(received.isEmpty(), "A new analysis is delivered as usual.");
+            assertEquals(2, received.get(received.size() - 1).score());
+        }
+    }
 }